@@ -0,0 +1,70 @@
+package com.zjz.codesandbox.benchmark;
+
+import cn.hutool.core.io.resource.ResourceUtil;
+import com.zjz.codesandbox.config.CodeBoxProperties;
+import com.zjz.codesandbox.config.CompileCacheProperties;
+import com.zjz.codesandbox.config.WorkspaceProperties;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.impl.java.JavaNativeCodeBox;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 基准测试公共方法
+ * 不启动 Spring，按 application.yml 的默认配置手动装配沙箱
+ */
+public class BenchmarkSupport {
+
+    /**
+     * 读取 resources/testcode 下的示例代码
+     * @param path 相对 testcode 的路径
+     */
+    public static String readTestCode(String path) {
+        return ResourceUtil.readStr("testcode/" + path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 创建 Java 原生沙箱
+     * @param runMode 运行方式，见 JavaRunModeEnum
+     * @param compileCacheEnabled 是否启用编译缓存
+     */
+    public static JavaNativeCodeBox createJavaNativeCodeBox(String runMode, boolean compileCacheEnabled) {
+        return createJavaNativeCodeBox(runMode, compileCacheEnabled, true);
+    }
+
+    /**
+     * 创建 Java 原生沙箱
+     * @param runMode 运行方式，见 JavaRunModeEnum
+     * @param compileCacheEnabled 是否启用编译缓存
+     * @param workspaceEnabled 是否使用工作目录管理，否则在 user.dir/usercode 下同步创建与删除目录
+     */
+    public static JavaNativeCodeBox createJavaNativeCodeBox(String runMode, boolean compileCacheEnabled,
+                                                            boolean workspaceEnabled) {
+        CodeBoxProperties properties = new CodeBoxProperties();
+        properties.setCompileOptions(Arrays.asList("-encoding", "utf-8"));
+        properties.setRunMode(runMode);
+        CompileCacheProperties compileCacheProperties = new CompileCacheProperties();
+        compileCacheProperties.setEnabled(compileCacheEnabled);
+        JavaNativeCodeBox codeBox = new JavaNativeCodeBox();
+        inject(codeBox, "javaNativeCodeBoxProperties", properties);
+        inject(codeBox, "compileCache", new CompileCache(compileCacheProperties));
+        if (workspaceEnabled) {
+            inject(codeBox, "workspaceManager", new WorkspaceManager(new WorkspaceProperties()));
+        }
+        codeBox.initAdmissionLimiter();
+        return codeBox;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to inject " + fieldName, e);
+        }
+    }
+}
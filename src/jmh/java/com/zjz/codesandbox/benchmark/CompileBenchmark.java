@@ -0,0 +1,66 @@
+package com.zjz.codesandbox.benchmark;
+
+import cn.hutool.core.io.FileUtil;
+import com.zjz.codesandbox.model.dto.CompileMessage;
+import com.zjz.codesandbox.model.enums.JavaCompileModeEnum;
+import com.zjz.codesandbox.utils.LanguageCommonUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java 编译基准测试，对比 javac 进程与进程内编译
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CompileBenchmark {
+
+    /**
+     * 编译方式，见 JavaCompileModeEnum
+     */
+    @Param({"process", "in_process"})
+    private String compileMode;
+
+    private static final List<String> OPTIONS = Arrays.asList("-encoding", "utf-8");
+
+    private File workDir;
+
+    private File codeFile;
+
+    @Setup
+    public void setup() {
+        workDir = FileUtil.mkdir(new File(System.getProperty("java.io.tmpdir"), "compile-benchmark-" + System.nanoTime()));
+        codeFile = FileUtil.writeString(BenchmarkSupport.readTestCode("java/Main.java"),
+                new File(workDir, "Main.java"), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtil.del(workDir);
+    }
+
+    @Benchmark
+    public CompileMessage compileJavaCode() {
+        return LanguageCommonUtils.compileJavaCode(
+                codeFile, JavaCompileModeEnum.getEnumByValue(compileMode), OPTIONS);
+    }
+}
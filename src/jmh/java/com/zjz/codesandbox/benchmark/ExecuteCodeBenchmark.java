@@ -0,0 +1,81 @@
+package com.zjz.codesandbox.benchmark;
+
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.sandbox.impl.java.JavaNativeCodeBox;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JavaNativeCodeBox 完整执行基准测试
+ * 使用 resources/testcode 下的示例代码，覆盖编译、运行与清理；
+ * 运行超时的示例（TimeErrorCode）单次耗时由超时时间决定，不在此测量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ExecuteCodeBenchmark {
+
+    /**
+     * 示例代码，相对 testcode/java 的路径
+     */
+    @Param({"Main.java", "MemoryErrorCode/Main.java"})
+    private String program;
+
+    /**
+     * 运行方式，见 JavaRunModeEnum
+     */
+    @Param({"per_case", "batch"})
+    private String runMode;
+
+    /**
+     * 是否启用编译缓存
+     */
+    @Param({"false", "true"})
+    private boolean compileCache;
+
+    /**
+     * 测试用例数量
+     */
+    @Param({"10"})
+    private int caseCount;
+
+    private JavaNativeCodeBox codeBox;
+
+    private ExecuteRequest executeRequest;
+
+    @Setup
+    public void setup() {
+        codeBox = BenchmarkSupport.createJavaNativeCodeBox(runMode, compileCache);
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            inputs.add(i + " " + (i + 1));
+        }
+        executeRequest = ExecuteRequest.builder()
+                .code(BenchmarkSupport.readTestCode("java/" + program))
+                .inputs(inputs)
+                .language("java")
+                .build();
+    }
+
+    @Benchmark
+    public ExecuteResponse executeCode() {
+        return codeBox.executeCode(executeRequest);
+    }
+}
@@ -0,0 +1,42 @@
+package com.zjz.codesandbox.benchmark;
+
+import com.zjz.codesandbox.model.process.ProcessMessage;
+import com.zjz.codesandbox.utils.ProcessUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程输出收集基准测试
+ * 子进程输出指定行数，测量 runProcessAndMessage 读取、解码与组装输出的开销（含进程启动）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProcessOutputBenchmark {
+
+    /**
+     * 子进程输出行数
+     */
+    @Param({"1", "1000", "100000"})
+    private int lines;
+
+    @Benchmark
+    public ProcessMessage runProcessAndMessage() throws IOException {
+        Process process = new ProcessBuilder("sh", "-c", "seq 1 " + lines).start();
+        return ProcessUtils.runProcessAndMessage(process, "benchmark", "");
+    }
+}
@@ -0,0 +1,52 @@
+package com.zjz.codesandbox.benchmark;
+
+import com.zjz.codesandbox.utils.VerifyUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 敏感词校验基准测试
+ * 代码由示例代码重复拼接到指定大小，不含敏感词，需要扫描完整个代码
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerifyCodeBenchmark {
+
+    /**
+     * 代码大小 KB
+     */
+    @Param({"4", "64", "512"})
+    private int codeSize;
+
+    private String code;
+
+    @Setup
+    public void setup() {
+        String sample = BenchmarkSupport.readTestCode("java/Main.java");
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < codeSize * 1024) {
+            builder.append(sample).append('\n');
+        }
+        code = builder.toString();
+    }
+
+    @Benchmark
+    public boolean verifyCodeSecurity() {
+        return VerifyUtils.verifyCodeSecurity(code);
+    }
+}
@@ -0,0 +1,66 @@
+package com.zjz.codesandbox.benchmark;
+
+import com.zjz.codesandbox.sandbox.ExecuteCodeTemplate;
+import com.zjz.codesandbox.sandbox.impl.java.JavaNativeCodeBox;
+import com.zjz.codesandbox.sandbox.workspace.Workspace;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户代码工作目录分配、写入与归还的基准测试
+ * 通过反射调用 ExecuteCodeTemplate 的 allocateWorkspace、saveCodeFile 与 releaseWorkspace，与实际执行路径一致；
+ * workspaceEnabled 为 false 时对比 user.dir/usercode 下同步创建与删除目录
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkspaceBenchmark {
+
+    @Param({"true", "false"})
+    private boolean workspaceEnabled;
+
+    private JavaNativeCodeBox codeBox;
+
+    private Method allocateWorkspace;
+
+    private Method saveCodeFile;
+
+    private Method releaseWorkspace;
+
+    private String code;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        codeBox = BenchmarkSupport.createJavaNativeCodeBox("batch", false, workspaceEnabled);
+        allocateWorkspace = ExecuteCodeTemplate.class.getDeclaredMethod("allocateWorkspace", String.class);
+        allocateWorkspace.setAccessible(true);
+        saveCodeFile = ExecuteCodeTemplate.class.getDeclaredMethod("saveCodeFile", String.class, Workspace.class);
+        saveCodeFile.setAccessible(true);
+        releaseWorkspace = ExecuteCodeTemplate.class.getDeclaredMethod("releaseWorkspace", Workspace.class);
+        releaseWorkspace.setAccessible(true);
+        code = BenchmarkSupport.readTestCode("java/Main.java");
+    }
+
+    @Benchmark
+    public Object saveAndRelease() throws ReflectiveOperationException {
+        Workspace workspace = (Workspace) allocateWorkspace.invoke(codeBox, "java");
+        Object file = saveCodeFile.invoke(codeBox, code, workspace);
+        releaseWorkspace.invoke(codeBox, workspace);
+        return file;
+    }
+}
@@ -0,0 +1,67 @@
+package com.zjz.codesandbox.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个接口的延迟与结果统计，线程安全
+ */
+public class LatencyStats {
+
+    private final List<Long> latencies = new ArrayList<>();
+
+    /**
+     * 响应状态 -> 次数，状态取 ExecuteResponse.status，传输失败时为 http_xxx 或 exception
+     */
+    private final Map<String, Long> statusCounts = new LinkedHashMap<>();
+
+    private long errors = 0;
+
+    /**
+     * 记录一次请求
+     * @param latency 延迟 ms
+     * @param status 响应状态
+     * @param error 是否为错误（传输失败或非 2xx）
+     */
+    public synchronized void record(long latency, String status, boolean error) {
+        latencies.add(latency);
+        statusCounts.merge(status, 1L, Long::sum);
+        if (error) {
+            errors++;
+        }
+    }
+
+    /**
+     * 生成统计报告
+     * @param elapsed 压测总时长 ms
+     */
+    public synchronized Map<String, Object> report(long elapsed) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("requests", sorted.size());
+        report.put("errors", errors);
+        report.put("errorRate", sorted.isEmpty() ? 0D : (double) errors / sorted.size());
+        report.put("throughput", elapsed <= 0 ? 0D : sorted.size() * 1000D / elapsed);
+        report.put("p50", percentile(sorted, 0.50));
+        report.put("p95", percentile(sorted, 0.95));
+        report.put("p99", percentile(sorted, 0.99));
+        report.put("max", sorted.isEmpty() ? 0L : sorted.get(sorted.size() - 1));
+        report.put("statuses", new LinkedHashMap<>(statusCounts));
+        return report;
+    }
+
+    /**
+     * 最近秩法计算百分位
+     */
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0L;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.size());
+        return sorted.get(Math.max(rank - 1, 0));
+    }
+}
@@ -0,0 +1,319 @@
+package com.zjz.codesandbox.loadtest;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.zjz.codesandbox.config.CodeBoxProperties;
+import com.zjz.codesandbox.config.CompileCacheProperties;
+import com.zjz.codesandbox.config.WorkspaceProperties;
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.impl.java.JavaNativeCodeBox;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 请求回放压测工具
+ * 按固定并发（闭环）或固定速率（开环）回放录制的 ExecuteRequest，统计各接口的吞吐量、错误率与延迟百分位
+ *
+ * 参数：
+ * --target      http://localhost:8081 或 offline（进程内直接调用 JavaNativeCodeBox，无需启动服务）
+ * --auth        鉴权密钥，默认 secretKey
+ * --recording   录制文件，每行一个 ReplayRequest JSON；不指定时使用 resources/testcode 生成混合请求
+ * --save-recording 将生成的混合请求保存为录制文件
+ * --docker      生成的混合请求包含 Docker 接口（需要本地 Docker）
+ * --cases       生成请求的测试用例数，默认 5
+ * --concurrency 并发数，默认 4；开环模式下为同时进行的请求上限
+ * --rate        每秒请求数，指定时使用开环模式
+ * --duration    压测时长 s，默认 30
+ * --requests    请求总数，指定时忽略 duration
+ * --report      JSON 报告文件
+ */
+public class ReplayLoadGenerator {
+
+    private static final String OFFLINE_TARGET = "offline";
+
+    private static final String NATIVE_JAVA_ENDPOINT = "/api/native/java";
+
+    /**
+     * 生成混合请求时各示例的权重：正常代码、超时、内存溢出、以及会被敏感词校验拒绝的危险代码
+     */
+    private static final Map<String, Integer> JAVA_MIX = new LinkedHashMap<>();
+
+    static {
+        JAVA_MIX.put("Main.java", 14);
+        JAVA_MIX.put("TimeErrorCode/Main.java", 1);
+        JAVA_MIX.put("MemoryErrorCode/Main.java", 2);
+        JAVA_MIX.put("ReadFileCode/Main.java", 1);
+        JAVA_MIX.put("RunFIleCode/Main.java", 1);
+        JAVA_MIX.put("writeFileCode/Main.java", 1);
+    }
+
+    private final Map<String, String> options;
+
+    private final Map<String, LatencyStats> stats = new ConcurrentHashMap<>();
+
+    private final LatencyStats totalStats = new LatencyStats();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private JavaNativeCodeBox offlineCodeBox;
+
+    public ReplayLoadGenerator(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                continue;
+            }
+            String key = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(key, hasValue ? args[++i] : "true");
+        }
+        new ReplayLoadGenerator(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+        List<ReplayRequest> requests = loadRequests();
+        if (options.containsKey("save-recording")) {
+            FileUtil.writeUtf8Lines(requests.stream().map(JSONUtil::toJsonStr).collect(Collectors.toList()),
+                    options.get("save-recording"));
+        }
+        String target = options.getOrDefault("target", "http://localhost:8081");
+        if (OFFLINE_TARGET.equals(target)) {
+            for (ReplayRequest request : requests) {
+                if (!NATIVE_JAVA_ENDPOINT.equals(request.getEndpoint())) {
+                    throw new IllegalArgumentException("Offline target only supports " + NATIVE_JAVA_ENDPOINT);
+                }
+            }
+            offlineCodeBox = createOfflineCodeBox();
+        }
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "4"));
+        long maxRequests = Long.parseLong(options.getOrDefault("requests", String.valueOf(Long.MAX_VALUE)));
+        long deadline = options.containsKey("requests") ? Long.MAX_VALUE
+                : System.currentTimeMillis() + Long.parseLong(options.getOrDefault("duration", "30")) * 1000;
+        System.out.printf("Replaying %d recorded requests against %s, concurrency %d%s%n", requests.size(), target,
+                concurrency, options.containsKey("rate") ? ", rate " + options.get("rate") + "/s" : "");
+
+        long start = System.currentTimeMillis();
+        if (options.containsKey("rate")) {
+            runOpenLoop(requests, target, concurrency, Double.parseDouble(options.get("rate")), maxRequests, deadline);
+        } else {
+            runClosedLoop(requests, target, concurrency, maxRequests, deadline);
+        }
+        report(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 闭环：每个工作线程完成一个请求后立即发送下一个
+     */
+    private void runClosedLoop(List<ReplayRequest> requests, String target, int concurrency,
+                               long maxRequests, long deadline) throws InterruptedException {
+        AtomicLong sequence = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.execute(() -> {
+                long index;
+                while ((index = sequence.getAndIncrement()) < maxRequests && System.currentTimeMillis() < deadline) {
+                    ReplayRequest request = requests.get((int) (index % requests.size()));
+                    send(target, request, System.currentTimeMillis());
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 开环：按固定速率发出请求，延迟从计划发送时间开始计算，避免服务变慢时少计排队时间
+     */
+    private void runOpenLoop(List<ReplayRequest> requests, String target, int concurrency, double rate,
+                             long maxRequests, long deadline) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        AtomicLong sequence = new AtomicLong();
+        long period = Math.max((long) (TimeUnit.SECONDS.toNanos(1) / rate), 1);
+        scheduler.scheduleAtFixedRate(() -> {
+            long index = sequence.getAndIncrement();
+            if (index >= maxRequests || System.currentTimeMillis() >= deadline) {
+                scheduler.shutdown();
+                return;
+            }
+            long intendedStart = System.currentTimeMillis();
+            ReplayRequest request = requests.get((int) (index % requests.size()));
+            workers.execute(() -> send(target, request, intendedStart));
+        }, 0, period, TimeUnit.NANOSECONDS);
+        scheduler.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void send(String target, ReplayRequest request, long startTime) {
+        String status;
+        boolean error;
+        try {
+            if (offlineCodeBox != null) {
+                ExecuteResponse response = offlineCodeBox.executeCode(request.getRequest());
+                status = response.getStatus();
+                error = false;
+            } else {
+                HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(target + request.getEndpoint()))
+                        .timeout(Duration.ofMinutes(2))
+                        .header("Content-Type", "application/json")
+                        .header("auth", options.getOrDefault("auth", "secretKey"))
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                JSONUtil.toJsonStr(request.getRequest()), StandardCharsets.UTF_8))
+                        .build();
+                HttpResponse<String> response = httpClient.send(
+                        httpRequest, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                error = response.statusCode() / 100 != 2;
+                status = error ? "http_" + response.statusCode() : parseStatus(response.body());
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            status = "exception";
+            error = true;
+        }
+        long latency = System.currentTimeMillis() - startTime;
+        stats.computeIfAbsent(request.getEndpoint(), endpoint -> new LatencyStats()).record(latency, status, error);
+        totalStats.record(latency, status, error);
+    }
+
+    private static String parseStatus(String body) {
+        try {
+            JSONObject json = JSONUtil.parseObj(body);
+            return String.valueOf(json.getStr("status"));
+        } catch (Exception e) {
+            return "unparsable";
+        }
+    }
+
+    private void report(long elapsed) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("elapsed", elapsed);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> endpoints.put(entry.getKey(), entry.getValue().report(elapsed)));
+        report.put("endpoints", endpoints);
+        report.put("total", totalStats.report(elapsed));
+
+        System.out.printf("%n%-22s %8s %8s %10s %8s %8s %8s %8s  %s%n",
+                "endpoint", "requests", "errors", "req/s", "p50", "p95", "p99", "max", "statuses");
+        endpoints.forEach((endpoint, result) -> printRow(endpoint, result));
+        printRow("total", report.get("total"));
+        if (options.containsKey("report")) {
+            FileUtil.writeUtf8String(JSONUtil.toJsonPrettyStr(report), options.get("report"));
+            System.out.println("Report is saved to " + new File(options.get("report")).getAbsolutePath());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printRow(String name, Object result) {
+        Map<String, Object> row = (Map<String, Object>) result;
+        System.out.printf("%-22s %8s %8s %10.2f %8s %8s %8s %8s  %s%n", name, row.get("requests"), row.get("errors"),
+                (Double) row.get("throughput"), row.get("p50"), row.get("p95"), row.get("p99"), row.get("max"),
+                row.get("statuses"));
+    }
+
+    /**
+     * 读取录制文件，未指定时按权重生成混合请求
+     */
+    private List<ReplayRequest> loadRequests() {
+        if (options.containsKey("recording")) {
+            return FileUtil.readUtf8Lines(options.get("recording")).stream()
+                    .filter(line -> !line.trim().isEmpty())
+                    .map(line -> JSONUtil.toBean(line, ReplayRequest.class))
+                    .collect(Collectors.toList());
+        }
+        int caseCount = Integer.parseInt(options.getOrDefault("cases", "5"));
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < caseCount; i++) {
+            inputs.add(i + " " + (i + 1));
+        }
+        List<String> endpoints = new ArrayList<>(Collections.singletonList(NATIVE_JAVA_ENDPOINT));
+        if (options.containsKey("docker")) {
+            endpoints.add("/api/docker/java");
+        }
+        List<ReplayRequest> requests = new ArrayList<>();
+        for (String endpoint : endpoints) {
+            JAVA_MIX.forEach((program, weight) -> {
+                ExecuteRequest request = ExecuteRequest.builder()
+                        .code(ResourceUtil.readStr("testcode/java/" + program, StandardCharsets.UTF_8))
+                        .inputs(inputs)
+                        .language("java")
+                        .build();
+                for (int i = 0; i < weight; i++) {
+                    requests.add(ReplayRequest.builder().endpoint(endpoint).name(program).request(request).build());
+                }
+            });
+        }
+        if (options.containsKey("docker")) {
+            ExecuteRequest request = ExecuteRequest.builder()
+                    .code(ResourceUtil.readStr("testcode/cpp/Main.cpp", StandardCharsets.UTF_8))
+                    .inputs(inputs)
+                    .language("cpp")
+                    .build();
+            for (int i = 0; i < JAVA_MIX.get("Main.java"); i++) {
+                requests.add(ReplayRequest.builder().endpoint("/api/docker/cpp").name("Main.cpp").request(request).build());
+            }
+        }
+        // 固定种子打乱，保证每次回放顺序一致
+        Collections.shuffle(requests, new Random(42));
+        return requests;
+    }
+
+    /**
+     * 不启动 Spring，按 application.yml 的默认配置手动装配 Java 原生沙箱
+     */
+    private static JavaNativeCodeBox createOfflineCodeBox() throws ReflectiveOperationException {
+        CodeBoxProperties properties = new CodeBoxProperties();
+        properties.setCompileOptions(Arrays.asList("-encoding", "utf-8"));
+        properties.setRunMode("batch");
+        JavaNativeCodeBox codeBox = new JavaNativeCodeBox();
+        Field propertiesField = JavaNativeCodeBox.class.getDeclaredField("javaNativeCodeBoxProperties");
+        propertiesField.setAccessible(true);
+        propertiesField.set(codeBox, properties);
+        Field cacheField = JavaNativeCodeBox.class.getDeclaredField("compileCache");
+        cacheField.setAccessible(true);
+        cacheField.set(codeBox, new CompileCache(new CompileCacheProperties()));
+        Field workspaceField = JavaNativeCodeBox.class.getDeclaredField("workspaceManager");
+        workspaceField.setAccessible(true);
+        workspaceField.set(codeBox, new WorkspaceManager(new WorkspaceProperties()));
+        codeBox.initAdmissionLimiter();
+        return codeBox;
+    }
+}
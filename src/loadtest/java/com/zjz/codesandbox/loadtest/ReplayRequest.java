@@ -0,0 +1,32 @@
+package com.zjz.codesandbox.loadtest;
+
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 录制文件中的一条请求，录制文件每行一个 JSON
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplayRequest {
+
+    /**
+     * 接口路径，如 /api/native/java
+     */
+    private String endpoint;
+
+    /**
+     * 示例名称，仅用于报告分类
+     */
+    private String name;
+
+    /**
+     * 执行请求
+     */
+    private ExecuteRequest request;
+}
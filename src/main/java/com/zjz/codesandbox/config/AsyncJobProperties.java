@@ -0,0 +1,35 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+/**
+ * 异步执行任务配置
+ */
+@Data
+public class AsyncJobProperties {
+
+    /**
+     * 执行任务的线程数
+     */
+    private int threads = 4;
+
+    /**
+     * 等待执行的任务数上限，超出时拒绝提交
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * 已结束任务结果的保留时间 ms
+     */
+    private long resultTtl = 10 * 60 * 1000L;
+
+    /**
+     * 完成回调的超时时间 ms
+     */
+    private int callbackTimeout = 3000;
+
+    /**
+     * 流式执行事件流的超时时间 ms
+     */
+    private long streamTimeout = 10 * 60 * 1000L;
+}
@@ -1,8 +1,16 @@
 package com.zjz.codesandbox.config;
 
+import com.github.dockerjava.api.DockerClient;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.image.ImageBootstrap;
 import com.zjz.codesandbox.sandbox.impl.cpp.CppDockerCodeBox;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+import com.zjz.codesandbox.utils.DockerCommonUtils;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
 public class BeanConfig {
@@ -11,5 +19,134 @@ public class BeanConfig {
     public CppDockerCodeBox cppDockerCodeBox(){
         return new CppDockerCodeBox();
     }
-}
 
+    /**
+     * Java 原生沙箱配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.box.java-native")
+    public CodeBoxProperties javaNativeCodeBoxProperties(){
+        return new CodeBoxProperties();
+    }
+
+    /**
+     * Java Docker 沙箱配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.box.java-docker")
+    public CodeBoxProperties javaDockerCodeBoxProperties(){
+        return new CodeBoxProperties();
+    }
+
+    /**
+     * C++ Docker 沙箱配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.box.cpp-docker")
+    public CodeBoxProperties cppDockerCodeBoxProperties(){
+        return new CodeBoxProperties();
+    }
+
+    /**
+     * Java Docker 沙箱容器池配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.pool.java")
+    public ContainerPoolProperties javaContainerPoolProperties(){
+        return new ContainerPoolProperties();
+    }
+
+    /**
+     * C++ 常驻编译容器配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.compile-worker.cpp")
+    public CompileWorkerProperties cppCompileWorkerProperties(){
+        return new CompileWorkerProperties();
+    }
+
+    /**
+     * 编译缓存配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.compile-cache")
+    public CompileCacheProperties compileCacheProperties(){
+        return new CompileCacheProperties();
+    }
+
+    /**
+     * 异步执行任务配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.async-job")
+    public AsyncJobProperties asyncJobProperties(){
+        return new AsyncJobProperties();
+    }
+
+    /**
+     * 工作目录配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.workspace")
+    public WorkspaceProperties workspaceProperties(){
+        return new WorkspaceProperties();
+    }
+
+    /**
+     * Docker 客户端配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.docker")
+    public DockerClientProperties dockerClientProperties(){
+        return new DockerClientProperties();
+    }
+
+    /**
+     * 所有沙箱共用的 Docker 客户端
+     */
+    @Bean
+    @Primary
+    public DockerClient dockerClient(DockerClientProperties dockerClientProperties){
+        return DockerCommonUtils.createDockerClient(dockerClientProperties);
+    }
+
+    /**
+     * 向 exec 写入标准输入用的 Docker 客户端，只用于启动带标准输入的 exec
+     */
+    @Bean
+    public DockerClient stdinDockerClient(DockerClientProperties dockerClientProperties){
+        return DockerCommonUtils.createStdinDockerClient(dockerClientProperties);
+    }
+
+    /**
+     * 沙箱镜像准备配置
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "codebox.image-bootstrap")
+    public ImageBootstrapProperties imageBootstrapProperties(){
+        return new ImageBootstrapProperties();
+    }
+
+    @Bean
+    public ImageBootstrap imageBootstrap(DockerClient dockerClient, ImageBootstrapProperties imageBootstrapProperties){
+        return new ImageBootstrap(dockerClient, imageBootstrapProperties);
+    }
+
+    /**
+     * 镜像准备进度，所有镜像就绪前健康检查为 OUT_OF_SERVICE
+     */
+    @Bean
+    public HealthIndicator imageHealthIndicator(ImageBootstrap imageBootstrap){
+        return imageBootstrap::health;
+    }
+
+    @Bean
+    public CompileCache compileCache(CompileCacheProperties compileCacheProperties){
+        return new CompileCache(compileCacheProperties);
+    }
+
+    @Bean
+    public WorkspaceManager workspaceManager(WorkspaceProperties workspaceProperties){
+        return new WorkspaceManager(workspaceProperties);
+    }
+}
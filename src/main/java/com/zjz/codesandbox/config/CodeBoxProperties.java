@@ -0,0 +1,65 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 代码沙箱配置
+ */
+@Data
+public class CodeBoxProperties {
+
+    /**
+     * 编译方式，见 JavaCompileModeEnum
+     */
+    private String compileMode = "process";
+
+    /**
+     * 进程内编译参数
+     */
+    private List<String> compileOptions = new ArrayList<>();
+
+    /**
+     * 运行方式，见 JavaRunModeEnum
+     */
+    private String runMode = "per_case";
+
+    /**
+     * 同一次提交内同时运行的测试用例数，Docker 沙箱按该数量设置容器的配额：每个用例一个 CPU 与 caseMemory 内存
+     * 并行运行时每个用例统计到的内存与 CPU 为其运行期间整个容器的用量
+     */
+    private int parallelism = 1;
+
+    /**
+     * 单个测试用例的内存上限 字节，Docker 沙箱的容器内存上限为 caseMemory * parallelism；
+     * Java 用例（逐个运行与批量运行）的堆上限为其 3/4
+     */
+    private long caseMemory = 256 * 1024 * 1024L;
+
+    /**
+     * 单个测试用例标准输出与错误输出各自的字节上限，超出时终止程序并返回 output limit exceeded
+     */
+    private long outputLimit = 1024 * 1024L;
+
+    /**
+     * 程序输出的编码
+     */
+    private String outputCharset = "utf-8";
+
+    /**
+     * 同时执行的提交数上限
+     */
+    private int maxConcurrent = 4;
+
+    /**
+     * 排队等待执行的提交数上限，队列已满时直接返回繁忙
+     */
+    private int queueCapacity = 32;
+
+    /**
+     * 排队等待超时时间 ms
+     */
+    private long queueTimeout = 10000L;
+}
@@ -0,0 +1,30 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+/**
+ * 编译缓存配置
+ */
+@Data
+public class CompileCacheProperties {
+
+    /**
+     * 是否启用编译缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存根目录，为空时使用 user.dir/compilecache
+     */
+    private String rootDir;
+
+    /**
+     * 缓存占用磁盘上限 字节
+     */
+    private long maxBytes = 256 * 1024 * 1024L;
+
+    /**
+     * 缓存条目上限
+     */
+    private int maxEntries = 10000;
+}
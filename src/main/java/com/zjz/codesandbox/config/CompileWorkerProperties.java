@@ -0,0 +1,74 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 常驻编译容器配置
+ */
+@Data
+public class CompileWorkerProperties {
+
+    /**
+     * 常驻编译容器数，每个编译容器同一时间只执行一个编译任务
+     */
+    private int workers = 4;
+
+    /**
+     * 单个编译任务的超时时间 ms
+     */
+    private long compileTimeout = 10000L;
+
+    /**
+     * 单个编译任务的虚拟内存上限 字节，通过 ulimit -v 限制
+     */
+    private long jobMemory = 1024 * 1024 * 1024L;
+
+    /**
+     * 编译容器的内存上限 字节
+     */
+    private long workerMemory = 1024 * 1024 * 1024L;
+
+    /**
+     * 等待空闲编译名额的最长时间 ms
+     */
+    private long acquireTimeout = 10000L;
+
+    /**
+     * 编译输出的字节上限
+     */
+    private long outputLimit = 64 * 1024L;
+
+    /**
+     * 编译容器健康检查的间隔 ms
+     */
+    private long maintainInterval = 15000L;
+
+    /**
+     * 编译配置，名称 -> 编译参数，请求通过 compileProfile 选择
+     */
+    private Map<String, String> profiles = new LinkedHashMap<>();
+
+    /**
+     * 请求未指定编译配置时使用的配置名称
+     */
+    private String defaultProfile = "cpp17";
+
+    /**
+     * 需要预编译的头文件，按编译配置各预编译一次，为空时不使用预编译头
+     */
+    private List<String> precompiledHeaders = new ArrayList<>();
+
+    /**
+     * 预编译单个编译配置的头文件的超时时间 ms
+     */
+    private long precompileTimeout = 120000L;
+
+    public CompileWorkerProperties() {
+        profiles.put("cpp17", "-O2 -std=c++17");
+    }
+}
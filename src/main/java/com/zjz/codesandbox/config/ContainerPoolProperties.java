@@ -0,0 +1,40 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+/**
+ * 容器池配置
+ */
+@Data
+public class ContainerPoolProperties {
+
+    /**
+     * 最少保持的空闲容器数
+     */
+    private int minIdle = 2;
+
+    /**
+     * 容器总数上限
+     */
+    private int maxTotal = 8;
+
+    /**
+     * 获取容器的最长等待时间 ms
+     */
+    private long leaseTimeout = 10000L;
+
+    /**
+     * 空闲容器超过该时间被回收 ms
+     */
+    private long idleTimeout = 60000L;
+
+    /**
+     * 空闲回收与健康检查的间隔 ms
+     */
+    private long maintainInterval = 15000L;
+
+    /**
+     * 归还容器时重置命令的超时时间 ms
+     */
+    private long resetTimeout = 2000L;
+}
@@ -0,0 +1,41 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+/**
+ * Docker 客户端配置
+ */
+@Data
+public class DockerClientProperties {
+
+    /**
+     * Docker 守护进程地址，为空时使用 DOCKER_HOST 环境变量或平台默认地址
+     */
+    private String dockerHost;
+
+    /**
+     * 连接池的连接数上限，空闲连接在调用之间复用
+     */
+    private int maxConnections = 100;
+
+    /**
+     * 建立连接的超时时间 ms
+     */
+    private long connectionTimeout = 3000L;
+
+    /**
+     * 等待响应的超时时间 ms，0 表示不限制；exec 与拉取镜像等流式调用由调用方自行控制超时
+     */
+    private long responseTimeout = 0L;
+
+    /**
+     * 带标准输入的 exec 所用 Netty 客户端建立连接的超时时间 ms，该客户端每次调用单独建立连接，不使用连接池
+     */
+    private int stdinConnectTimeout = 3000;
+
+    /**
+     * 带标准输入的 exec 所用 Netty 客户端的读超时 ms，0 表示不限制；用例超时由看门狗控制，
+     * 设置时需大于用例超时时间，否则长时间没有输出的用例会被提前断开
+     */
+    private int stdinReadTimeout = 0;
+}
@@ -0,0 +1,25 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+/**
+ * 沙箱镜像准备配置
+ */
+@Data
+public class ImageBootstrapProperties {
+
+    /**
+     * 同时准备的镜像数
+     */
+    private int threads = 2;
+
+    /**
+     * 拉取单个镜像的超时时间 ms
+     */
+    private long pullTimeout = 10 * 60 * 1000L;
+
+    /**
+     * 镜像准备失败后的重试间隔 ms
+     */
+    private long retryInterval = 30000L;
+}
@@ -0,0 +1,34 @@
+package com.zjz.codesandbox.config;
+
+import lombok.Data;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 用户代码工作目录配置
+ */
+@Data
+public class WorkspaceProperties {
+
+    /**
+     * 工作目录根目录，建议使用 tmpfs；为空时优先使用 /dev/shm/codebox，不可写时使用 user.dir/usercode；
+     * 各进程在其下使用各自的实例目录
+     */
+    private String rootDir;
+
+    /**
+     * 每种语言复用的目录槽数量，超出时临时创建目录，用完即删
+     */
+    private int slotsPerLanguage = 16;
+
+    /**
+     * 启动时预先创建目录槽的语言
+     */
+    private List<String> languages = Arrays.asList("java", "cpp");
+
+    /**
+     * 单个工作目录的大小上限 字节，包括代码、输入与编译产物，小于等于 0 时不限制
+     */
+    private long maxBytes = 64 * 1024 * 1024L;
+}
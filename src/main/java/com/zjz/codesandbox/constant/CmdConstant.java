@@ -11,9 +11,36 @@ public interface CmdConstant {
     String JAVA_COMPILE_CMD = "javac -encoding utf-8 %s";
 
     /**
-     * Java 运行命令
+     * Java 运行命令 参数依次为 最大堆参数 类路径
      */
-    String JAVA_RUN_CMD = "java -Xmx256M -cp %s Main";
+    String JAVA_RUN_CMD = "java %s -cp %s Main";
+
+    /**
+     * Java 批量运行命令 参数依次为 最大堆参数 JVM 参数 类路径 用户代码目录 用例数量 单个用例超时时间 单个用例输出字节上限 失败用例数上限
+     */
+    String JAVA_BATCH_RUN_CMD = "java %s %s-cp %s BatchRunner %s %d %d %d %d";
+
+    /**
+     * Java 运行命令的最大堆参数 参数为 堆大小 MB
+     */
+    String JAVA_HEAP_OPTION = "-Xmx%dm";
+
+    /**
+     * 容器内 C++ 运行命令，按用例限制虚拟内存后直接替换为程序本身 参数依次为 虚拟内存上限 KB 可执行文件
+     */
+    String CPP_DOCKER_RUN_CMD = "ulimit -v %d && exec %s";
+
+    /**
+     * C++ 编译命令，在编译容器内的工作目录中执行 参数为 编译参数
+     */
+    String CPP_COMPILE_CMD = "g++ %s -o main.exe Main.cpp";
+
+    /**
+     * C++ 头文件预编译命令，在预编译头目录中执行 参数依次为 头文件 编译参数 头文件 头文件 编译参数 头文件 头文件 头文件
+     * 先通过 -H 找到系统头文件并复制到预编译头目录，再生成 .gch，编译时以 -I 引入该目录
+     */
+    String CPP_PRECOMPILE_CMD = "SRC=$(echo '#include <%s>' | g++ %s -x c++ -E -H - 2>&1 >/dev/null | head -n 1 | cut -d' ' -f2)"
+            + " && cp \"$SRC\" '%s' && g++ %s -x c++-header '%s' -o '%s.gch.tmp' && mv '%s.gch.tmp' '%s.gch'";
 
     /**
      * 编译
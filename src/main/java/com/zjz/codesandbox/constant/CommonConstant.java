@@ -10,4 +10,24 @@ public interface CommonConstant {
      * 超时常量
      */
     long TIME_OUT = 5000L;
+
+    /**
+     * 测试用例运行超时时的输出
+     */
+    String TIME_OUT_MESSAGE = "process terminated due to timeout";
+
+    /**
+     * 单个测试用例默认的输出字节上限 1MB
+     */
+    long OUTPUT_LIMIT = 1024 * 1024L;
+
+    /**
+     * 测试用例输出超出上限时的输出
+     */
+    String OUTPUT_LIMIT_MESSAGE = "output limit exceeded";
+
+    /**
+     * 测试用例按执行策略跳过时的输出
+     */
+    String SKIPPED_MESSAGE = "skipped due to earlier failures";
 }
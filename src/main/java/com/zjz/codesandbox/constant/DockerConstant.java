@@ -26,14 +26,9 @@ public interface DockerConstant {
     String DOCKER_CODE_PATH  = "/app";
 
     /**
-     * 测试用例输入临时文件
+     * 每个并行运行的用例分配的 CPU 配额，单位为十亿分之一个 CPU
      */
-    String DOCKER_TEST_CASE_INPUT = "/input.txt";
-
-    /**
-     * 运行环境的内存大小 256MB
-     */
-    Long DOCKER_JAVA_MEMORY = 256 * 1000 * 1000L;
+    Long DOCKER_CASE_NANO_CPUS = 1000 * 1000 * 1000L;
 
 
 }
@@ -10,6 +10,16 @@ public interface FileConstant {
      */
     String GLOBAL_CODE_DIR_NAME = "usercode";
 
+    /**
+     * 编译缓存目录
+     */
+    String COMPILE_CACHE_DIR_NAME = "compilecache";
+
+    /**
+     * 标记目录由本服务创建的文件，只清空带有该文件的目录
+     */
+    String OWNER_MARKER_NAME = ".codebox-owned";
+
     /**
      * 代码文件名
      */
@@ -1,26 +1,53 @@
 package com.zjz.codesandbox.controller;
 
+import cn.hutool.core.util.ObjectUtil;
+import com.zjz.codesandbox.model.admission.AdmissionLimitRequest;
+import com.zjz.codesandbox.model.admission.AdmissionMetrics;
 import com.zjz.codesandbox.model.enums.CodeBoxExecuteEnum;
+import com.zjz.codesandbox.model.enums.ExecuteJobStatusEnum;
 import com.zjz.codesandbox.model.execute.ExecuteRequest;
 import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.model.job.ExecuteJob;
+import com.zjz.codesandbox.sandbox.ExecuteCodeTemplate;
+import com.zjz.codesandbox.sandbox.ExecuteListener;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.image.ImageBootstrap;
 import com.zjz.codesandbox.sandbox.impl.cpp.CppDockerCodeBox;
 import com.zjz.codesandbox.sandbox.impl.java.JavaDockerCodeBox;
 import com.zjz.codesandbox.sandbox.impl.java.JavaNativeCodeBox;
+import com.zjz.codesandbox.sandbox.job.ExecuteJobManager;
+import com.zjz.codesandbox.sandbox.job.SseExecuteListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * ApiController
  */
 @RestController
 @RequestMapping("/api")
+@Slf4j
 public class ApiController {
 
     // 定义鉴权请求头和密钥
@@ -38,6 +65,12 @@ public class ApiController {
     @Resource
     private CppDockerCodeBox cppDockerCodeBox;
 
+    @Resource
+    private ExecuteJobManager executeJobManager;
+
+    @Resource
+    private ImageBootstrap imageBootstrap;
+
 
     /**
      * 权限校验
@@ -76,7 +109,97 @@ public class ApiController {
                     .message("请求体为空")
                     .build();
         }
-        return executor.apply(executeRequest);
+        ExecuteResponse executeResponse = executor.apply(executeRequest);
+        if (response != null && CodeBoxExecuteEnum.BUSY.getValue().equals(executeResponse.getStatus())) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        }
+        if (response != null && CodeBoxExecuteEnum.NOT_READY.getValue().equals(executeResponse.getStatus())) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        return executeResponse;
+    }
+
+    /**
+     * 统一的异步提交逻辑，立即返回任务 id
+     * @param executeRequest 执行请求体
+     * @param callbackUrl 完成回调地址（可选）
+     * @param request 请求对象
+     * @param response 响应对象
+     * @param executor 执行逻辑的函数接口
+     * @return 已提交的任务
+     */
+    private ExecuteJob submitJob(ExecuteRequest executeRequest, String callbackUrl,
+                                 HttpServletRequest request, HttpServletResponse response,
+                                 Function<ExecuteRequest, ExecuteResponse> executor) {
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return ExecuteJob.builder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message("鉴权失败")
+                    .build();
+        }
+        if (executeRequest == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return ExecuteJob.builder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message("请求体为空")
+                    .build();
+        }
+        try {
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            return executeJobManager.submit(executeRequest, executor, callbackUrl);
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return ExecuteJob.builder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message(e.getMessage())
+                    .build();
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            return ExecuteJob.builder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message("The sandbox is busy, please try again later")
+                    .build();
+        }
+    }
+
+    /**
+     * 统一的流式执行逻辑，通过事件流推送各阶段与各测试用例的结果
+     * @param executeRequest 执行请求体
+     * @param request 请求对象
+     * @param response 响应对象
+     * @param executor 带监听器的执行逻辑
+     * @return 事件流
+     */
+    private SseEmitter streamExecute(ExecuteRequest executeRequest,
+                                     HttpServletRequest request, HttpServletResponse response,
+                                     BiFunction<ExecuteRequest, ExecuteListener, ExecuteResponse> executor) {
+        SseEmitter emitter = new SseEmitter(executeJobManager.getStreamTimeout());
+        SseExecuteListener listener = new SseExecuteListener(emitter);
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            listener.fail("鉴权失败");
+            return emitter;
+        }
+        if (executeRequest == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            listener.fail("请求体为空");
+            return emitter;
+        }
+        try {
+            executeJobManager.execute(() -> {
+                try {
+                    listener.complete(executor.apply(executeRequest, listener));
+                } catch (Exception e) {
+                    log.error("Stream execute failed", e);
+                    listener.fail(e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            listener.fail("The sandbox is busy, please try again later");
+        }
+        return emitter;
     }
 
     /**
@@ -93,8 +216,8 @@ public class ApiController {
      */
     @PostMapping("/docker/java")
     public ExecuteResponse execJavaCodeWithDocker(
-            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request) {
-        return executeCode(executeRequest, request, null, javaDockerCodeBox::executeCode);
+            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request, HttpServletResponse response) {
+        return executeCode(executeRequest, request, response, javaDockerCodeBox::executeCode);
     }
 
     /**
@@ -102,8 +225,156 @@ public class ApiController {
      */
     @PostMapping("/docker/cpp")
     public ExecuteResponse execCppCodeWithDocker(
-            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request) {
-        return executeCode(executeRequest, request, null, cppDockerCodeBox::executeCode);
+            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request, HttpServletResponse response) {
+        return executeCode(executeRequest, request, response, cppDockerCodeBox::executeCode);
+    }
+
+    /**
+     *  Java 原生代码沙箱异步接口
+     */
+    @PostMapping("/async/native/java")
+    public ExecuteJob submitJavaCodeWithNative(
+            @RequestBody ExecuteRequest executeRequest, @RequestParam(required = false) String callbackUrl,
+            HttpServletRequest request, HttpServletResponse response) {
+        return submitJob(executeRequest, callbackUrl, request, response, javaNativeCodeBox::executeCode);
+    }
+
+    /**
+     *  Java Docker 代码沙箱异步接口
+     */
+    @PostMapping("/async/docker/java")
+    public ExecuteJob submitJavaCodeWithDocker(
+            @RequestBody ExecuteRequest executeRequest, @RequestParam(required = false) String callbackUrl,
+            HttpServletRequest request, HttpServletResponse response) {
+        return submitJob(executeRequest, callbackUrl, request, response, javaDockerCodeBox::executeCode);
+    }
+
+    /**
+     *  Cpp Docker 代码沙箱异步接口
+     */
+    @PostMapping("/async/docker/cpp")
+    public ExecuteJob submitCppCodeWithDocker(
+            @RequestBody ExecuteRequest executeRequest, @RequestParam(required = false) String callbackUrl,
+            HttpServletRequest request, HttpServletResponse response) {
+        return submitJob(executeRequest, callbackUrl, request, response, cppDockerCodeBox::executeCode);
+    }
+
+    /**
+     *  查询异步任务状态与结果
+     */
+    @GetMapping("/async/jobs/{jobId}")
+    public ExecuteJob getJob(@PathVariable String jobId, HttpServletRequest request, HttpServletResponse response) {
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return ExecuteJob.builder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message("鉴权失败")
+                    .build();
+        }
+        ExecuteJob job = executeJobManager.getJob(jobId);
+        if (job == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return ExecuteJob.builder()
+                    .jobId(jobId)
+                    .message("任务不存在或结果已过期")
+                    .build();
+        }
+        return job;
+    }
+
+    /**
+     *  Java 原生代码沙箱流式接口
+     */
+    @PostMapping(value = "/stream/native/java", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJavaCodeWithNative(
+            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request, HttpServletResponse response) {
+        return streamExecute(executeRequest, request, response, javaNativeCodeBox::exec);
+    }
+
+    /**
+     *  Java Docker 代码沙箱流式接口
+     */
+    @PostMapping(value = "/stream/docker/java", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJavaCodeWithDocker(
+            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request, HttpServletResponse response) {
+        return streamExecute(executeRequest, request, response, javaDockerCodeBox::exec);
+    }
+
+    /**
+     *  Cpp Docker 代码沙箱流式接口
+     */
+    @PostMapping(value = "/stream/docker/cpp", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCppCodeWithDocker(
+            @RequestBody ExecuteRequest executeRequest, HttpServletRequest request, HttpServletResponse response) {
+        return streamExecute(executeRequest, request, response, cppDockerCodeBox::exec);
+    }
+
+    /**
+     *  查看各沙箱的准入控制指标（并发数、排队深度与等待时间）
+     */
+    @GetMapping("/admission")
+    public List<AdmissionMetrics> getAdmissionMetrics(HttpServletRequest request, HttpServletResponse response) {
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+        return getAdmissionLimiters().values().stream()
+                .map(AdmissionLimiter::getMetrics)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     *  运行时调整沙箱的准入控制限制
+     */
+    @PutMapping("/admission/{name}")
+    public AdmissionMetrics updateAdmissionLimits(@PathVariable String name,
+                                                  @RequestBody AdmissionLimitRequest limitRequest,
+                                                  HttpServletRequest request, HttpServletResponse response) {
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+        AdmissionLimiter limiter = getAdmissionLimiters().get(name);
+        if (limiter == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return null;
+        }
+        AdmissionMetrics current = limiter.getMetrics();
+        limiter.updateLimits(
+                ObjectUtil.defaultIfNull(limitRequest.getMaxConcurrent(), current.getMaxConcurrent()),
+                ObjectUtil.defaultIfNull(limitRequest.getQueueCapacity(), current.getQueueCapacity()),
+                ObjectUtil.defaultIfNull(limitRequest.getQueueTimeout(), current.getQueueTimeout()));
+        return limiter.getMetrics();
+    }
+
+    /**
+     *  查看各沙箱是否已就绪（镜像已准备且容器已预热）以及镜像准备进度
+     */
+    @GetMapping("/readiness")
+    public Map<String, Object> getReadiness(HttpServletRequest request, HttpServletResponse response) {
+        if (!auth(request)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+        Map<String, String> boxes = new LinkedHashMap<>();
+        for (ExecuteCodeTemplate codeBox : Arrays.asList(javaNativeCodeBox, javaDockerCodeBox, cppDockerCodeBox)) {
+            boxes.put(codeBox.getBoxName(), codeBox.getBoxStatus().getValue());
+        }
+        Map<String, Object> readiness = new LinkedHashMap<>();
+        readiness.put("boxes", boxes);
+        readiness.put("images", imageBootstrap.getStatuses());
+        return readiness;
+    }
+
+    private Map<String, AdmissionLimiter> getAdmissionLimiters() {
+        Map<String, AdmissionLimiter> limiters = new LinkedHashMap<>();
+        for (ExecuteCodeTemplate codeBox : Arrays.asList(javaNativeCodeBox, javaDockerCodeBox, cppDockerCodeBox)) {
+            AdmissionLimiter limiter = codeBox.getAdmissionLimiter();
+            if (limiter != null) {
+                limiters.put(limiter.getName(), limiter);
+            }
+        }
+        return limiters;
     }
 
 }
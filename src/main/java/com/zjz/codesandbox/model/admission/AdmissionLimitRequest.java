@@ -0,0 +1,31 @@
+package com.zjz.codesandbox.model.admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 调整准入控制限制的请求，为空的字段保持不变
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionLimitRequest {
+
+    /**
+     * 同时执行的提交数上限
+     */
+    private Integer maxConcurrent;
+
+    /**
+     * 排队的提交数上限
+     */
+    private Integer queueCapacity;
+
+    /**
+     * 排队等待超时时间 ms
+     */
+    private Long queueTimeout;
+}
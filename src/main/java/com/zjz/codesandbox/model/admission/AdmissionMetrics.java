@@ -0,0 +1,71 @@
+package com.zjz.codesandbox.model.admission;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 准入控制指标
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdmissionMetrics {
+
+    /**
+     * 沙箱名称
+     */
+    private String name;
+
+    /**
+     * 同时执行的提交数上限
+     */
+    private Integer maxConcurrent;
+
+    /**
+     * 排队的提交数上限
+     */
+    private Integer queueCapacity;
+
+    /**
+     * 排队等待超时时间 ms
+     */
+    private Long queueTimeout;
+
+    /**
+     * 正在执行的提交数
+     */
+    private Integer running;
+
+    /**
+     * 正在排队的提交数
+     */
+    private Integer queueDepth;
+
+    /**
+     * 获得许可的提交数
+     */
+    private Long admitted;
+
+    /**
+     * 因队列已满被拒绝的提交数
+     */
+    private Long rejected;
+
+    /**
+     * 排队超时的提交数
+     */
+    private Long timedOut;
+
+    /**
+     * 排队提交的平均等待时间 ms
+     */
+    private Long averageQueueWaitTime;
+
+    /**
+     * 最长排队等待时间 ms
+     */
+    private Long maxQueueWaitTime;
+}
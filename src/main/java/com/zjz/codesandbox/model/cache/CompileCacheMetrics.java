@@ -0,0 +1,56 @@
+package com.zjz.codesandbox.model.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 编译缓存指标
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompileCacheMetrics {
+
+    /**
+     * 命中次数
+     */
+    private Long hits;
+
+    /**
+     * 未命中次数
+     */
+    private Long misses;
+
+    /**
+     * 命中率
+     */
+    private Double hitRatio;
+
+    /**
+     * 命中时直接复用的编译产物字节数
+     */
+    private Long bytesSaved;
+
+    /**
+     * 命中时节省的编译时间 ms
+     */
+    private Long compileTimeSaved;
+
+    /**
+     * 当前缓存条目数
+     */
+    private Integer entries;
+
+    /**
+     * 当前缓存占用字节数
+     */
+    private Long bytes;
+
+    /**
+     * 被淘汰的条目数
+     */
+    private Long evictions;
+}
@@ -0,0 +1,36 @@
+package com.zjz.codesandbox.model.compile;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 编译诊断信息
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompileDiagnostic {
+
+    /**
+     * 诊断级别 ERROR / WARNING 等
+     */
+    private String kind;
+
+    /**
+     * 行号
+     */
+    private Long line;
+
+    /**
+     * 列号
+     */
+    private Long column;
+
+    /**
+     * 诊断内容
+     */
+    private String message;
+}
@@ -1,10 +1,13 @@
 package com.zjz.codesandbox.model.dto;
 
+import com.zjz.codesandbox.model.compile.CompileDiagnostic;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 /**
  * @Description: 代码编译响应消息
  */
@@ -23,4 +26,9 @@ public class CompileMessage {
      */
     private String reason;
 
+    /**
+     * 结构化的编译诊断信息，仅进程内编译时提供
+     */
+    private List<CompileDiagnostic> diagnostics;
+
 }
@@ -11,7 +11,9 @@ public enum CodeBoxExecuteEnum {
 
     SUCCESS("执行成功", "success"),
     COMPILE_FAILED("编译失败", "compile_failed"),
-    FAILED("执行失败", "failed");
+    FAILED("执行失败", "failed"),
+    BUSY("沙箱繁忙", "busy"),
+    NOT_READY("沙箱未就绪", "not_ready");
 
     private final String text;
 
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 
 public enum CodeBoxStatusEnum {
 
+    STARTING("启动中", "starting"),
     RUNNING("运行中", "running"),
     ERROR("错误", "error"),
     CRASH("宕机", "crash");
@@ -0,0 +1,60 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 异步执行任务状态枚举
+ */
+public enum ExecuteJobStatusEnum {
+
+    QUEUED("排队中", "queued"),
+    RUNNING("运行中", "running"),
+    FINISHED("已完成", "finished"),
+    FAILED("执行异常", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    ExecuteJobStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static ExecuteJobStatusEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ExecuteJobStatusEnum anEnum : ExecuteJobStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
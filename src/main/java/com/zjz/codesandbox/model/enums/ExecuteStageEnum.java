@@ -0,0 +1,63 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 代码执行阶段枚举
+ */
+public enum ExecuteStageEnum {
+
+    PRE_EXEC("执行前校验", "pre_exec"),
+    SAVE_CODE_FILE("保存代码文件", "save_code_file"),
+    COMPILE("编译代码", "compile"),
+    PRE_RUN("运行前准备", "pre_run"),
+    RUN("运行代码", "run"),
+    DELETE_FILE("删除文件", "delete_file"),
+    DELETE_CONTAINER("删除容器", "delete_container");
+
+    private final String text;
+
+    private final String value;
+
+    ExecuteStageEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static ExecuteStageEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ExecuteStageEnum anEnum : ExecuteStageEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
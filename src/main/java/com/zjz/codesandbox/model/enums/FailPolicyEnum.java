@@ -0,0 +1,59 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 测试用例失败后的执行策略枚举
+ */
+public enum FailPolicyEnum {
+
+    RUN_ALL("运行全部测试用例", "run_all"),
+    FAIL_FAST("第一个失败的测试用例后停止", "fail_fast"),
+    MAX_FAILURES("失败的测试用例达到 maxFailures 个后停止", "max_failures");
+
+    private final String text;
+
+    private final String value;
+
+    FailPolicyEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static FailPolicyEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (FailPolicyEnum anEnum : FailPolicyEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,60 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 沙箱镜像准备状态
+ */
+public enum ImageStatusEnum {
+
+    PENDING("等待准备", "pending"),
+    PULLING("拉取中", "pulling"),
+    READY("已就绪", "ready"),
+    FAILED("准备失败", "failed");
+
+    private final String text;
+
+    private final String value;
+
+    ImageStatusEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static ImageStatusEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (ImageStatusEnum anEnum : ImageStatusEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,58 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Java 编译方式枚举
+ */
+public enum JavaCompileModeEnum {
+
+    PROCESS("启动 javac 进程编译", "process"),
+    IN_PROCESS("使用 javax.tools 进程内编译", "in_process");
+
+    private final String text;
+
+    private final String value;
+
+    JavaCompileModeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static JavaCompileModeEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (JavaCompileModeEnum anEnum : JavaCompileModeEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
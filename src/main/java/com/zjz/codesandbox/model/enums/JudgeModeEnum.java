@@ -0,0 +1,60 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 输出比较方式枚举
+ */
+public enum JudgeModeEnum {
+
+    EXACT("逐字节一致，仅统一换行符", "exact"),
+    IGNORE_TRAILING_SPACE("忽略行尾空白与末尾空行", "ignore_trailing_space"),
+    TOKEN("按空白分隔逐个比较", "token"),
+    FLOAT("按空白分隔逐个比较，数值在误差范围内视为一致", "float");
+
+    private final String text;
+
+    private final String value;
+
+    JudgeModeEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static JudgeModeEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (JudgeModeEnum anEnum : JudgeModeEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,63 @@
+package com.zjz.codesandbox.model.enums;
+
+
+import org.springframework.util.ObjectUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 测试用例判题结果枚举
+ */
+public enum JudgeVerdictEnum {
+
+    ACCEPTED("答案正确", "AC"),
+    WRONG_ANSWER("答案错误", "WA"),
+    TIME_LIMIT_EXCEEDED("运行超时", "TLE"),
+    MEMORY_LIMIT_EXCEEDED("内存超限", "MLE"),
+    OUTPUT_LIMIT_EXCEEDED("输出超限", "OLE"),
+    RUNTIME_ERROR("运行错误", "RE"),
+    SKIPPED("按执行策略跳过", "SKIPPED");
+
+    private final String text;
+
+    private final String value;
+
+    JudgeVerdictEnum(String text, String value) {
+        this.text = text;
+        this.value = value;
+    }
+
+    /**
+     * 获取值列表
+     *
+     */
+    public static List<String> getValues() {
+        return Arrays.stream(values()).map(item -> item.value).collect(Collectors.toList());
+    }
+
+    /**
+     * 根据 value 获取枚举
+     *
+     */
+    public static JudgeVerdictEnum getEnumByValue(String value) {
+        if (ObjectUtils.isEmpty(value)) {
+            return null;
+        }
+        for (JudgeVerdictEnum anEnum : JudgeVerdictEnum.values()) {
+            if (anEnum.value.equals(value)) {
+                return anEnum;
+            }
+        }
+        return null;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,26 @@
+package com.zjz.codesandbox.model.execute;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个测试用例的运行结果
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CaseResult {
+
+    /**
+     * 用例输出，已去掉换行符
+     */
+    private String output;
+
+    /**
+     * 用例执行信息
+     */
+    private ExecuteInfo executeInfo;
+}
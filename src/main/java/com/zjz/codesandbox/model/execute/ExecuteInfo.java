@@ -21,4 +21,19 @@ public class ExecuteInfo {
      * 执行使用内存大小 kb
      */
     private Long memory;
+
+    /**
+     * CPU 时间 ms
+     */
+    private Long cpuTime;
+
+    /**
+     * 分配内存大小 kb
+     */
+    private Long allocatedMemory;
+
+    /**
+     * 判题结果，取 JudgeVerdictEnum 的值，请求未携带期望输出时为空
+     */
+    private String verdict;
 }
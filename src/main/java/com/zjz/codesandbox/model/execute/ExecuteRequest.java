@@ -31,4 +31,36 @@ public class ExecuteRequest {
      */
     private String language;
 
+    /**
+     * 编译配置名称，目前只对 C++ 生效，取 codebox.compile-worker.cpp.profiles 中配置的名称，为空时使用默认配置
+     */
+    private String compileProfile;
+
+    /**
+     * 各测试用例的期望输出，为空时不判题，只返回程序输出；
+     * 判题时在运行过程中流式比较，outputs 不再返回程序的标准输出
+     */
+    private List<String> expectedOutputs;
+
+    /**
+     * 输出比较方式，取 JudgeModeEnum 的值，默认 ignore_trailing_space
+     */
+    private String judgeMode;
+
+    /**
+     * float 比较方式的误差上限，绝对误差或相对误差不超过该值即视为一致，默认 1e-6
+     */
+    private Double epsilon;
+
+    /**
+     * 测试用例失败后的执行策略，取 FailPolicyEnum 的值，默认 run_all；
+     * 判题时结果不是 AC 的用例视为失败，否则运行失败的用例视为失败，之后未开始运行的用例被跳过
+     */
+    private String failPolicy;
+
+    /**
+     * max_failures 策略允许的失败用例数
+     */
+    private Integer maxFailures;
+
 }
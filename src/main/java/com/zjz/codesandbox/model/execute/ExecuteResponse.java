@@ -1,5 +1,6 @@
 package com.zjz.codesandbox.model.execute;
 
+import com.zjz.codesandbox.model.compile.CompileDiagnostic;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -36,6 +37,9 @@ public class ExecuteResponse {
      */
     private String status;
 
-
+    /**
+     * 编译诊断信息（错误与警告），仅进程内编译时有值
+     */
+    private List<CompileDiagnostic> diagnostics;
 
 }
@@ -0,0 +1,41 @@
+package com.zjz.codesandbox.model.image;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 沙箱镜像准备进度
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImageStatus {
+
+    /**
+     * 镜像名称
+     */
+    private String image;
+
+    /**
+     * 准备状态，ImageStatusEnum 的值
+     */
+    private String status;
+
+    /**
+     * 最近一条拉取进度或失败原因
+     */
+    private String progress;
+
+    /**
+     * 已尝试的次数
+     */
+    private Integer attempts;
+
+    /**
+     * 从开始准备到就绪或当前的耗时 ms
+     */
+    private Long elapsed;
+}
@@ -0,0 +1,32 @@
+package com.zjz.codesandbox.model.job;
+
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式推送的测试用例完成事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteCaseEvent {
+
+    /**
+     * 用例序号，对应 ExecuteRequest.inputs 的下标
+     */
+    private Integer index;
+
+    /**
+     * 用例输出
+     */
+    private String output;
+
+    /**
+     * 用例执行信息
+     */
+    private ExecuteInfo executeInfo;
+}
@@ -0,0 +1,52 @@
+package com.zjz.codesandbox.model.job;
+
+import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 异步执行任务
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteJob {
+
+    /**
+     * 任务 id
+     */
+    private String jobId;
+
+    /**
+     * 任务状态，见 ExecuteJobStatusEnum
+     */
+    private String status;
+
+    /**
+     * 提交时间
+     */
+    private Long submitTime;
+
+    /**
+     * 开始执行时间
+     */
+    private Long startTime;
+
+    /**
+     * 结束时间
+     */
+    private Long finishTime;
+
+    /**
+     * 执行结果，任务结束后才有值
+     */
+    private ExecuteResponse response;
+
+    /**
+     * 任务信息
+     */
+    private String message;
+}
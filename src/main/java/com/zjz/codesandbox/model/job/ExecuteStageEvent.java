@@ -0,0 +1,39 @@
+package com.zjz.codesandbox.model.job;
+
+import com.zjz.codesandbox.model.compile.CompileDiagnostic;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 流式推送的阶段结束事件
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExecuteStageEvent {
+
+    /**
+     * 阶段，见 ExecuteStageEnum
+     */
+    private String stage;
+
+    /**
+     * 阶段耗时 ms
+     */
+    private Long cost;
+
+    /**
+     * 是否命中编译缓存，仅编译阶段有值
+     */
+    private Boolean compileCached;
+
+    /**
+     * 编译诊断信息，仅编译阶段且进程内编译时有值
+     */
+    private List<CompileDiagnostic> diagnostics;
+}
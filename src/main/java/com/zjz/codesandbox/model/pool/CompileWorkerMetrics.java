@@ -0,0 +1,61 @@
+package com.zjz.codesandbox.model.pool;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 常驻编译容器指标
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CompileWorkerMetrics {
+
+    /**
+     * 镜像名称
+     */
+    private String image;
+
+    /**
+     * 当前编译容器数
+     */
+    private Integer workers;
+
+    /**
+     * 正在执行的编译任务数
+     */
+    private Integer runningJobs;
+
+    /**
+     * 编译成功次数
+     */
+    private Long compiled;
+
+    /**
+     * 编译失败次数，不含超时
+     */
+    private Long failed;
+
+    /**
+     * 编译超时次数
+     */
+    private Long timeouts;
+
+    /**
+     * 需要等待编译名额的次数
+     */
+    private Long waitCount;
+
+    /**
+     * 等待编译名额超时的次数
+     */
+    private Long acquireTimeoutCount;
+
+    /**
+     * 因异常重建的编译容器数
+     */
+    private Long restarts;
+}
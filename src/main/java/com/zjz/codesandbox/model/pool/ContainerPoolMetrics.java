@@ -0,0 +1,76 @@
+package com.zjz.codesandbox.model.pool;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 容器池指标
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ContainerPoolMetrics {
+
+    /**
+     * 镜像名称
+     */
+    private String image;
+
+    /**
+     * 当前容器总数
+     */
+    private Integer total;
+
+    /**
+     * 当前空闲容器数
+     */
+    private Integer idle;
+
+    /**
+     * 当前被租用的容器数
+     */
+    private Integer leased;
+
+    /**
+     * 累计创建的容器数
+     */
+    private Long created;
+
+    /**
+     * 累计销毁的容器数
+     */
+    private Long destroyed;
+
+    /**
+     * 累计租用次数
+     */
+    private Long leaseCount;
+
+    /**
+     * 租用时需要等待的次数
+     */
+    private Long leaseWaitCount;
+
+    /**
+     * 租用超时次数
+     */
+    private Long leaseTimeoutCount;
+
+    /**
+     * 累计租用等待时间 ms
+     */
+    private Long leaseWaitTime;
+
+    /**
+     * 空闲回收的容器数
+     */
+    private Long evicted;
+
+    /**
+     * 健康检查失败的容器数
+     */
+    private Long unhealthy;
+}
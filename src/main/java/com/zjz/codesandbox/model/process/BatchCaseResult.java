@@ -0,0 +1,66 @@
+package com.zjz.codesandbox.model.process;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量运行器中单个测试用例的运行结果
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchCaseResult {
+
+    /**
+     * 用例序号
+     */
+    private Integer index;
+
+    /**
+     * 是否超时
+     */
+    private Boolean timeout;
+
+    /**
+     * 输出是否超出上限
+     */
+    private Boolean outputLimitExceeded;
+
+    /**
+     * 退出码
+     */
+    private Integer exitCode;
+
+    /**
+     * 执行时间 ms
+     */
+    private Long executeTime;
+
+    /**
+     * CPU 时间 ms
+     */
+    private Long cpuTime;
+
+    /**
+     * 分配内存 KB
+     */
+    private Long allocatedMemory;
+
+    /**
+     * 峰值堆内存 KB
+     */
+    private Long memoryUsage;
+
+    /**
+     * 标准输出
+     */
+    private String successMsg;
+
+    /**
+     * 错误输出
+     */
+    private String errorMsg;
+}
@@ -0,0 +1,36 @@
+package com.zjz.codesandbox.model.process;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 内存采样器开销指标
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MemorySamplerMetrics {
+
+    /**
+     * 采样方式 proc / cgroup / ps / tasklist
+     */
+    private String source;
+
+    /**
+     * 累计采样次数
+     */
+    private Long samples;
+
+    /**
+     * 累计采样耗时 us
+     */
+    private Long totalTime;
+
+    /**
+     * 平均单次采样耗时 us
+     */
+    private Double averageTime;
+}
@@ -36,4 +36,8 @@ public class ProcessMessage {
      */
     private Long memoryUsage;
 
+    /**
+     * 输出是否超出上限
+     */
+    private Boolean outputLimitExceeded;
 }
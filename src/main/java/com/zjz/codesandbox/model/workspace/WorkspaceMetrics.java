@@ -0,0 +1,56 @@
+package com.zjz.codesandbox.model.workspace;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 工作目录指标
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class WorkspaceMetrics {
+
+    /**
+     * 工作目录根目录
+     */
+    private String rootDir;
+
+    /**
+     * 当前目录槽总数
+     */
+    private Integer slots;
+
+    /**
+     * 当前空闲目录槽数
+     */
+    private Integer freeSlots;
+
+    /**
+     * 累计分配次数
+     */
+    private Long allocated;
+
+    /**
+     * 复用目录槽的分配次数
+     */
+    private Long slotHits;
+
+    /**
+     * 等待清理的工作目录数
+     */
+    private Integer pendingCleanups;
+
+    /**
+     * 清理失败被丢弃的目录槽数
+     */
+    private Long cleanupFailures;
+
+    /**
+     * 超出大小上限被拒绝的提交数
+     */
+    private Long quotaRejections;
+}
@@ -3,19 +3,28 @@ package com.zjz.codesandbox.sandbox;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Snowflake;
 import cn.hutool.core.util.IdUtil;
+import com.zjz.codesandbox.constant.CommonConstant;
 import com.zjz.codesandbox.constant.FileConstant;
 import com.zjz.codesandbox.model.dto.CompileMessage;
 import com.zjz.codesandbox.model.dto.PreExecMessage;
 import com.zjz.codesandbox.model.dto.PreRunMessage;
 import com.zjz.codesandbox.model.dto.RunCodeMessage;
 import com.zjz.codesandbox.model.enums.CodeBoxExecuteEnum;
+import com.zjz.codesandbox.model.enums.CodeBoxStatusEnum;
+import com.zjz.codesandbox.model.enums.ExecuteStageEnum;
+import com.zjz.codesandbox.model.enums.FailPolicyEnum;
 import com.zjz.codesandbox.model.execute.ExecuteRequest;
 import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.workspace.Workspace;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+import com.zjz.codesandbox.utils.FileCommonUtils;
+import com.zjz.codesandbox.utils.MetricsUtils;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 /**
  * 执行代码模板抽象类
@@ -23,40 +32,133 @@ import java.util.List;
 @Slf4j
 public abstract class ExecuteCodeTemplate {
 
+    private static final String WORKSPACE_QUOTA_MESSAGE = "Workspace quota exceeded";
+
+    private static final String EXPECTED_OUTPUTS_MISMATCH_MESSAGE = "The number of expected outputs does not match the test cases";
+
+    private static final String JUDGE_MODE_INVALID_MESSAGE = "Unsupported judge mode";
+
+    private static final String FAIL_POLICY_INVALID_MESSAGE = "Unsupported fail policy";
+
+    private static final String MAX_FAILURES_INVALID_MESSAGE = "maxFailures must be positive for the max_failures policy";
+
     /**
      * 执行代码
      */
     public final ExecuteResponse exec(ExecuteRequest executeRequest){
-        List<String>inputs = executeRequest.getInputs();
+        return exec(executeRequest, ExecuteListener.NONE);
+    }
+
+    /**
+     * 执行代码，执行过程中将阶段与测试用例结果通知监听器
+     * @param executeRequest 执行请求
+     * @param listener 执行过程监听器
+     * @return 执行响应
+     */
+    public final ExecuteResponse exec(ExecuteRequest executeRequest, ExecuteListener listener){
+        long startTime = System.currentTimeMillis();
+        String outcome = "error";
+        // 0.沙箱镜像与预热容器未就绪时不接收请求
+        if (getBoxStatus() != CodeBoxStatusEnum.RUNNING){
+            MetricsUtils.recordOutcome(getBoxName(), executeRequest.getLanguage(),
+                    CodeBoxExecuteEnum.NOT_READY.getValue(), System.currentTimeMillis() - startTime);
+            return ExecuteResponse.builder()
+                    .status(CodeBoxExecuteEnum.NOT_READY.getValue())
+                    .message("The sandbox is not ready yet, please try again later")
+                    .build();
+        }
+        // 准入控制，超出并发上限时排队，队列已满或等待超时直接返回繁忙
+        AdmissionLimiter admissionLimiter = getAdmissionLimiter();
+        if (admissionLimiter != null && !admissionLimiter.acquire()){
+            MetricsUtils.recordOutcome(getBoxName(), executeRequest.getLanguage(),
+                    CodeBoxExecuteEnum.BUSY.getValue(), System.currentTimeMillis() - startTime);
+            return ExecuteResponse.builder()
+                    .status(CodeBoxExecuteEnum.BUSY.getValue())
+                    .message("The sandbox is busy, please try again later")
+                    .build();
+        }
+        try {
+            ExecuteResponse executeResponse = doExec(executeRequest, listener);
+            outcome = executeResponse.getStatus();
+            return executeResponse;
+        } finally {
+            if (admissionLimiter != null){
+                admissionLimiter.release();
+            }
+            MetricsUtils.recordOutcome(getBoxName(), executeRequest.getLanguage(),
+                    outcome, System.currentTimeMillis() - startTime);
+        }
+    }
+
+    private ExecuteResponse doExec(ExecuteRequest executeRequest, ExecuteListener listener){
+        ExecuteContext context = new ExecuteContext(executeRequest, listener);
         String code = executeRequest.getCode();
         String language = executeRequest.getLanguage();
         // 1.编译前文件校验
+        long stageStart = System.currentTimeMillis();
+        String requestError = validateRequest(context);
+        if (requestError != null){
+            return ExecuteResponse.builder()
+                    .message(requestError)
+                    .status(CodeBoxExecuteEnum.FAILED.getValue())
+                    .build();
+        }
         PreExecMessage preExecMessage = preExec(executeRequest);
+        context.recordStage(ExecuteStageEnum.PRE_EXEC, stageStart);
         if (!preExecMessage.getSuccess()){
             return ExecuteResponse.builder()
                     .message(preExecMessage.getReason())
                     .status(CodeBoxExecuteEnum.FAILED.getValue())
                     .build();
         }
-        // 2.保存代码文件到本地
-        File file = saveCodeFile(code, language);
-
+        // 2.分配工作目录并保存代码文件
+        stageStart = System.currentTimeMillis();
+        WorkspaceManager workspaceManager = getWorkspaceManager();
+        if (workspaceManager != null && workspaceManager.exceedsQuota(estimateWorkspaceBytes(executeRequest))){
+            return ExecuteResponse.builder()
+                    .message(WORKSPACE_QUOTA_MESSAGE)
+                    .status(CodeBoxExecuteEnum.FAILED.getValue())
+                    .build();
+        }
+        Workspace workspace = null;
         RunCodeMessage runCodeMessage;
         try {
+            // 工作目录在 try 内分配，保存代码文件失败时也由 finally 归还
+            workspace = allocateWorkspace(language);
+            File file = saveCodeFile(code, workspace);
+            context.setWorkspace(workspace);
+            context.setCodeFile(file);
+            context.setUserCodePath(workspace.getPath());
+            context.recordStage(ExecuteStageEnum.SAVE_CODE_FILE, stageStart);
+
             // 3.编译代码文件
-            CompileMessage compileMessage = compileCode(file);
+            stageStart = System.currentTimeMillis();
+            CompileMessage compileMessage = compileWithCache(context);
+            context.setCompileDiagnostics(compileMessage.getDiagnostics());
+            context.recordStage(ExecuteStageEnum.COMPILE, stageStart);
             if (!compileMessage.getSuccess()){
-                // 编译失败 删除文件 直接返回
-                deleteFile(file);
+                // 编译失败 直接返回 由 finally 删除文件
                 return ExecuteResponse.builder()
                         .status(CodeBoxExecuteEnum.COMPILE_FAILED.getValue())
                         .message(compileMessage.getReason())
+                        .diagnostics(compileMessage.getDiagnostics())
+                        .build();
+            }
+            if (workspace.exceedsQuota()){
+                // 编译产物超出工作目录大小上限
+                if (workspaceManager != null){
+                    workspaceManager.recordQuotaRejection();
+                }
+                return ExecuteResponse.builder()
+                        .message(WORKSPACE_QUOTA_MESSAGE)
+                        .status(CodeBoxExecuteEnum.FAILED.getValue())
                         .build();
             }
 
             // 4.运行代码前置准备
-            String userCodePath = file.getParentFile().getAbsolutePath();
-            PreRunMessage preRunMessage = preRunCode(userCodePath);
+            stageStart = System.currentTimeMillis();
+            PreRunMessage preRunMessage = preRunCode(context);
+            context.recordStage(ExecuteStageEnum.PRE_RUN, stageStart);
             if (!preRunMessage.getSuccess()){
                 // 前置运行准备失败
                 return ExecuteResponse.builder()
@@ -66,7 +168,23 @@ public abstract class ExecuteCodeTemplate {
             }
 
             // 5.运行代码
-            runCodeMessage = runCode(inputs, userCodePath);
+            stageStart = System.currentTimeMillis();
+            runCodeMessage = runCode(context);
+            context.recordStage(ExecuteStageEnum.RUN, stageStart);
+            if (runCodeMessage.getOutputs() != null){
+                MetricsUtils.recordCaseTimeouts(getBoxName(), language, runCodeMessage.getOutputs().stream()
+                        .filter(CommonConstant.TIME_OUT_MESSAGE::equals)
+                        .count());
+                MetricsUtils.recordCaseOutputLimits(getBoxName(), language, runCodeMessage.getOutputs().stream()
+                        .filter(CommonConstant.OUTPUT_LIMIT_MESSAGE::equals)
+                        .count());
+                MetricsUtils.recordCaseSkips(getBoxName(), language, runCodeMessage.getOutputs().stream()
+                        .filter(CommonConstant.SKIPPED_MESSAGE::equals)
+                        .count());
+            }
+            if (context.isJudging() && runCodeMessage.getExecuteInfos() != null){
+                MetricsUtils.recordCaseVerdicts(getBoxName(), language, runCodeMessage.getExecuteInfos());
+            }
             if (!runCodeMessage.getSuccess()){
                 // 执行失败
                 return ExecuteResponse.builder()
@@ -79,67 +197,222 @@ public abstract class ExecuteCodeTemplate {
             e.getStackTrace();
             throw e;
         }finally {
-            // 6.删除文件和容器
-            deleteFile(file);
-            deleteContainer();
+            // 6.先删除（归还）容器，容器内进程全部结束后再归还工作目录，避免目录槽被下一个请求复用时仍有进程写入
+            stageStart = System.currentTimeMillis();
+            try {
+                deleteContainer(context);
+            } finally {
+                context.recordStage(ExecuteStageEnum.DELETE_CONTAINER, stageStart);
+                if (workspace != null){
+                    stageStart = System.currentTimeMillis();
+                    releaseWorkspace(workspace);
+                    context.recordStage(ExecuteStageEnum.DELETE_FILE, stageStart);
+                }
+            }
+            log.info("执行耗时 {}ms，各阶段耗时：{}",
+                    System.currentTimeMillis() - context.getStartTime(), context.getStageTimes());
+            MetricsUtils.recordStages(getBoxName(), language, context.getStageTimes());
         }
         return ExecuteResponse.builder()
                 .status(CodeBoxExecuteEnum.SUCCESS.getValue())
                 .outputs(runCodeMessage.getOutputs())
                 .executeInfos(runCodeMessage.getExecuteInfos())
                 .message(CodeBoxExecuteEnum.SUCCESS.getText())
+                .diagnostics(context.getCompileDiagnostics())
                 .build();
     }
 
     /**
-     * 保存代码文件
-     * @param code 用户代码
+     * 校验执行策略与判题参数
+     * @return 错误信息，校验通过时为 null
+     */
+    private static String validateRequest(ExecuteContext context){
+        ExecuteRequest executeRequest = context.getExecuteRequest();
+        FailPolicyEnum failPolicy = context.getFailPolicy();
+        if (failPolicy == null){
+            return FAIL_POLICY_INVALID_MESSAGE;
+        }
+        if (failPolicy == FailPolicyEnum.MAX_FAILURES
+                && (executeRequest.getMaxFailures() == null || executeRequest.getMaxFailures() <= 0)){
+            return MAX_FAILURES_INVALID_MESSAGE;
+        }
+        if (!context.isJudging()){
+            return null;
+        }
+        if (executeRequest.getInputs() == null
+                || executeRequest.getInputs().size() != executeRequest.getExpectedOutputs().size()){
+            return EXPECTED_OUTPUTS_MISMATCH_MESSAGE;
+        }
+        if (context.getJudgeMode() == null){
+            return JUDGE_MODE_INVALID_MESSAGE;
+        }
+        return null;
+    }
+
+    /**
+     * 编译代码，命中编译缓存时直接复用编译产物
+     */
+    private CompileMessage compileWithCache(ExecuteContext context){
+        CompileCache compileCache = getCompileCache();
+        if (compileCache == null || !compileCache.isEnabled()){
+            return compileCode(context);
+        }
+        ExecuteRequest executeRequest = context.getExecuteRequest();
+        String cacheKey = compileCache.buildKey(
+                executeRequest.getLanguage(), executeRequest.getCode(), getCompileFlags(context));
+        File userCodeDir = new File(context.getUserCodePath());
+        if (compileCache.restore(cacheKey, userCodeDir)){
+            log.info("命中编译缓存 {}", cacheKey);
+            context.setCompileCached(true);
+            return CompileMessage.builder()
+                    .success(true)
+                    .build();
+        }
+        long compileStart = System.currentTimeMillis();
+        CompileMessage compileMessage = compileCode(context);
+        if (compileMessage.getSuccess()){
+            compileCache.store(cacheKey, userCodeDir, this::isCompileArtifact,
+                    System.currentTimeMillis() - compileStart);
+        }
+        return compileMessage;
+    }
+
+    /**
+     * 分配工作目录，未配置工作目录管理时在 user.dir/usercode 下创建
      * @param language 编程语言
-     * @return 代码文件
+     * @return 工作目录
      */
-    private File saveCodeFile(String code,String language){
-        // 获取项目路径
-        String projectPath = System.getProperty("user.dir");
-        String globalCodePath
-                = projectPath + File.separator + FileConstant.GLOBAL_CODE_DIR_NAME + File.separator  + language;
-        if (!FileUtil.exist(globalCodePath)) {
-            FileUtil.mkdir(globalCodePath);
+    private Workspace allocateWorkspace(String language){
+        WorkspaceManager workspaceManager = getWorkspaceManager();
+        if (workspaceManager != null){
+            return workspaceManager.allocate(language);
         }
         // 为用户代码生成一个唯一的目录
         Snowflake snowflake = IdUtil.getSnowflake();
-        String userCodePath = globalCodePath + File.separator + snowflake.nextId();
-        String codeFilePath = userCodePath +File.separator + FileConstant.FILE_NAME + language;
-        // 将用户代码写入文件
-        return FileUtil.writeString(code, codeFilePath, StandardCharsets.UTF_8);
+        File userCodeDir = new File(getGlobalCodePath(language), String.valueOf(snowflake.nextId()));
+        FileUtil.mkdir(userCodeDir);
+        return new Workspace(language, userCodeDir, false, 0);
     }
 
+    /**
+     * 保存代码文件
+     * @param code 用户代码
+     * @param workspace 工作目录
+     * @return 代码文件
+     */
+    private File saveCodeFile(String code, Workspace workspace){
+        File codeFile = new File(workspace.getDir(), FileConstant.FILE_NAME + workspace.getLanguage());
+        // 将用户代码写入文件
+        return FileUtil.writeString(code, codeFile, StandardCharsets.UTF_8);
+    }
 
     /**
-     * 删除文件
+     * 估算需要写入工作目录的字节数，按 UTF-8 编码计算；批量运行的输入文件在写入前另行检查
      */
-    private void deleteFile(File file){
-        if (file.getParentFile() != null){
-            String parentName = file.getParentFile().getName();
-            boolean del = FileUtil.del(file.getParentFile());
-            if (del){
-                log.info("删除文件 {} 成功",parentName);
-            }else {
-                log.error("删除文件 {} 失败",parentName);
+    private static long estimateWorkspaceBytes(ExecuteRequest executeRequest){
+        long bytes = FileCommonUtils.utf8Length(executeRequest.getCode());
+        if (executeRequest.getInputs() != null){
+            for (String input : executeRequest.getInputs()){
+                bytes += FileCommonUtils.utf8Length(input);
             }
         }
+        return bytes;
+    }
+
+    /**
+     * 获取某种语言的用户代码根目录
+     * @param language 编程语言
+     * @return 根目录绝对路径
+     */
+    protected String getGlobalCodePath(String language){
+        WorkspaceManager workspaceManager = getWorkspaceManager();
+        if (workspaceManager != null){
+            return workspaceManager.getLanguageRoot(language);
+        }
+        // 获取项目路径
+        String projectPath = System.getProperty("user.dir");
+        return projectPath + File.separator + FileConstant.GLOBAL_CODE_DIR_NAME + File.separator  + language;
+    }
+
+    /**
+     * 归还工作目录，目录槽由后台线程异步清理
+     */
+    private void releaseWorkspace(Workspace workspace){
+        WorkspaceManager workspaceManager = getWorkspaceManager();
+        if (workspaceManager != null){
+            workspaceManager.release(workspace);
+            return;
+        }
+        String dirName = workspace.getDir().getName();
+        boolean del = FileUtil.del(workspace.getDir());
+        if (del){
+            log.info("删除文件 {} 成功",dirName);
+        }else {
+            log.error("删除文件 {} 失败",dirName);
+        }
+    }
+
+    /**
+     * 沙箱名称，用于准入控制与指标标签
+     */
+    public String getBoxName(){
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * 准入控制，返回 null 时不限制并发
+     */
+    public AdmissionLimiter getAdmissionLimiter(){
+        return null;
+    }
+
+    /**
+     * 沙箱状态，不是运行中时拒绝执行请求
+     */
+    public CodeBoxStatusEnum getBoxStatus(){
+        return CodeBoxStatusEnum.RUNNING;
+    }
+
+    /**
+     * 工作目录管理，返回 null 时在 user.dir/usercode 下同步创建与删除目录
+     */
+    protected WorkspaceManager getWorkspaceManager(){
+        return null;
+    }
+
+    /**
+     * 编译缓存，返回 null 时不使用缓存
+     */
+    protected CompileCache getCompileCache(){
+        return null;
+    }
+
+    /**
+     * 编译参数，参与编译缓存键的计算
+     * @param context 执行上下文，编译参数可能随请求变化
+     */
+    protected String getCompileFlags(ExecuteContext context){
+        return "";
+    }
+
+    /**
+     * 判断用户代码目录中的文件是否为需要缓存的编译产物
+     */
+    protected boolean isCompileArtifact(File file){
+        return false;
     }
 
     /**
      * 删除容器
      */
-    public abstract void deleteContainer();
+    public abstract void deleteContainer(ExecuteContext context);
 
     /**
      * 编译代码文件
-     * @param file 代码文件
+     * @param context 执行上下文
      * @return 执行响应
      */
-    public abstract CompileMessage compileCode(File file);
+    public abstract CompileMessage compileCode(ExecuteContext context);
 
     /**
      * 执行前准备工作
@@ -149,10 +422,10 @@ public abstract class ExecuteCodeTemplate {
     /**
      * 运行代码前准备
      */
-    public abstract PreRunMessage preRunCode(String userCodePath);
+    public abstract PreRunMessage preRunCode(ExecuteContext context);
 
     /**
      * 运行代码
      */
-    public abstract RunCodeMessage runCode(List<String> inputs, String userCodePath);
+    public abstract RunCodeMessage runCode(ExecuteContext context);
 }
@@ -0,0 +1,213 @@
+package com.zjz.codesandbox.sandbox;
+
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.compile.CompileDiagnostic;
+import com.zjz.codesandbox.model.enums.ExecuteStageEnum;
+import com.zjz.codesandbox.model.enums.FailPolicyEnum;
+import com.zjz.codesandbox.model.enums.JudgeModeEnum;
+import com.zjz.codesandbox.model.enums.JudgeVerdictEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+import com.zjz.codesandbox.sandbox.workspace.Workspace;
+import lombok.Data;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单次代码执行的上下文
+ * 在 ExecuteCodeTemplate 各阶段之间传递，保存本次执行独占的容器、工作目录与耗时，
+ * 使同一个沙箱实例可以并发处理多个请求
+ */
+@Data
+public class ExecuteContext {
+
+    /**
+     * 执行请求
+     */
+    private final ExecuteRequest executeRequest;
+
+    /**
+     * 执行开始时间
+     */
+    private final long startTime = System.currentTimeMillis();
+
+    /**
+     * 用户代码文件
+     */
+    private File codeFile;
+
+    /**
+     * 用户代码所在目录
+     */
+    private String userCodePath;
+
+    /**
+     * 本次执行独占的工作目录
+     */
+    private Workspace workspace;
+
+    /**
+     * 是否命中编译缓存
+     */
+    private boolean compileCached;
+
+    /**
+     * 编译诊断信息，仅进程内编译时有值
+     */
+    private List<CompileDiagnostic> compileDiagnostics;
+
+    /**
+     * 本次执行使用的容器 id
+     */
+    private String containerId;
+
+    /**
+     * 各阶段耗时 ms
+     */
+    private final Map<ExecuteStageEnum, Long> stageTimes = new EnumMap<>(ExecuteStageEnum.class);
+
+    /**
+     * 执行过程监听器
+     */
+    private final ExecuteListener listener;
+
+    /**
+     * 已完成的失败用例数，并行运行时由多个线程更新
+     */
+    private final AtomicInteger failedCases = new AtomicInteger();
+
+    public ExecuteContext(ExecuteRequest executeRequest) {
+        this(executeRequest, ExecuteListener.NONE);
+    }
+
+    public ExecuteContext(ExecuteRequest executeRequest, ExecuteListener listener) {
+        this.executeRequest = executeRequest;
+        this.listener = listener == null ? ExecuteListener.NONE : listener;
+    }
+
+    /**
+     * 记录阶段耗时
+     * @param stage 阶段
+     * @param stageStartTime 阶段开始时间
+     */
+    public void recordStage(ExecuteStageEnum stage, long stageStartTime) {
+        long cost = System.currentTimeMillis() - stageStartTime;
+        stageTimes.put(stage, cost);
+        listener.onStage(stage, cost, this);
+    }
+
+    /**
+     * 请求是否携带期望输出，需要判题
+     */
+    public boolean isJudging() {
+        return executeRequest.getExpectedOutputs() != null;
+    }
+
+    /**
+     * 获取输出比较方式，未指定时忽略行尾空白比较
+     * @return 比较方式，取值错误时为 null
+     */
+    public JudgeModeEnum getJudgeMode() {
+        String judgeMode = executeRequest.getJudgeMode();
+        if (judgeMode == null) {
+            return JudgeModeEnum.IGNORE_TRAILING_SPACE;
+        }
+        return JudgeModeEnum.getEnumByValue(judgeMode);
+    }
+
+    /**
+     * 为测试用例创建输出比较器，运行时将程序的标准输出写入比较器
+     * @param index 用例序号
+     * @param charset 程序输出的编码
+     * @return 比较器，不需要判题时为 null
+     */
+    public OutputJudge createJudge(int index, Charset charset) {
+        List<String> expectedOutputs = executeRequest.getExpectedOutputs();
+        if (expectedOutputs == null || index >= expectedOutputs.size()) {
+            return null;
+        }
+        Double epsilon = executeRequest.getEpsilon();
+        return OutputJudge.create(getJudgeMode(), expectedOutputs.get(index), charset,
+                epsilon == null ? OutputJudge.DEFAULT_EPSILON : epsilon);
+    }
+
+    /**
+     * 获取执行策略，未指定时运行全部测试用例
+     * @return 执行策略，取值错误时为 null
+     */
+    public FailPolicyEnum getFailPolicy() {
+        String failPolicy = executeRequest.getFailPolicy();
+        if (failPolicy == null) {
+            return FailPolicyEnum.RUN_ALL;
+        }
+        return FailPolicyEnum.getEnumByValue(failPolicy);
+    }
+
+    /**
+     * 执行策略允许的失败用例数
+     * @return 失败用例数上限，0 表示不限制
+     */
+    public int getMaxFailures() {
+        FailPolicyEnum failPolicy = getFailPolicy();
+        if (failPolicy == FailPolicyEnum.FAIL_FAST) {
+            return 1;
+        }
+        if (failPolicy == FailPolicyEnum.MAX_FAILURES && executeRequest.getMaxFailures() != null) {
+            return Math.max(executeRequest.getMaxFailures(), 0);
+        }
+        return 0;
+    }
+
+    /**
+     * 记录已完成的测试用例，用于执行策略计数
+     * 判题时结果不是 AC 视为失败，否则运行失败视为失败
+     */
+    public void recordCase(ExecuteInfo executeInfo) {
+        boolean failed = isJudging()
+                ? !JudgeVerdictEnum.ACCEPTED.getValue().equals(executeInfo.getVerdict())
+                : "failed".equals(executeInfo.getMessage());
+        if (failed) {
+            failedCases.incrementAndGet();
+        }
+    }
+
+    /**
+     * 失败用例数是否已达到执行策略的上限，达到后不再开始运行剩余的测试用例
+     */
+    public boolean isStopped() {
+        int maxFailures = getMaxFailures();
+        return maxFailures > 0 && failedCases.get() >= maxFailures;
+    }
+
+    /**
+     * 生成按执行策略跳过的测试用例结果
+     */
+    public CaseResult skipCase() {
+        ExecuteInfo executeInfo = new ExecuteInfo();
+        executeInfo.setMessage("skipped");
+        if (isJudging()) {
+            executeInfo.setVerdict(JudgeVerdictEnum.SKIPPED.getValue());
+        }
+        return CaseResult.builder()
+                .output(CommonConstant.SKIPPED_MESSAGE)
+                .executeInfo(executeInfo)
+                .build();
+    }
+
+    /**
+     * 发布已完成的测试用例结果
+     * @param index 用例序号
+     * @param output 用例输出
+     * @param executeInfo 用例执行信息
+     */
+    public void publishCase(int index, String output, ExecuteInfo executeInfo) {
+        listener.onCase(index, output, executeInfo);
+    }
+}
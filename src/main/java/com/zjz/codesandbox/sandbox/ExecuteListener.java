@@ -0,0 +1,33 @@
+package com.zjz.codesandbox.sandbox;
+
+import com.zjz.codesandbox.model.enums.ExecuteStageEnum;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+
+/**
+ * 代码执行过程监听器
+ * 阶段结束与测试用例完成时立即回调，用于流式推送执行进度；
+ * 并行运行测试用例时 onCase 可能被多个线程同时调用，完成顺序不保证与用例顺序一致
+ */
+public interface ExecuteListener {
+
+    /**
+     * 不做任何处理的监听器
+     */
+    ExecuteListener NONE = new ExecuteListener() {};
+
+    /**
+     * 阶段结束
+     * @param stage 阶段
+     * @param cost 阶段耗时 ms
+     * @param context 执行上下文
+     */
+    default void onStage(ExecuteStageEnum stage, long cost, ExecuteContext context) {}
+
+    /**
+     * 测试用例运行完成
+     * @param index 用例序号
+     * @param output 用例输出
+     * @param executeInfo 用例执行信息
+     */
+    default void onCase(int index, String output, ExecuteInfo executeInfo) {}
+}
@@ -0,0 +1,176 @@
+package com.zjz.codesandbox.sandbox.admission;
+
+import com.zjz.codesandbox.model.admission.AdmissionMetrics;
+import com.zjz.codesandbox.utils.MetricsUtils;
+import com.zjz.codesandbox.utils.ProcessOutputPump;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 沙箱准入控制
+ * 限制同时执行的提交数，超出的提交按先后顺序排队等待，队列已满或等待超时时立即拒绝，
+ * 限制可在运行时调整
+ */
+@Slf4j
+public class AdmissionLimiter {
+
+    private final String name;
+
+    /**
+     * 公平锁，排队的提交按到达顺序获得执行许可
+     */
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private final Condition available = lock.newCondition();
+
+    private int maxConcurrent;
+
+    private int queueCapacity;
+
+    private long queueTimeout;
+
+    private int running = 0;
+
+    private int waiting = 0;
+
+    private final AtomicLong admitted = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * 进入过排队的提交数
+     */
+    private final AtomicLong queued = new AtomicLong();
+
+    /**
+     * 累计排队等待时间 ms
+     */
+    private final AtomicLong queueWaitTime = new AtomicLong();
+
+    private final AtomicLong maxQueueWaitTime = new AtomicLong();
+
+    public AdmissionLimiter(String name, int maxConcurrent, int queueCapacity, long queueTimeout) {
+        this.name = name;
+        updateLimits(maxConcurrent, queueCapacity, queueTimeout);
+        MetricsUtils.registerAdmission(this);
+    }
+
+    /**
+     * 获取执行许可，获得许可后必须调用 release
+     * @return 是否获得许可，队列已满或等待超时返回 false
+     */
+    public boolean acquire() {
+        lock.lock();
+        try {
+            // 有排队的提交时新提交不能插队
+            if (running < maxConcurrent && waiting == 0) {
+                running++;
+                admitted.incrementAndGet();
+                return true;
+            }
+            if (waiting >= queueCapacity) {
+                rejected.incrementAndGet();
+                log.warn("Admission queue of {} is full, submission rejected", name);
+                return false;
+            }
+            long waitStart = System.nanoTime();
+            waiting++;
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+                while (running >= maxConcurrent) {
+                    if (remaining <= 0) {
+                        timedOut.incrementAndGet();
+                        log.warn("Submission to {} timed out in admission queue", name);
+                        return false;
+                    }
+                    remaining = available.awaitNanos(remaining);
+                }
+                running++;
+                admitted.incrementAndGet();
+                return true;
+            } catch (InterruptedException e) {
+                // 可能已消耗了一次唤醒，转交给下一个排队的提交
+                available.signal();
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                waiting--;
+                queued.incrementAndGet();
+                long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart);
+                queueWaitTime.addAndGet(waitTime);
+                maxQueueWaitTime.accumulateAndGet(waitTime, Math::max);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还执行许可
+     */
+    public void release() {
+        lock.lock();
+        try {
+            running--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 调整限制，立即对排队中的提交生效
+     * @param maxConcurrent 同时执行的提交数上限
+     * @param queueCapacity 排队的提交数上限
+     * @param queueTimeout 排队等待超时时间 ms
+     */
+    public void updateLimits(int maxConcurrent, int queueCapacity, long queueTimeout) {
+        lock.lock();
+        try {
+            this.maxConcurrent = Math.max(maxConcurrent, 1);
+            this.queueCapacity = Math.max(queueCapacity, 0);
+            this.queueTimeout = Math.max(queueTimeout, 0);
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        ProcessOutputPump.reserve(name, Math.max(maxConcurrent, 1));
+        log.info("Admission limits of {}: maxConcurrent={}, queueCapacity={}, queueTimeout={}ms",
+                name, maxConcurrent, queueCapacity, queueTimeout);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 获取准入控制指标
+     */
+    public AdmissionMetrics getMetrics() {
+        lock.lock();
+        try {
+            long queuedCount = queued.get();
+            return AdmissionMetrics.builder()
+                    .name(name)
+                    .maxConcurrent(maxConcurrent)
+                    .queueCapacity(queueCapacity)
+                    .queueTimeout(queueTimeout)
+                    .running(running)
+                    .queueDepth(waiting)
+                    .admitted(admitted.get())
+                    .rejected(rejected.get())
+                    .timedOut(timedOut.get())
+                    .averageQueueWaitTime(queuedCount == 0 ? 0L : queueWaitTime.get() / queuedCount)
+                    .maxQueueWaitTime(maxQueueWaitTime.get())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
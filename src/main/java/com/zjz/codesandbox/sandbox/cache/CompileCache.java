@@ -0,0 +1,218 @@
+package com.zjz.codesandbox.sandbox.cache;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.zjz.codesandbox.config.CompileCacheProperties;
+import com.zjz.codesandbox.constant.FileConstant;
+import com.zjz.codesandbox.model.cache.CompileCacheMetrics;
+import com.zjz.codesandbox.utils.FileCommonUtils;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内容寻址的编译缓存
+ * 以 语言 + 编译参数 + 源码 的哈希为键，将编译产物保存在本地磁盘，按 LRU 淘汰，
+ * 缓存只在进程生命周期内有效，启动时清空（只清空本服务创建的目录，其他非空目录拒绝启动），避免编译器升级后复用旧产物
+ */
+@Slf4j
+public class CompileCache {
+
+    private final CompileCacheProperties properties;
+
+    private final File rootDir;
+
+    /**
+     * 缓存条目，按访问顺序排列，头部为最久未使用
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    private final AtomicLong compileTimeSaved = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CompileCache(CompileCacheProperties properties) {
+        this.properties = properties;
+        String root = StrUtil.isBlank(properties.getRootDir())
+                ? System.getProperty("user.dir") + File.separator + FileConstant.COMPILE_CACHE_DIR_NAME
+                : properties.getRootDir();
+        this.rootDir = new File(root);
+        FileCommonUtils.resetOwnedDir(rootDir, StrUtil.isBlank(properties.getRootDir()));
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * 计算缓存键
+     * @param language 编程语言
+     * @param code 用户代码
+     * @param flags 编译参数
+     * @return 缓存键
+     */
+    public String buildKey(String language, String code, String flags) {
+        return DigestUtil.sha256Hex(language + "\n" + flags + "\n" + code);
+    }
+
+    /**
+     * 命中时将编译产物复制到目标目录
+     * 只在查找与释放条目时持有锁，复制期间条目被固定，此时被淘汰的条目在最后一次复制结束后再删除
+     * @param key 缓存键
+     * @param targetDir 目标目录
+     * @return 是否命中
+     */
+    public boolean restore(String key, File targetDir) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return false;
+            }
+            entry.pins++;
+        }
+        try {
+            for (File artifact : FileUtil.ls(entry.getDir().getAbsolutePath())) {
+                FileUtil.copy(artifact, targetDir, true);
+            }
+        } finally {
+            boolean delete;
+            synchronized (this) {
+                entry.pins--;
+                delete = entry.evicted && entry.pins == 0;
+            }
+            if (delete) {
+                FileUtil.del(entry.getDir());
+            }
+        }
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(entry.getBytes());
+        compileTimeSaved.addAndGet(entry.getCompileTime());
+        return true;
+    }
+
+    /**
+     * 保存编译产物
+     * @param key 缓存键
+     * @param sourceDir 编译输出目录
+     * @param artifactFilter 编译产物过滤器
+     * @param compileTime 本次编译耗时 ms
+     */
+    public void store(String key, File sourceDir, FileFilter artifactFilter, long compileTime) {
+        File[] artifacts = sourceDir.listFiles(artifactFilter);
+        if (artifacts == null || artifacts.length == 0) {
+            return;
+        }
+        long bytes = 0;
+        for (File artifact : artifacts) {
+            bytes += artifact.length();
+        }
+        if (bytes > properties.getMaxBytes()) {
+            return;
+        }
+        // 先写入临时目录再重命名，避免并发读到不完整的条目
+        File tempDir = new File(rootDir, key + "." + IdUtil.fastSimpleUUID());
+        FileUtil.mkdir(tempDir);
+        for (File artifact : artifacts) {
+            FileUtil.copy(artifact, tempDir, true);
+        }
+        List<File> evictedDirs;
+        synchronized (this) {
+            File entryDir = new File(rootDir, key);
+            // 同一键被淘汰但仍在复制中的条目目录尚未删除，此时放弃保存
+            if (entries.containsKey(key) || !tempDir.renameTo(entryDir)) {
+                FileUtil.del(tempDir);
+                return;
+            }
+            entries.put(key, new CacheEntry(entryDir, bytes, compileTime));
+            totalBytes += bytes;
+            evictedDirs = evict();
+        }
+        for (File dir : evictedDirs) {
+            FileUtil.del(dir);
+        }
+    }
+
+    /**
+     * 获取编译缓存指标
+     */
+    public synchronized CompileCacheMetrics getMetrics() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return CompileCacheMetrics.builder()
+                .hits(hitCount)
+                .misses(misses.get())
+                .hitRatio(total == 0 ? 0D : (double) hitCount / total)
+                .bytesSaved(bytesSaved.get())
+                .compileTimeSaved(compileTimeSaved.get())
+                .entries(entries.size())
+                .bytes(totalBytes)
+                .evictions(evictions.get())
+                .build();
+    }
+
+    /**
+     * 淘汰最久未使用的条目直到满足容量限制，调用方需持有锁
+     * @return 需在释放锁后删除的目录，正在复制的条目由最后一次复制结束时删除
+     */
+    private List<File> evict() {
+        List<File> evictedDirs = new ArrayList<>();
+        Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()
+                && (totalBytes > properties.getMaxBytes() || entries.size() > properties.getMaxEntries())) {
+            CacheEntry eldest = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= eldest.getBytes();
+            evictions.incrementAndGet();
+            eldest.evicted = true;
+            if (eldest.pins == 0) {
+                evictedDirs.add(eldest.getDir());
+            }
+        }
+        return evictedDirs;
+    }
+
+    /**
+     * 缓存条目
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static class CacheEntry {
+
+        private final File dir;
+
+        private final long bytes;
+
+        private final long compileTime;
+
+        /**
+         * 正在复制该条目的次数，由缓存的锁保护
+         */
+        private int pins;
+
+        /**
+         * 是否已被淘汰，由缓存的锁保护
+         */
+        private boolean evicted;
+    }
+}
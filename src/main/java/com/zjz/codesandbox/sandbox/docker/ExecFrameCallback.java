@@ -0,0 +1,89 @@
+package com.zjz.codesandbox.sandbox.docker;
+
+import com.github.dockerjava.api.async.ResultCallback;
+import com.github.dockerjava.api.model.Frame;
+import com.github.dockerjava.api.model.StreamType;
+import com.zjz.codesandbox.utils.MetricsUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * exec 输出回调
+ * 按帧的流类型把标准输出与错误输出的原始字节分别写入目标流，未复用输出流（tty）的帧写入标准输出，目标流为 null 时丢弃；
+ * 不经过 MeteredDockerHttpClient 的调用（带标准输入的 exec 使用的 Netty 客户端）可以由回调记录指标，
+ * 从启动到完成、出错或关闭计为一次
+ */
+public class ExecFrameCallback extends ResultCallback.Adapter<Frame> {
+
+    private static final String EXEC_START_OPERATION = "POST /exec/{id}/start";
+
+    private final OutputStream stdout;
+
+    private final OutputStream stderr;
+
+    private final AtomicBoolean metering = new AtomicBoolean(false);
+
+    private long start;
+
+    /**
+     * @param stdout 标准输出的目标流，可以为 null
+     * @param stderr 错误输出的目标流，可以为 null
+     */
+    public ExecFrameCallback(OutputStream stdout, OutputStream stderr) {
+        this.stdout = stdout;
+        this.stderr = stderr;
+    }
+
+    /**
+     * 记录本次 exec 启动的指标，在发出启动请求前调用
+     */
+    public ExecFrameCallback meter() {
+        start = System.nanoTime();
+        MetricsUtils.dockerCallStarted();
+        metering.set(true);
+        return this;
+    }
+
+    @Override
+    public void onNext(Frame frame) {
+        OutputStream target = StreamType.STDERR.equals(frame.getStreamType()) ? stderr : stdout;
+        if (target == null) {
+            return;
+        }
+        try {
+            target.write(frame.getPayload());
+        } catch (IOException e) {
+            onError(e);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        if (metering.compareAndSet(true, false)) {
+            MetricsUtils.dockerCallFinished(EXEC_START_OPERATION, "error", System.nanoTime() - start);
+            MetricsUtils.recordDockerError(EXEC_START_OPERATION, throwable.getClass().getSimpleName());
+        }
+        super.onError(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        finishMetering("ok");
+        super.onComplete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // 超时或超出输出上限时在完成前关闭
+        finishMetering("closed");
+        super.close();
+    }
+
+    private void finishMetering(String status) {
+        if (metering.compareAndSet(true, false)) {
+            MetricsUtils.dockerCallFinished(EXEC_START_OPERATION, status, System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.zjz.codesandbox.sandbox.docker;
+
+import com.github.dockerjava.transport.DockerHttpClient;
+import com.zjz.codesandbox.utils.MetricsUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * 记录指标的 Docker HTTP 客户端
+ * 每次调用从发出请求到响应关闭计为一次，流式调用（exec、拉取镜像）的耗时包含读取响应的时间；
+ * 调用类型由请求方法与去掉容器 id、镜像名等参数后的路径组成，响应状态码 5xx 与连接异常计为守护进程错误
+ */
+public class MeteredDockerHttpClient implements DockerHttpClient {
+
+    private static final Pattern API_VERSION = Pattern.compile("^/v\\d+(\\.\\d+)?");
+
+    /**
+     * 路径第二段为这些值时是集合上的操作，否则为资源 id
+     */
+    private static final Set<String> COLLECTION_ACTIONS = new HashSet<>(Arrays.asList(
+            "create", "json", "prune", "search", "load", "get"));
+
+    private final DockerHttpClient delegate;
+
+    public MeteredDockerHttpClient(DockerHttpClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response execute(Request request) {
+        String operation = operation(request.method(), request.path());
+        long start = System.nanoTime();
+        MetricsUtils.dockerCallStarted();
+        Response response;
+        try {
+            response = delegate.execute(request);
+        } catch (RuntimeException e) {
+            MetricsUtils.dockerCallFinished(operation, "error", System.nanoTime() - start);
+            MetricsUtils.recordDockerError(operation, e.getClass().getSimpleName());
+            throw e;
+        }
+        int statusCode = response.getStatusCode();
+        if (statusCode >= 500) {
+            MetricsUtils.recordDockerError(operation, String.valueOf(statusCode));
+        }
+        return new MeteredResponse(response, operation, statusCode, start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    /**
+     * 调用类型，例如 POST /containers/{id}/exec、GET /images/{id}/json
+     */
+    static String operation(String method, String path) {
+        int query = path.indexOf('?');
+        String resourcePath = API_VERSION.matcher(query < 0 ? path : path.substring(0, query)).replaceFirst("");
+        String[] segments = resourcePath.replaceAll("^/+|/+$", "").split("/");
+        StringBuilder operation = new StringBuilder(method).append(" /").append(segments[0]);
+        if (segments.length == 2) {
+            operation.append('/').append(COLLECTION_ACTIONS.contains(segments[1]) ? segments[1] : "{id}");
+        } else if (segments.length > 2) {
+            // 镜像名中可能包含 /，只保留最后一段操作名
+            operation.append("/{id}/").append(segments[segments.length - 1]);
+        }
+        return operation.toString();
+    }
+
+    private static class MeteredResponse implements Response {
+
+        private final Response delegate;
+
+        private final String operation;
+
+        private final int statusCode;
+
+        private final long start;
+
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private MeteredResponse(Response delegate, String operation, int statusCode, long start) {
+            this.delegate = delegate;
+            this.operation = operation;
+            this.statusCode = statusCode;
+            this.start = start;
+        }
+
+        @Override
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    delegate.close();
+                } finally {
+                    MetricsUtils.dockerCallFinished(operation, String.valueOf(statusCode), System.nanoTime() - start);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.zjz.codesandbox.sandbox.image;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.PullImageResultCallback;
+import com.github.dockerjava.api.exception.NotFoundException;
+import com.github.dockerjava.api.model.PullResponseItem;
+import com.zjz.codesandbox.config.ImageBootstrapProperties;
+import com.zjz.codesandbox.model.enums.ImageStatusEnum;
+import com.zjz.codesandbox.model.image.ImageStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 沙箱镜像准备
+ * 各沙箱在启动时登记所需的镜像，镜像在后台线程中并行检查，本地不存在时拉取，失败后按间隔重试直到成功，
+ * 不阻塞 Spring 启动；沙箱在镜像就绪后再预热容器并开始接收请求
+ */
+@Slf4j
+public class ImageBootstrap {
+
+    private final DockerClient dockerClient;
+
+    private final ImageBootstrapProperties properties;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    private final Map<String, ImageEntry> entries = new ConcurrentHashMap<>();
+
+    private volatile boolean closed = false;
+
+    public ImageBootstrap(DockerClient dockerClient, ImageBootstrapProperties properties) {
+        this.dockerClient = dockerClient;
+        this.properties = properties;
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(properties.getThreads(), 1),
+                ThreadFactoryBuilder.create().setNamePrefix("image-bootstrap-").setDaemon(true).build());
+    }
+
+    /**
+     * 登记并在后台准备镜像，同一镜像只准备一次
+     * @param image 镜像名称
+     * @return 镜像就绪时完成，后续动作在准备镜像的线程中执行
+     */
+    public CompletableFuture<Void> prepare(String image) {
+        return entries.computeIfAbsent(image, key -> {
+            ImageEntry entry = new ImageEntry(key);
+            executor.execute(() -> attempt(entry));
+            return entry;
+        }).ready;
+    }
+
+    /**
+     * 镜像的准备状态，未登记时为 null
+     */
+    public ImageStatusEnum getStatus(String image) {
+        ImageEntry entry = entries.get(image);
+        return entry == null ? null : entry.status;
+    }
+
+    /**
+     * 所有已登记镜像的准备进度
+     */
+    public List<ImageStatus> getStatuses() {
+        return entries.values().stream()
+                .map(ImageEntry::toStatus)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 健康检查：所有已登记的镜像就绪前为 OUT_OF_SERVICE
+     */
+    public Health health() {
+        Health.Builder builder = entries.values().stream().allMatch(entry -> entry.status == ImageStatusEnum.READY)
+                ? Health.up() : Health.outOfService();
+        for (ImageEntry entry : entries.values()) {
+            builder.withDetail(entry.image, entry.toStatus());
+        }
+        return builder.build();
+    }
+
+    /**
+     * 停止准备，尚未就绪的镜像不再重试
+     */
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    private void attempt(ImageEntry entry) {
+        if (closed) {
+            return;
+        }
+        entry.attempts.incrementAndGet();
+        try {
+            if (!exists(entry.image)) {
+                pull(entry);
+            }
+            entry.status = ImageStatusEnum.READY;
+            entry.progress = null;
+            entry.readyTime = System.currentTimeMillis();
+            log.info("Image {} is ready in {} ms", entry.image, entry.readyTime - entry.startTime);
+        } catch (RuntimeException e) {
+            // Docker 守护进程不可用时连接异常不一定是 DockerException
+            fail(entry, e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        entry.ready.complete(null);
+    }
+
+    private boolean exists(String image) {
+        try {
+            dockerClient.inspectImageCmd(image).exec();
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    private void pull(ImageEntry entry) throws InterruptedException {
+        entry.status = ImageStatusEnum.PULLING;
+        log.info("Pulling image {}", entry.image);
+        PullImageResultCallback callback = dockerClient.pullImageCmd(entry.image)
+                .exec(new PullImageResultCallback() {
+                    @Override
+                    public void onNext(PullResponseItem item) {
+                        // 同一状态的逐字节进度只记录一次
+                        if (item.getStatus() != null && !Objects.equals(item.getStatus(), entry.progress)) {
+                            entry.progress = item.getStatus();
+                            log.info("Pull image {}: {}", entry.image, item.getStatus());
+                        }
+                        super.onNext(item);
+                    }
+                });
+        try {
+            if (!callback.awaitCompletion(properties.getPullTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Pulling image timed out");
+            }
+        } finally {
+            try {
+                callback.close();
+            } catch (Exception ignored) {
+            }
+        }
+        if (!exists(entry.image)) {
+            throw new IllegalStateException("Image not found after pulling");
+        }
+    }
+
+    private void fail(ImageEntry entry, String reason) {
+        entry.status = ImageStatusEnum.FAILED;
+        entry.progress = reason;
+        log.error("Failed to prepare image {} (attempt {}): {}, retry in {} ms",
+                entry.image, entry.attempts.get(), reason, properties.getRetryInterval());
+        if (!closed) {
+            executor.schedule(() -> attempt(entry), properties.getRetryInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class ImageEntry {
+
+        private final String image;
+
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+        private final AtomicInteger attempts = new AtomicInteger();
+
+        private final long startTime = System.currentTimeMillis();
+
+        private volatile ImageStatusEnum status = ImageStatusEnum.PENDING;
+
+        private volatile String progress;
+
+        private volatile long readyTime;
+
+        private ImageEntry(String image) {
+            this.image = image;
+        }
+
+        private ImageStatus toStatus() {
+            long end = status == ImageStatusEnum.READY ? readyTime : System.currentTimeMillis();
+            return ImageStatus.builder()
+                    .image(image)
+                    .status(status.getValue())
+                    .progress(progress)
+                    .attempts(attempts.get())
+                    .elapsed(end - startTime)
+                    .build();
+        }
+    }
+}
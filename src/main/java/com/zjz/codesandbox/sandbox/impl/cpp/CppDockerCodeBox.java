@@ -4,31 +4,46 @@ package com.zjz.codesandbox.sandbox.impl.cpp;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.*;
 import com.github.dockerjava.api.model.*;
-import com.github.dockerjava.core.DockerClientBuilder;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
+import com.zjz.codesandbox.config.CodeBoxProperties;
+import com.zjz.codesandbox.config.CompileWorkerProperties;
+import com.zjz.codesandbox.constant.CmdConstant;
 import com.zjz.codesandbox.constant.DockerConstant;
 import com.zjz.codesandbox.model.dto.CompileMessage;
 import com.zjz.codesandbox.model.dto.PreExecMessage;
 import com.zjz.codesandbox.model.dto.PreRunMessage;
 import com.zjz.codesandbox.model.dto.RunCodeMessage;
+import com.zjz.codesandbox.model.enums.CodeBoxStatusEnum;
+import com.zjz.codesandbox.model.enums.ImageStatusEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
 import com.zjz.codesandbox.model.execute.ExecuteInfo;
 import com.zjz.codesandbox.model.execute.ExecuteRequest;
 import com.zjz.codesandbox.model.execute.ExecuteResponse;
 import com.zjz.codesandbox.sandbox.CodeBox;
+import com.zjz.codesandbox.sandbox.ExecuteContext;
 import com.zjz.codesandbox.sandbox.ExecuteCodeTemplate;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.image.ImageBootstrap;
+import com.zjz.codesandbox.sandbox.pool.CompileWorkerPool;
+import com.zjz.codesandbox.sandbox.pool.PrecompiledHeaders;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
 import com.zjz.codesandbox.utils.DockerCommonUtils;
 import com.zjz.codesandbox.utils.LanguageCommonUtils;
+import com.zjz.codesandbox.utils.ParallelCaseUtils;
 import com.zjz.codesandbox.utils.VerifyUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.jvnet.hk2.annotations.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 @Service
@@ -52,43 +67,111 @@ public class CppDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
 //    }
 
 
-    private final DockerClient dockerClient = DockerClientBuilder.getInstance().build();
+    private static final String LANGUAGE = "cpp";
 
-    private String containerId;
+    @Resource
+    private DockerClient dockerClient;
 
+    /**
+     * 只用于启动带标准输入的 exec
+     */
+    @Resource
+    private DockerClient stdinDockerClient;
+
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private CodeBoxProperties cppDockerCodeBoxProperties;
+
+    @Resource
+    private CompileWorkerProperties cppCompileWorkerProperties;
+
+    private AdmissionLimiter admissionLimiter;
+
+    @Resource
+    private ImageBootstrap imageBootstrap;
+
+    private CompileWorkerPool compileWorkerPool;
 
+    private PrecompiledHeaders precompiledHeaders;
+
+    /**
+     * 镜像已就绪且编译容器池已启动
+     */
+    private volatile boolean started = false;
+
+    /**
+     * 镜像就绪后启动编译容器池失败
+     */
+    private volatile boolean startFailed = false;
+
+    /**
+     * 按配置初始化准入控制
+     */
+    @PostConstruct
+    public void initAdmissionLimiter() {
+        admissionLimiter = new AdmissionLimiter(getBoxName(), cppDockerCodeBoxProperties.getMaxConcurrent(),
+                cppDockerCodeBoxProperties.getQueueCapacity(), cppDockerCodeBoxProperties.getQueueTimeout());
+    }
 
     /**
-     * gcc 镜像拉取 在类加载时只执行一次
+     * gcc 镜像在后台准备，就绪后启动常驻编译容器并开始接收请求，编译容器各自读写挂载独占的工作目录，
+     * 只读挂载预编译头目录，之后在后台构建各编译配置的预编译头
      */
-    static {
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
-        // 检查镜像是否已经存在
-        boolean imageExists = dockerClient.listImagesCmd().exec().stream()
-                .anyMatch(image -> image.getRepoTags() != null &&
-                        Arrays.asList(image.getRepoTags()).contains(DockerConstant.DOCKER_GCC_IMAGE));
-        if (!imageExists){
-            // 不存在 gcc 环境镜像
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(DockerConstant.DOCKER_GCC_IMAGE);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
-                @Override
-                public void onNext(PullResponseItem item) {
-                    log.info("Download Image：{}", item.getStatus());
-                    super.onNext(item);
-                }
-            };
-            try {
-                pullImageCmd
-                        .exec(pullImageResultCallback)
-                        .awaitCompletion();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+    @PostConstruct
+    public void initCompileWorkers() {
+        String globalCodePath = getGlobalCodePath(LANGUAGE);
+        FileUtil.mkdir(globalCodePath);
+        File pchRoot = new File(globalCodePath, PrecompiledHeaders.PCH_DIR_NAME);
+        compileWorkerPool = new CompileWorkerPool(dockerClient, DockerConstant.DOCKER_GCC_IMAGE,
+                globalCodePath, pchRoot, cppCompileWorkerProperties);
+        precompiledHeaders = new PrecompiledHeaders(compileWorkerPool, pchRoot, cppCompileWorkerProperties);
+        imageBootstrap.prepare(DockerConstant.DOCKER_GCC_IMAGE).thenRun(() -> {
+            compileWorkerPool.start();
+            started = true;
+            precompiledHeaders.buildAsync();
+        }).whenComplete((unused, e) -> {
+            if (e != null) {
+                startFailed = true;
+                log.error("Failed to start compile workers for {}", DockerConstant.DOCKER_GCC_IMAGE, e);
             }
-        }else {
-            log.info("Image already exists: {}",DockerConstant.DOCKER_GCC_IMAGE);
+        });
+    }
+
+    @PreDestroy
+    public void destroyCompileWorkers() {
+        precompiledHeaders.close();
+        compileWorkerPool.close();
+    }
+
+    @Override
+    public String getBoxName() {
+        return "cpp-docker";
+    }
+
+    @Override
+    public AdmissionLimiter getAdmissionLimiter() {
+        return admissionLimiter;
+    }
+
+    @Override
+    public CodeBoxStatusEnum getBoxStatus() {
+        if (startFailed) {
+            return CodeBoxStatusEnum.ERROR;
         }
+        // 至少创建了一个编译容器后才接收请求，创建失败时由定时维护任务继续创建
+        if (started && compileWorkerPool.hasWorkers()) {
+            return CodeBoxStatusEnum.RUNNING;
+        }
+        return imageBootstrap.getStatus(DockerConstant.DOCKER_GCC_IMAGE) == ImageStatusEnum.FAILED
+                ? CodeBoxStatusEnum.ERROR : CodeBoxStatusEnum.STARTING;
     }
 
+
     @Override
     public ExecuteResponse executeCode(ExecuteRequest executeRequest) {
         return exec(executeRequest);
@@ -96,93 +179,97 @@ public class CppDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
 
     @Override
     public String getStatus() {
-        return "";
+        return JSONUtil.toJsonStr(compileWorkerPool.getMetrics());
     }
 
     /**
      * 删除容器并释放资源
      */
     @Override
-    public void deleteContainer() {
-        DockerCommonUtils.deleteContainer(containerId,dockerClient);
+    public void deleteContainer(ExecuteContext context) {
+        if (context.getContainerId() != null) {
+            DockerCommonUtils.deleteContainer(context.getContainerId(), dockerClient);
+        }
+    }
+
+    @Override
+    protected CompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    @Override
+    protected WorkspaceManager getWorkspaceManager() {
+        return workspaceManager;
+    }
+
+    @Override
+    protected String getCompileFlags(ExecuteContext context) {
+        return String.format(CmdConstant.CPP_COMPILE_CMD, getProfileFlags(context.getExecuteRequest()));
     }
 
     /**
-     * 编译代码文件
-     * @param file 代码文件
-     * @return 编辑结果
+     * 请求选择的编译配置名称，未指定时使用默认配置
      */
+    private String getProfile(ExecuteRequest executeRequest) {
+        return StrUtil.blankToDefault(executeRequest.getCompileProfile(), cppCompileWorkerProperties.getDefaultProfile());
+    }
+
+    private String getProfileFlags(ExecuteRequest executeRequest) {
+        return StrUtil.nullToEmpty(cppCompileWorkerProperties.getProfiles().get(getProfile(executeRequest)));
+    }
+
     @Override
-    public CompileMessage compileCode(File file) {
+    protected boolean isCompileArtifact(File file) {
+        return DockerConstant.DOCKER_GCC_COMPILE_NAME.equals(file.getName());
+    }
+
+    /**
+     * 创建并启动运行用的 gcc 容器
+     * @param context 执行上下文
+     * @return 容器 id
+     */
+    private String createContainer(ExecuteContext context) {
         // 1. 创建 gcc 容器
         CreateContainerCmd containerCmd = dockerClient.createContainerCmd(DockerConstant.DOCKER_GCC_IMAGE);
-        // 1.1 同步本地代码文件到容器中
+        // 1.1 同步本地代码文件到容器中，只读挂载，运行时不能写入宿主机的内存文件系统
         HostConfig hostConfig = new HostConfig();
-        String userCodePath = file.getParentFile().getAbsolutePath(); // 获取代码文件的父目录路径
-        hostConfig.setBinds(new Bind(userCodePath, new Volume(DockerConstant.DOCKER_CODE_PATH)));
+        String userCodePath = context.getUserCodePath(); // 获取代码文件的父目录路径
+        hostConfig.setBinds(new Bind(userCodePath, new Volume(DockerConstant.DOCKER_CODE_PATH), AccessMode.ro));
+        // 每个并行运行的用例一个 CPU 与 caseMemory 内存，不使用交换空间
+        int parallelism = Math.max(cppDockerCodeBoxProperties.getParallelism(), 1);
+        long memory = cppDockerCodeBoxProperties.getCaseMemory() * parallelism;
+        hostConfig.withMemory(memory);
+        hostConfig.withMemorySwap(memory);
+        hostConfig.withNanoCPUs(DockerConstant.DOCKER_CASE_NANO_CPUS * parallelism);
         // 1.2 执行创建容器
         CreateContainerResponse response = containerCmd.withHostConfig(hostConfig)
                 .withNetworkDisabled(true)
+                .withReadonlyRootfs(true)   // 限制对 root 目录的写权限
                 .withAttachStdin(true)
                 .withAttachStderr(true)
                 .withAttachStdout(true)
                 .withTty(true)
                 .exec();
-        containerId = response.getId();
+        String containerId = response.getId();
+        context.setContainerId(containerId);
         // 2.启动容器
         StartContainerCmd startContainerCmd = dockerClient.startContainerCmd(containerId);
         startContainerCmd.exec();
-        // 3.构建编译命令
-        String[] cmd = new String[]{
-                "sh","-c",
-                "g++ -o /app/" + DockerConstant.DOCKER_GCC_COMPILE_NAME + " " + DockerConstant.DOCKER_CODE_PATH + "/Main.cpp"
-        };
-
-        ExecCreateCmdResponse cmdResponse = dockerClient.execCreateCmd(containerId)
-                .withCmd(cmd)
-                .withAttachStderr(true)
-                .withAttachStdout(true)
-                .exec();
-        String execId = cmdResponse.getId();
-        if (StrUtil.isBlank(execId)){
-            return CompileMessage.builder()
-                    .success(false)
-                    .reason("Failed to compile the cpp file")
-                    .build();
-        }
-        // 4.执行编译命令
-        // 4.1 构建执行回调函数
-        CompileMessage compileMessage = new CompileMessage();
-        ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback(){
-            @Override
-            public void onNext(Frame frame) {
-                StreamType streamType = frame.getStreamType();
-                if (StreamType.STDERR.equals(streamType)){
-                    compileMessage.setSuccess(false);
-                } else {
-                    compileMessage.setSuccess(true);
-                }
-                String payload = new String(frame.getPayload());
-                // 去掉所有换行符
-                payload = payload.replaceAll("\\R", "");
-                compileMessage.setReason(payload);
-                System.out.println("Execution result：" + new String(frame.getPayload()));
-                super.onNext(frame);
-            }
-        };
-        // 4.2 执行编译指令
-        try{
-            dockerClient.execStartCmd(execId)
-                    .exec(execStartResultCallback)
-                    .awaitCompletion();
-        }catch (InterruptedException e){
-            log.error("The program execution compile is abnormal，{}", e.getStackTrace());
-            throw new RuntimeException(e);
-        }
+        return containerId;
+    }
 
-        // 5. 编译成功返回
-        compileMessage.setSuccess(true);
-        return compileMessage;
+    /**
+     * 编译代码文件，编译任务交给常驻编译容器执行，该编译配置的预编译头就绪时引入预编译头
+     * @param context 执行上下文
+     * @return 编译结果
+     */
+    @Override
+    public CompileMessage compileCode(ExecuteContext context) {
+        ExecuteRequest executeRequest = context.getExecuteRequest();
+        String flags = StrUtil.join(" ", precompiledHeaders.includeFlags(getProfile(executeRequest)),
+                getProfileFlags(executeRequest)).trim();
+        return compileWorkerPool.compile(new File(context.getUserCodePath()),
+                String.format(CmdConstant.CPP_COMPILE_CMD, flags), DockerConstant.DOCKER_GCC_COMPILE_NAME);
     }
 
     @Override
@@ -195,20 +282,28 @@ public class CppDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
                     .reason("Dangerous or sensitive code exists")
                     .build();
         }
+        if (!cppCompileWorkerProperties.getProfiles().containsKey(getProfile(executeRequest))) {
+            return PreExecMessage.builder()
+                    .success(false)
+                    .reason("Unsupported compile profile")
+                    .build();
+        }
         return PreExecMessage.builder()
                 .success(true)
                 .build();
     }
 
     @Override
-    public PreRunMessage preRunCode(String userCodePath) {
+    public PreRunMessage preRunCode(ExecuteContext context) {
+        createContainer(context);
         return PreRunMessage.builder()
                 .success(true)
                 .build();
     }
 
     @Override
-    public RunCodeMessage runCode(List<String> inputs, String userCodePath) {
+    public RunCodeMessage runCode(ExecuteContext context) {
+        List<String> inputs = context.getExecuteRequest().getInputs();
         // 1.运行前准备 输出的收集 执行信息的收集
         if (ObjectUtil.isNull(inputs)) {
             return RunCodeMessage.builder()
@@ -218,30 +313,44 @@ public class CppDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
         }
         List<String> outputs = new ArrayList<>();
         List<ExecuteInfo> executeInfos = new ArrayList<>();
-        // 2.开始执行程序
-        for (String input : inputs) {
-
-            // 2.1 将输入数据写入到容器内的文件
-            String inputFilePath = DockerConstant.DOCKER_CODE_PATH + DockerConstant.DOCKER_TEST_CASE_INPUT;
-            String hostInputFilePath = userCodePath + DockerConstant.DOCKER_TEST_CASE_INPUT;
-            FileUtil.writeString(input, hostInputFilePath, StandardCharsets.UTF_8);
-
-            // 2.2 构建运行 cpp 文件的命令
-            String[] command = new String[]{
-                    "sh", "-c","./app/main.exe < "+ inputFilePath
-            };
-
-            // 2.3 运行代码
-            boolean success = LanguageCommonUtils.runCode(outputs, executeInfos, command, containerId, dockerClient);
-            if (!success){
+        // 2.开始执行程序，至多同时运行 parallelism 个用例
+        List<CaseResult> caseResults = ParallelCaseUtils.runInOrder(inputs.size(),
+                cppDockerCodeBoxProperties.getParallelism(), index -> {
+                    if (context.isStopped()) {
+                        // 失败用例数已达到执行策略的上限，不再开始运行
+                        CaseResult skipped = context.skipCase();
+                        context.publishCase(index, skipped.getOutput(), skipped.getExecuteInfo());
+                        return skipped;
+                    }
+                    // 2.1 构建运行 cpp 文件的命令，限制单个用例的虚拟内存后运行可执行文件
+                    String[] command = new String[]{"sh", "-c", String.format(CmdConstant.CPP_DOCKER_RUN_CMD,
+                            cppDockerCodeBoxProperties.getCaseMemory() / 1024,
+                            DockerConstant.DOCKER_CODE_PATH + "/" + DockerConstant.DOCKER_GCC_COMPILE_NAME)};
+
+                    // 2.2 运行代码，输入数据通过标准输入写入，判题时标准输出流式写入比较器
+                    Charset charset = Charset.forName(cppDockerCodeBoxProperties.getOutputCharset());
+                    CaseResult caseResult = LanguageCommonUtils.runCase(command, inputs.get(index),
+                            context.getContainerId(), dockerClient, stdinDockerClient,
+                            cppDockerCodeBoxProperties.getOutputLimit(),
+                            charset, context.createJudge(index, charset),
+                            cppDockerCodeBoxProperties.getParallelism() > 1);
+                    if (caseResult != null) {
+                        context.recordCase(caseResult.getExecuteInfo());
+                        context.publishCase(index, caseResult.getOutput(), caseResult.getExecuteInfo());
+                    }
+                    return caseResult;
+                });
+        for (CaseResult caseResult : caseResults) {
+            if (caseResult == null){
                return RunCodeMessage.builder()
                         .success(false)
                         .exceptionMessage("The use case failed to execute")
                         .build();
             }
+            outputs.add(caseResult.getOutput());
+            executeInfos.add(caseResult.getExecuteInfo());
         }
-        System.out.println(outputs);
-        System.out.println(executeInfos);
+        log.debug("Outputs: {}, execute infos: {}", outputs, executeInfos);
         return RunCodeMessage.builder()
                 .success(true)
                 .outputs(outputs)
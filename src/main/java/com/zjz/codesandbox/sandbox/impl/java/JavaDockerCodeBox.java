@@ -2,31 +2,51 @@ package com.zjz.codesandbox.sandbox.impl.java;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.json.JSONUtil;
 import com.github.dockerjava.api.DockerClient;
 import com.github.dockerjava.api.command.*;
+import com.github.dockerjava.api.model.AccessMode;
 import com.github.dockerjava.api.model.Bind;
 import com.github.dockerjava.api.model.HostConfig;
-import com.github.dockerjava.api.model.PullResponseItem;
 import com.github.dockerjava.api.model.Volume;
-import com.github.dockerjava.core.DockerClientBuilder;
+import com.zjz.codesandbox.config.CodeBoxProperties;
+import com.zjz.codesandbox.config.ContainerPoolProperties;
+import com.zjz.codesandbox.constant.CmdConstant;
 import com.zjz.codesandbox.constant.DockerConstant;
 import com.zjz.codesandbox.model.dto.CompileMessage;
 import com.zjz.codesandbox.model.dto.PreExecMessage;
 import com.zjz.codesandbox.model.dto.PreRunMessage;
 import com.zjz.codesandbox.model.dto.RunCodeMessage;
+import com.zjz.codesandbox.model.enums.CodeBoxStatusEnum;
+import com.zjz.codesandbox.model.enums.ImageStatusEnum;
+import com.zjz.codesandbox.model.enums.JavaCompileModeEnum;
+import com.zjz.codesandbox.model.enums.JavaRunModeEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
 import com.zjz.codesandbox.model.execute.ExecuteInfo;
 import com.zjz.codesandbox.model.execute.ExecuteRequest;
 import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.model.process.ProcessMessage;
 import com.zjz.codesandbox.sandbox.CodeBox;
+import com.zjz.codesandbox.sandbox.ExecuteContext;
 import com.zjz.codesandbox.sandbox.ExecuteCodeTemplate;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.image.ImageBootstrap;
+import com.zjz.codesandbox.sandbox.pool.DockerContainerPool;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+import com.zjz.codesandbox.utils.BatchRunnerUtils;
 import com.zjz.codesandbox.utils.DockerCommonUtils;
 import com.zjz.codesandbox.utils.LanguageCommonUtils;
+import com.zjz.codesandbox.utils.ParallelCaseUtils;
 import com.zjz.codesandbox.utils.VerifyUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -54,50 +74,166 @@ public class JavaDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
 //        javaDockerCodeBox.executeCode(java);
 //    }
 
-    private final DockerClient dockerClient = DockerClientBuilder.getInstance().build();
+    private static final String LANGUAGE = "java";
 
-    private String containerId;
+    /**
+     * 池中各容器独占目录在用户代码根目录下的目录名
+     */
+    private static final String CONTAINER_DIR_NAME = ".containers";
+
+    @Resource
+    private DockerClient dockerClient;
 
     /**
-     * Docker Java镜像拉取 在类加载时只执行一次
+     * 只用于启动带标准输入的 exec
      */
-    static {
-        DockerClient dockerClient = DockerClientBuilder.getInstance().build();
-        // 检查镜像是否已经存在
-        boolean imageExists = dockerClient.listImagesCmd().exec().stream()
-                .anyMatch(image -> image.getRepoTags() != null &&
-                        Arrays.asList(image.getRepoTags()).contains(DockerConstant.DOCKER_JAVA_IMAGE));
-        if (!imageExists){
-            // 不存在 Java 环境镜像
-            PullImageCmd pullImageCmd = dockerClient.pullImageCmd(DockerConstant.DOCKER_JAVA_IMAGE);
-            PullImageResultCallback pullImageResultCallback = new PullImageResultCallback() {
-                @Override
-                public void onNext(PullResponseItem item) {
-                    log.info("Download Image：{}", item.getStatus());
-                    super.onNext(item);
-                }
-            };
-            try {
-                pullImageCmd
-                        .exec(pullImageResultCallback)
-                        .awaitCompletion();
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }else {
-            log.info("Image already exists: {}",DockerConstant.DOCKER_JAVA_IMAGE);
+    @Resource
+    private DockerClient stdinDockerClient;
+
+    @Resource
+    private ContainerPoolProperties javaContainerPoolProperties;
+
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private CodeBoxProperties javaDockerCodeBoxProperties;
+
+    @Resource
+    private ImageBootstrap imageBootstrap;
+
+    private DockerContainerPool containerPool;
+
+    /**
+     * 镜像已就绪且容器池已启动
+     */
+    private volatile boolean started = false;
+
+    /**
+     * 镜像就绪后启动容器池失败
+     */
+    private volatile boolean startFailed = false;
+
+    private AdmissionLimiter admissionLimiter;
+
+    /**
+     * 按配置初始化准入控制
+     */
+    @PostConstruct
+    public void initAdmissionLimiter() {
+        admissionLimiter = new AdmissionLimiter(getBoxName(), javaDockerCodeBoxProperties.getMaxConcurrent(),
+                javaDockerCodeBoxProperties.getQueueCapacity(), javaDockerCodeBoxProperties.getQueueTimeout());
+    }
+
+    @Override
+    public String getBoxName() {
+        return "java-docker";
+    }
+
+    @Override
+    public AdmissionLimiter getAdmissionLimiter() {
+        return admissionLimiter;
+    }
+
+    @Override
+    public CodeBoxStatusEnum getBoxStatus() {
+        if (startFailed) {
+            return CodeBoxStatusEnum.ERROR;
+        }
+        // 至少创建了一个容器后才接收请求，预热失败时由容器池的定时维护任务继续创建
+        if (started && containerPool.hasContainers()) {
+            return CodeBoxStatusEnum.RUNNING;
         }
+        return imageBootstrap.getStatus(DockerConstant.DOCKER_JAVA_IMAGE) == ImageStatusEnum.FAILED
+                ? CodeBoxStatusEnum.ERROR : CodeBoxStatusEnum.STARTING;
     }
 
+    /**
+     * 初始化预热容器池
+     * 池中每个容器只将自己独占的宿主机目录只读挂载到 /app，租用后复制本次提交的文件进去运行，
+     * 容器内看不到其他提交的代码与输入
+     * Java 镜像在后台准备，就绪后再预热容器并开始接收请求
+     */
+    @PostConstruct
+    public void initContainerPool() {
+        String globalCodePath = getGlobalCodePath(LANGUAGE);
+        FileUtil.mkdir(globalCodePath);
+        containerPool = new DockerContainerPool(dockerClient, DockerConstant.DOCKER_JAVA_IMAGE,
+                new File(globalCodePath, CONTAINER_DIR_NAME), hostDir -> {
+                    HostConfig hostConfig = new HostConfig();
+                    hostConfig.setBinds(new Bind(hostDir.getAbsolutePath(),
+                            new Volume(DockerConstant.DOCKER_CODE_PATH), AccessMode.ro));
+                    // 每个并行运行的用例一个 CPU 与 caseMemory 内存，不使用交换空间
+                    int parallelism = Math.max(javaDockerCodeBoxProperties.getParallelism(), 1);
+                    long memory = javaDockerCodeBoxProperties.getCaseMemory() * parallelism;
+                    hostConfig.withMemory(memory);
+                    hostConfig.withMemorySwap(memory);
+                    hostConfig.withNanoCPUs(DockerConstant.DOCKER_CASE_NANO_CPUS * parallelism);
+                    return hostConfig;
+                }, javaContainerPoolProperties);
+        imageBootstrap.prepare(DockerConstant.DOCKER_JAVA_IMAGE).thenRun(() -> {
+            containerPool.start();
+            started = true;
+        }).whenComplete((unused, e) -> {
+            if (e != null) {
+                startFailed = true;
+                log.error("Failed to start container pool for {}", DockerConstant.DOCKER_JAVA_IMAGE, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void destroyContainerPool() {
+        containerPool.close();
+    }
+
+    /**
+     * 归还容器到容器池
+     */
+    @Override
+    public void deleteContainer(ExecuteContext context) {
+        containerPool.release(context.getContainerId());
+        context.setContainerId(null);
+    }
+
+    @Override
+    protected CompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    @Override
+    protected WorkspaceManager getWorkspaceManager() {
+        return workspaceManager;
+    }
+
+    @Override
+    protected String getCompileFlags(ExecuteContext context) {
+        if (getCompileMode() == JavaCompileModeEnum.IN_PROCESS) {
+            return String.join(" ", javaDockerCodeBoxProperties.getCompileOptions());
+        }
+        return CmdConstant.JAVA_COMPILE_CMD;
+    }
 
     @Override
-    public void deleteContainer() {
-        DockerCommonUtils.deleteContainer(containerId,dockerClient);
+    protected boolean isCompileArtifact(File file) {
+        return file.getName().endsWith(".class");
     }
 
     @Override
-    public CompileMessage compileCode(File file) {
-        return LanguageCommonUtils.compileJavaCode(file);
+    public CompileMessage compileCode(ExecuteContext context) {
+        return LanguageCommonUtils.compileJavaCode(
+                context.getCodeFile(), getCompileMode(), javaDockerCodeBoxProperties.getCompileOptions());
+    }
+
+    /**
+     * 获取编译方式，未配置或配置错误时使用 javac 进程编译
+     */
+    private JavaCompileModeEnum getCompileMode() {
+        JavaCompileModeEnum compileMode = JavaCompileModeEnum.getEnumByValue(javaDockerCodeBoxProperties.getCompileMode());
+        return compileMode == null ? JavaCompileModeEnum.PROCESS : compileMode;
     }
 
     @Override
@@ -116,34 +252,28 @@ public class JavaDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
     }
 
     @Override
-    public PreRunMessage preRunCode(String userCodePath) {
-        // 创建 Java 创建容器
-        CreateContainerCmd containerCmd = dockerClient.createContainerCmd(DockerConstant.DOCKER_JAVA_IMAGE);
-        HostConfig hostConfig = new HostConfig();
-        // 将本地文件同步到容器中
-        hostConfig.setBinds(new Bind(userCodePath, new Volume(DockerConstant.DOCKER_CODE_PATH)));
-        hostConfig.withMemory(DockerConstant.DOCKER_JAVA_MEMORY);
-        hostConfig.withMemorySwap(0L);
-        CreateContainerResponse response = containerCmd
-                .withHostConfig(hostConfig)
-                .withNetworkDisabled(true)  // 网络限制
-                .withReadonlyRootfs(true)   // 限制对 root 目录的写权限
-                .withAttachStdin(true)
-                .withAttachStderr(true)
-                .withAttachStdout(true)
-                .withTty(true)
-                .exec();
-        containerId = response.getId();
-        // 启动容器
-        StartContainerCmd startContainerCmd = dockerClient.startContainerCmd(containerId);
-        startContainerCmd.exec();
+    public PreRunMessage preRunCode(ExecuteContext context) {
+        // 从容器池租用已启动的 Java 容器
+        try {
+            context.setContainerId(containerPool.lease());
+        } catch (IllegalStateException e) {
+            log.error("Failed to lease container: {}", e.getMessage());
+            return PreRunMessage.builder()
+                    .success(false)
+                    .reason("The sandbox is busy, please try again later")
+                    .build();
+        }
+        // 将编译产物复制到容器独占的目录，归还容器时清空
+        FileUtil.copyContent(new File(context.getUserCodePath()),
+                containerPool.getHostDir(context.getContainerId()), true);
         return PreRunMessage.builder()
                 .success(true)
                 .build();
     }
 
     @Override
-    public RunCodeMessage runCode(List<String> inputs, String userCodePath) {
+    public RunCodeMessage runCode(ExecuteContext context) {
+        List<String> inputs = context.getExecuteRequest().getInputs();
 
         if (ObjectUtil.isNull(inputs)) {
             return RunCodeMessage.builder()
@@ -153,25 +283,50 @@ public class JavaDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
         }
         List<String> outputs = new ArrayList<>();
         List<ExecuteInfo> executeInfos = new ArrayList<>();
-        for (String input : inputs) {
-            // 将输入数据写入到容器内的文件
-            String inputFilePath = DockerConstant.DOCKER_CODE_PATH + DockerConstant.DOCKER_TEST_CASE_INPUT;
-            String hostInputFilePath = userCodePath + DockerConstant.DOCKER_TEST_CASE_INPUT;
-            FileUtil.writeString(input, hostInputFilePath, StandardCharsets.UTF_8);
-
-            // 构建要执行的命令
-            String[] cmd = new String[]{
-                    "sh", "-c",
-                    "java -cp " + DockerConstant.DOCKER_CODE_PATH + " Main < " + inputFilePath
-            };
-
-            boolean success = LanguageCommonUtils.runCode(outputs, executeInfos, cmd, containerId, dockerClient);
-            if (!success){
+        // 容器独占目录挂载在 /app，其中只有本次提交的文件
+        String containerCodePath = DockerConstant.DOCKER_CODE_PATH;
+        int batchCompleted = 0;
+        if (getRunMode() == JavaRunModeEnum.BATCH) {
+            batchCompleted = runBatch(context, containerCodePath, outputs, executeInfos);
+            for (int i = 0; i < batchCompleted; i++) {
+                context.recordCase(executeInfos.get(i));
+                context.publishCase(i, outputs.get(i), executeInfos.get(i));
+            }
+        }
+        // 批量运行未完成的用例（超时后的剩余用例）逐个启动 JVM 运行，至多同时运行 parallelism 个
+        int offset = batchCompleted;
+        List<CaseResult> caseResults = ParallelCaseUtils.runInOrder(inputs.size() - offset,
+                javaDockerCodeBoxProperties.getParallelism(), i -> {
+                    int index = offset + i;
+                    if (context.isStopped()) {
+                        // 失败用例数已达到执行策略的上限，不再开始运行
+                        CaseResult skipped = context.skipCase();
+                        context.publishCase(index, skipped.getOutput(), skipped.getExecuteInfo());
+                        return skipped;
+                    }
+                    // 直接运行 java，输入通过标准输入写入
+                    String heapOption = LanguageCommonUtils.javaHeapOption(javaDockerCodeBoxProperties.getCaseMemory());
+                    String[] cmd = new String[]{"java", heapOption, "-cp", containerCodePath, "Main"};
+                    CaseResult caseResult = LanguageCommonUtils.runCase(cmd, inputs.get(index),
+                            context.getContainerId(), dockerClient, stdinDockerClient,
+                            javaDockerCodeBoxProperties.getOutputLimit(),
+                            getOutputCharset(), context.createJudge(index, getOutputCharset()),
+                            javaDockerCodeBoxProperties.getParallelism() > 1);
+                    if (caseResult != null) {
+                        context.recordCase(caseResult.getExecuteInfo());
+                        context.publishCase(index, caseResult.getOutput(), caseResult.getExecuteInfo());
+                    }
+                    return caseResult;
+                });
+        for (CaseResult caseResult : caseResults) {
+            if (caseResult == null){
                 return RunCodeMessage.builder()
                         .success(false)
                         .exceptionMessage("The use case failed to execute")
                         .build();
             }
+            outputs.add(caseResult.getOutput());
+            executeInfos.add(caseResult.getExecuteInfo());
         }
         return RunCodeMessage.builder()
                 .success(true)
@@ -180,6 +335,47 @@ public class JavaDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
                 .build();
     }
 
+    /**
+     * 在容器内的同一个 JVM 中批量运行所有测试用例
+     * @return 批量运行器完成的用例数量
+     */
+    private int runBatch(ExecuteContext context, String containerCodePath,
+                         List<String> outputs, List<ExecuteInfo> executeInfos) {
+        List<String> inputs = context.getExecuteRequest().getInputs();
+        if (inputs.isEmpty() || !BatchRunnerUtils.prepare(
+                containerPool.getHostDir(context.getContainerId()).getAbsolutePath(), inputs,
+                context.getWorkspace().getMaxBytes())) {
+            return 0;
+        }
+        long outputLimit = javaDockerCodeBoxProperties.getOutputLimit();
+        String[] cmd = BatchRunnerUtils.buildDockerCommand(containerCodePath, inputs.size(), outputLimit,
+                context.getMaxFailures(), javaDockerCodeBoxProperties.getCaseMemory());
+        String nonce = BatchRunnerUtils.newNonce();
+        ProcessMessage runMessage = LanguageCommonUtils.execAndCollect(cmd, BatchRunnerUtils.buildDockerEnv(nonce),
+                context.getContainerId(), dockerClient, BatchRunnerUtils.getBatchTimeout(inputs.size()),
+                BatchRunnerUtils.getBatchOutputLimit(inputs.size(), outputLimit));
+        int completed = BatchRunnerUtils.collectResults(
+                BatchRunnerUtils.parseResults(runMessage.getSuccessMsg(), getOutputCharset(), nonce), outputs, executeInfos,
+                index -> context.createJudge(index, getOutputCharset()));
+        log.info("批量运行完成用例数：{}/{}", completed, inputs.size());
+        return completed;
+    }
+
+    /**
+     * 获取程序输出的编码
+     */
+    private Charset getOutputCharset() {
+        return Charset.forName(javaDockerCodeBoxProperties.getOutputCharset());
+    }
+
+    /**
+     * 获取运行方式，未配置或配置错误时每个用例启动一个 JVM
+     */
+    private JavaRunModeEnum getRunMode() {
+        JavaRunModeEnum runMode = JavaRunModeEnum.getEnumByValue(javaDockerCodeBoxProperties.getRunMode());
+        return runMode == null ? JavaRunModeEnum.PER_CASE : runMode;
+    }
+
     @Override
     public ExecuteResponse executeCode(ExecuteRequest executeRequest) {
         return exec(executeRequest);
@@ -187,6 +383,6 @@ public class JavaDockerCodeBox extends ExecuteCodeTemplate implements CodeBox {
 
     @Override
     public String getStatus() {
-        return null;
+        return JSONUtil.toJsonStr(containerPool.getMetrics());
     }
 }
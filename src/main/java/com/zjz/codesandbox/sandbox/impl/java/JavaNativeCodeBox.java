@@ -1,25 +1,41 @@
 package com.zjz.codesandbox.sandbox.impl.java;
 
 import cn.hutool.core.util.ObjectUtil;
+import com.zjz.codesandbox.config.CodeBoxProperties;
 import com.zjz.codesandbox.constant.CmdConstant;
+import com.zjz.codesandbox.constant.CommonConstant;
 import com.zjz.codesandbox.model.dto.CompileMessage;
 import com.zjz.codesandbox.model.dto.PreExecMessage;
 import com.zjz.codesandbox.model.dto.PreRunMessage;
 import com.zjz.codesandbox.model.dto.RunCodeMessage;
+import com.zjz.codesandbox.model.enums.JavaCompileModeEnum;
+import com.zjz.codesandbox.model.enums.JavaRunModeEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
 import com.zjz.codesandbox.model.execute.ExecuteInfo;
 import com.zjz.codesandbox.model.execute.ExecuteRequest;
 import com.zjz.codesandbox.model.execute.ExecuteResponse;
 import com.zjz.codesandbox.model.process.ProcessMessage;
 import com.zjz.codesandbox.sandbox.CodeBox;
+import com.zjz.codesandbox.sandbox.ExecuteContext;
 import com.zjz.codesandbox.sandbox.ExecuteCodeTemplate;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.cache.CompileCache;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+import com.zjz.codesandbox.utils.BatchRunnerUtils;
+import com.zjz.codesandbox.utils.JudgeUtils;
 import com.zjz.codesandbox.utils.LanguageCommonUtils;
 import com.zjz.codesandbox.utils.ProcessUtils;
 import com.zjz.codesandbox.utils.VerifyUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -45,12 +61,74 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
 //        javaNativeCodeBox.executeCode(java);
 //    }
 
+    @Resource
+    private CompileCache compileCache;
+
+    @Resource
+    private WorkspaceManager workspaceManager;
+
+    @Resource
+    private CodeBoxProperties javaNativeCodeBoxProperties;
+
+    private AdmissionLimiter admissionLimiter;
+
+    /**
+     * 按配置初始化准入控制
+     */
+    @PostConstruct
+    public void initAdmissionLimiter() {
+        admissionLimiter = new AdmissionLimiter(getBoxName(), javaNativeCodeBoxProperties.getMaxConcurrent(),
+                javaNativeCodeBoxProperties.getQueueCapacity(), javaNativeCodeBoxProperties.getQueueTimeout());
+    }
+
+    @Override
+    public String getBoxName() {
+        return "java-native";
+    }
+
+    @Override
+    public AdmissionLimiter getAdmissionLimiter() {
+        return admissionLimiter;
+    }
+
+    @Override
+    public void deleteContainer(ExecuteContext context) {}
+
+    @Override
+    protected CompileCache getCompileCache() {
+        return compileCache;
+    }
+
+    @Override
+    protected WorkspaceManager getWorkspaceManager() {
+        return workspaceManager;
+    }
+
+    @Override
+    protected String getCompileFlags(ExecuteContext context) {
+        if (getCompileMode() == JavaCompileModeEnum.IN_PROCESS) {
+            return String.join(" ", javaNativeCodeBoxProperties.getCompileOptions());
+        }
+        return CmdConstant.JAVA_COMPILE_CMD;
+    }
+
     @Override
-    public void deleteContainer() {}
+    protected boolean isCompileArtifact(File file) {
+        return file.getName().endsWith(".class");
+    }
 
     @Override
-    public CompileMessage compileCode(File file) {
-        return LanguageCommonUtils.compileJavaCode(file);
+    public CompileMessage compileCode(ExecuteContext context) {
+        return LanguageCommonUtils.compileJavaCode(
+                context.getCodeFile(), getCompileMode(), javaNativeCodeBoxProperties.getCompileOptions());
+    }
+
+    /**
+     * 获取编译方式，未配置或配置错误时使用 javac 进程编译
+     */
+    private JavaCompileModeEnum getCompileMode() {
+        JavaCompileModeEnum compileMode = JavaCompileModeEnum.getEnumByValue(javaNativeCodeBoxProperties.getCompileMode());
+        return compileMode == null ? JavaCompileModeEnum.PROCESS : compileMode;
     }
 
     @Override
@@ -69,7 +147,7 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
     }
 
     @Override
-    public PreRunMessage preRunCode(String userCodePath) {
+    public PreRunMessage preRunCode(ExecuteContext context) {
         log.info("Preparation is completed before execution");
         return PreRunMessage.builder()
                 .success(true)
@@ -77,7 +155,9 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
     }
 
     @Override
-    public RunCodeMessage runCode(List<String> inputs,String userCodePath) {
+    public RunCodeMessage runCode(ExecuteContext context) {
+        List<String> inputs = context.getExecuteRequest().getInputs();
+        String userCodePath = context.getUserCodePath();
         if (ObjectUtil.isNull(inputs)) {
             return RunCodeMessage.builder()
                     .success(false)
@@ -86,19 +166,45 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
         }
         List<String> outputs = new ArrayList<>();
         List<ExecuteInfo> executeInfos = new ArrayList<>();
-        for (String input : inputs) {
-            String runCommand = String.format(CmdConstant.JAVA_RUN_CMD,userCodePath,input);
+        int batchCompleted = 0;
+        if (getRunMode() == JavaRunModeEnum.BATCH) {
+            batchCompleted = runBatch(context, outputs, executeInfos);
+            for (int i = 0; i < batchCompleted; i++) {
+                context.recordCase(executeInfos.get(i));
+                context.publishCase(i, outputs.get(i), executeInfos.get(i));
+            }
+        }
+        // 批量运行未完成的用例（超时后的剩余用例）逐个启动 JVM 运行
+        for (int index = batchCompleted; index < inputs.size(); index++) {
+            if (context.isStopped()) {
+                // 失败用例数已达到执行策略的上限
+                CaseResult skipped = context.skipCase();
+                outputs.add(skipped.getOutput());
+                executeInfos.add(skipped.getExecuteInfo());
+                context.publishCase(index, skipped.getOutput(), skipped.getExecuteInfo());
+                continue;
+            }
+            String input = inputs.get(index);
+            String runCommand = String.format(CmdConstant.JAVA_RUN_CMD,
+                    LanguageCommonUtils.javaHeapOption(javaNativeCodeBoxProperties.getCaseMemory()), userCodePath);
             try {
-                Process exec = Runtime.getRuntime().exec(runCommand);
-
-                ProcessMessage runMessage
-                        = ProcessUtils.runProcessAndMessage(exec, CmdConstant.RUN_OPERATION_NAME,input);
+                // 程序退出时的峰值内存写入用户代码目录，随工作区清理
+                File peakFile = new File(userCodePath, "case-" + index + ".peak");
+                Process exec = ProcessUtils.exec(runCommand, peakFile);
+                // 判题时标准输出直接写入比较器，不保存
+                OutputJudge judge = context.createJudge(index, getOutputCharset());
+                ProcessMessage runMessage = ProcessUtils.runProcessAndMessage(exec, CmdConstant.RUN_OPERATION_NAME,
+                        input, CommonConstant.TIME_OUT, javaNativeCodeBoxProperties.getOutputLimit(), getOutputCharset(),
+                        judge, peakFile);
                 ExecuteInfo executeInfo = new ExecuteInfo();
+                if (judge != null) {
+                    executeInfo.setVerdict(JudgeUtils.verdict(runMessage, judge));
+                }
                 executeInfo.setTime(runMessage.getExecuteTime());
                 executeInfo.setMemory(runMessage.getMemoryUsage());
                 log.info("执行用时：" + runMessage.getExecuteTime() + "ms");
                 log.info("执行内存：" + runMessage.getMemoryUsage() + "KB");
-                if (runMessage.getExitCode() == 0) {
+                if (runMessage.getExitCode() == 0 && !Boolean.TRUE.equals(runMessage.getOutputLimitExceeded())) {
                     executeInfo.setMessage("success");
                     String payload = runMessage.getSuccessMsg();
                     payload = payload.replaceAll("\\R", "");
@@ -112,6 +218,8 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
 //                    System.out.println("执行结果：" + runMessage.getErrorMsg());
                 }
                 executeInfos.add(executeInfo);
+                context.recordCase(executeInfo);
+                context.publishCase(index, outputs.get(index), executeInfo);
             } catch (IOException e){
                 throw new RuntimeException("Process Error");
             }
@@ -123,6 +231,52 @@ public class JavaNativeCodeBox extends ExecuteCodeTemplate implements CodeBox {
                 .build();
     }
 
+    /**
+     * 在同一个 JVM 内批量运行所有测试用例
+     * @return 批量运行器完成的用例数量
+     */
+    private int runBatch(ExecuteContext context, List<String> outputs, List<ExecuteInfo> executeInfos) {
+        List<String> inputs = context.getExecuteRequest().getInputs();
+        String userCodePath = context.getUserCodePath();
+        if (inputs.isEmpty() || !BatchRunnerUtils.prepare(userCodePath, inputs,
+                context.getWorkspace().getMaxBytes())) {
+            return 0;
+        }
+        long outputLimit = javaNativeCodeBoxProperties.getOutputLimit();
+        String runCommand = BatchRunnerUtils.buildNativeCommand(userCodePath, inputs.size(), outputLimit,
+                context.getMaxFailures(), javaNativeCodeBoxProperties.getCaseMemory());
+        String nonce = BatchRunnerUtils.newNonce();
+        try {
+            Process exec = Runtime.getRuntime().exec(runCommand, BatchRunnerUtils.buildNativeEnv(nonce));
+            // 批量运行器的输出为 Base64 编码，按 ASCII 读取，用例输出在解析时再按配置的编码解码
+            ProcessMessage runMessage = ProcessUtils.runProcessAndMessage(exec, CmdConstant.RUN_OPERATION_NAME, "",
+                    BatchRunnerUtils.getBatchTimeout(inputs.size()),
+                    BatchRunnerUtils.getBatchOutputLimit(inputs.size(), outputLimit), StandardCharsets.US_ASCII);
+            int completed = BatchRunnerUtils.collectResults(
+                    BatchRunnerUtils.parseResults(runMessage.getSuccessMsg(), getOutputCharset(), nonce), outputs, executeInfos,
+                    index -> context.createJudge(index, getOutputCharset()));
+            log.info("批量运行完成用例数：{}/{}", completed, inputs.size());
+            return completed;
+        } catch (IOException e){
+            throw new RuntimeException("Process Error");
+        }
+    }
+
+    /**
+     * 获取程序输出的编码
+     */
+    private Charset getOutputCharset() {
+        return Charset.forName(javaNativeCodeBoxProperties.getOutputCharset());
+    }
+
+    /**
+     * 获取运行方式，未配置或配置错误时每个用例启动一个 JVM
+     */
+    private JavaRunModeEnum getRunMode() {
+        JavaRunModeEnum runMode = JavaRunModeEnum.getEnumByValue(javaNativeCodeBoxProperties.getRunMode());
+        return runMode == null ? JavaRunModeEnum.PER_CASE : runMode;
+    }
+
     /**
      * 执行代码
      * @param executeRequest 执行请求
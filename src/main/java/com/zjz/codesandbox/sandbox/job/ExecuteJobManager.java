@@ -0,0 +1,182 @@
+package com.zjz.codesandbox.sandbox.job;
+
+import cn.hutool.cache.CacheUtil;
+import cn.hutool.cache.impl.TimedCache;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpResponse;
+import cn.hutool.json.JSONUtil;
+import com.zjz.codesandbox.config.AsyncJobProperties;
+import com.zjz.codesandbox.model.enums.ExecuteJobStatusEnum;
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.model.job.ExecuteJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 异步执行任务管理
+ * 任务在独立的有界线程池中执行，不占用 Web 请求线程，结束后的结果按 TTL 保留供轮询
+ */
+@Service
+@Slf4j
+public class ExecuteJobManager {
+
+    @Resource
+    private AsyncJobProperties asyncJobProperties;
+
+    private ThreadPoolExecutor jobExecutor;
+
+    /**
+     * 任务 id -> 任务，排队与运行中的任务不过期
+     */
+    private TimedCache<String, ExecuteJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(asyncJobProperties.getThreads(), 1);
+        jobExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(asyncJobProperties.getQueueCapacity(), 1)),
+                ThreadFactoryBuilder.create().setNamePrefix("execute-job-").build());
+        jobs = CacheUtil.newTimedCache(asyncJobProperties.getResultTtl());
+        jobs.schedulePrune(Math.max(asyncJobProperties.getResultTtl() / 2, 1000));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        jobExecutor.shutdownNow();
+        jobs.cancelPruneSchedule();
+    }
+
+    /**
+     * 提交异步执行任务
+     * @param executeRequest 执行请求
+     * @param executor 执行逻辑
+     * @param callbackUrl 完成回调地址，可为空，只允许本机地址
+     * @return 已提交的任务
+     * @throws IllegalArgumentException 回调地址不合法
+     * @throws RejectedExecutionException 等待执行的任务已满
+     */
+    public ExecuteJob submit(ExecuteRequest executeRequest,
+                             Function<ExecuteRequest, ExecuteResponse> executor, String callbackUrl) {
+        if (StrUtil.isNotBlank(callbackUrl) && !isLocalUrl(callbackUrl)) {
+            throw new IllegalArgumentException("The callback url must be a local http url");
+        }
+        String jobId = IdUtil.fastSimpleUUID();
+        ExecuteJob job = ExecuteJob.builder()
+                .jobId(jobId)
+                .status(ExecuteJobStatusEnum.QUEUED.getValue())
+                .submitTime(System.currentTimeMillis())
+                .build();
+        // 未结束的任务不过期
+        jobs.put(jobId, job, 0);
+        try {
+            jobExecutor.execute(() -> runJob(jobId, executeRequest, executor, callbackUrl));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(jobId);
+            log.warn("Execute job queue is full, job rejected");
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * 在任务线程池中执行流式执行任务，与异步任务共用容量
+     * @param task 任务
+     * @throws RejectedExecutionException 等待执行的任务已满
+     */
+    public void execute(Runnable task) {
+        jobExecutor.execute(task);
+    }
+
+    /**
+     * 流式执行事件流的超时时间 ms
+     */
+    public long getStreamTimeout() {
+        return asyncJobProperties.getStreamTimeout();
+    }
+
+    /**
+     * 查询任务
+     * @param jobId 任务 id
+     * @return 任务，不存在或结果已过期时返回 null
+     */
+    public ExecuteJob getJob(String jobId) {
+        // 轮询不刷新过期时间
+        return jobs.get(jobId, false);
+    }
+
+    private void runJob(String jobId, ExecuteRequest executeRequest,
+                        Function<ExecuteRequest, ExecuteResponse> executor, String callbackUrl) {
+        ExecuteJob job = jobs.get(jobId, false).toBuilder()
+                .status(ExecuteJobStatusEnum.RUNNING.getValue())
+                .startTime(System.currentTimeMillis())
+                .build();
+        jobs.put(jobId, job, 0);
+        try {
+            ExecuteResponse response = executor.apply(executeRequest);
+            job = job.toBuilder()
+                    .status(ExecuteJobStatusEnum.FINISHED.getValue())
+                    .response(response)
+                    .message(response.getMessage())
+                    .build();
+        } catch (Exception e) {
+            log.error("Execute job {} failed", jobId, e);
+            job = job.toBuilder()
+                    .status(ExecuteJobStatusEnum.FAILED.getValue())
+                    .message(e.getMessage())
+                    .build();
+        }
+        job.setFinishTime(System.currentTimeMillis());
+        jobs.put(jobId, job);
+        if (StrUtil.isNotBlank(callbackUrl)) {
+            notifyCallback(callbackUrl, job);
+        }
+    }
+
+    /**
+     * 将结束的任务以 JSON 推送到回调地址，失败只记录日志，结果仍可轮询
+     */
+    private void notifyCallback(String callbackUrl, ExecuteJob job) {
+        try (HttpResponse response = HttpRequest.post(callbackUrl)
+                .body(JSONUtil.toJsonStr(job))
+                .timeout(asyncJobProperties.getCallbackTimeout())
+                .execute()) {
+            if (!response.isOk()) {
+                log.warn("Callback of job {} returned status {}", job.getJobId(), response.getStatus());
+            }
+        } catch (Exception e) {
+            log.error("Callback of job {} failed: {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 回调地址只允许指向本机的 http 地址
+     */
+    private boolean isLocalUrl(String url) {
+        try {
+            URI uri = new URI(url);
+            if (!"http".equalsIgnoreCase(uri.getScheme()) && !"https".equalsIgnoreCase(uri.getScheme())) {
+                return false;
+            }
+            return uri.getHost() != null && InetAddress.getByName(uri.getHost()).isLoopbackAddress();
+        } catch (URISyntaxException | UnknownHostException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.zjz.codesandbox.sandbox.job;
+
+import com.zjz.codesandbox.model.enums.ExecuteStageEnum;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.model.execute.ExecuteResponse;
+import com.zjz.codesandbox.model.job.ExecuteCaseEvent;
+import com.zjz.codesandbox.model.job.ExecuteStageEvent;
+import com.zjz.codesandbox.sandbox.ExecuteContext;
+import com.zjz.codesandbox.sandbox.ExecuteListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * 通过 Server-Sent Events 推送执行进度的监听器
+ * 事件：stage 阶段结束，case 测试用例完成，result 最终执行结果，error 执行异常
+ * 客户端断开后不再推送，执行本身继续完成以便清理文件与容器
+ */
+@Slf4j
+public class SseExecuteListener implements ExecuteListener {
+
+    public static final String STAGE_EVENT = "stage";
+
+    public static final String CASE_EVENT = "case";
+
+    public static final String RESULT_EVENT = "result";
+
+    public static final String ERROR_EVENT = "error";
+
+    private final SseEmitter emitter;
+
+    /**
+     * 由 Servlet 容器线程在连接结束时设置，不加锁，避免与推送线程互相等待
+     */
+    private volatile boolean closed = false;
+
+    public SseExecuteListener(SseEmitter emitter) {
+        this.emitter = emitter;
+        emitter.onCompletion(this::markClosed);
+        emitter.onTimeout(this::markClosed);
+        emitter.onError(e -> markClosed());
+    }
+
+    @Override
+    public void onStage(ExecuteStageEnum stage, long cost, ExecuteContext context) {
+        send(STAGE_EVENT, ExecuteStageEvent.builder()
+                .stage(stage.getValue())
+                .cost(cost)
+                .compileCached(ExecuteStageEnum.COMPILE.equals(stage) ? context.isCompileCached() : null)
+                .diagnostics(ExecuteStageEnum.COMPILE.equals(stage) ? context.getCompileDiagnostics() : null)
+                .build());
+    }
+
+    @Override
+    public void onCase(int index, String output, ExecuteInfo executeInfo) {
+        send(CASE_EVENT, ExecuteCaseEvent.builder()
+                .index(index)
+                .output(output)
+                .executeInfo(executeInfo)
+                .build());
+    }
+
+    /**
+     * 推送最终结果并结束事件流
+     */
+    public synchronized void complete(ExecuteResponse response) {
+        send(RESULT_EVENT, response);
+        if (!closed) {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 推送异常信息并结束事件流
+     */
+    public synchronized void fail(String message) {
+        send(ERROR_EVENT, message);
+        if (!closed) {
+            emitter.complete();
+        }
+    }
+
+    /**
+     * 并行运行的用例可能同时完成，推送需串行
+     */
+    private synchronized void send(String name, Object data) {
+        if (closed) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException | IllegalStateException e) {
+            log.info("Event stream closed by client: {}", e.getMessage());
+            closed = true;
+        }
+    }
+
+    private void markClosed() {
+        closed = true;
+    }
+}
@@ -0,0 +1,369 @@
+package com.zjz.codesandbox.sandbox.judge;
+
+import com.zjz.codesandbox.model.enums.JudgeModeEnum;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式输出比较器
+ * 程序输出按字节写入时立即与期望输出比较，不保存程序输出，出现不一致后忽略后续输出；
+ * 期望输出按程序输出的编码转换为字节，空白只识别 ASCII 空白字符，适用于 UTF-8、GBK 等兼容 ASCII 的编码
+ */
+public abstract class OutputJudge extends OutputStream {
+
+    /**
+     * float 比较方式默认的误差上限
+     */
+    public static final double DEFAULT_EPSILON = 1e-6;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Charset charset;
+
+    private boolean wrong = false;
+
+    private Boolean accepted;
+
+    protected OutputJudge(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * 创建比较器
+     * @param mode 比较方式
+     * @param expected 期望输出，null 视为空输出
+     * @param charset 程序输出的编码
+     * @param epsilon float 比较方式的误差上限
+     * @return 比较器，每个测试用例使用一个
+     */
+    public static OutputJudge create(JudgeModeEnum mode, String expected, Charset charset, double epsilon) {
+        String expectedOutput = expected == null ? "" : expected;
+        switch (mode) {
+            case EXACT:
+                return new ExactJudge(expectedOutput, charset);
+            case TOKEN:
+                return new TokenJudge(expectedOutput, charset, -1);
+            case FLOAT:
+                return new TokenJudge(expectedOutput, charset, epsilon);
+            case IGNORE_TRAILING_SPACE:
+            default:
+                return new TrailingSpaceJudge(expectedOutput, charset);
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (!wrong && accepted == null) {
+            accept(b & 0xff);
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int off, int len) {
+        for (int i = off; i < off + len && !wrong && accepted == null; i++) {
+            accept(bytes[i] & 0xff);
+        }
+    }
+
+    /**
+     * 写入已解码的输出，按比较器的编码重新编码
+     */
+    public void write(String output) {
+        if (output != null && !output.isEmpty()) {
+            byte[] bytes = output.getBytes(charset);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 输出结束，返回是否与期望输出一致，之后的写入被忽略
+     */
+    public synchronized boolean isAccepted() {
+        if (accepted == null) {
+            accepted = !wrong && finish() && !wrong;
+        }
+        return accepted;
+    }
+
+    /**
+     * 比较一个字节，不一致时调用 mismatch
+     */
+    protected abstract void accept(int b);
+
+    /**
+     * 输出结束时的检查
+     * @return 期望输出是否已全部匹配
+     */
+    protected abstract boolean finish();
+
+    protected final void mismatch() {
+        wrong = true;
+    }
+
+    protected final boolean isWrong() {
+        return wrong;
+    }
+
+    private static boolean isLineSpace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0b;
+    }
+
+    private static boolean isSpace(int b) {
+        return b == '\n' || isLineSpace(b);
+    }
+
+    /**
+     * 逐字节比较，\r\n 视为 \n
+     */
+    private static class ExactJudge extends OutputJudge {
+
+        private final byte[] expected;
+
+        private int position = 0;
+
+        private boolean pendingCr = false;
+
+        ExactJudge(String expected, Charset charset) {
+            super(charset);
+            this.expected = expected.replace("\r\n", "\n").getBytes(charset);
+        }
+
+        @Override
+        protected void accept(int b) {
+            if (pendingCr) {
+                pendingCr = false;
+                if (b != '\n') {
+                    match('\r');
+                }
+            }
+            if (b == '\r') {
+                pendingCr = true;
+                return;
+            }
+            match(b);
+        }
+
+        private void match(int b) {
+            if (position < expected.length && expected[position] == (byte) b) {
+                position++;
+            } else {
+                mismatch();
+            }
+        }
+
+        @Override
+        protected boolean finish() {
+            if (pendingCr) {
+                pendingCr = false;
+                match('\r');
+            }
+            return position == expected.length;
+        }
+    }
+
+    /**
+     * 按行比较，忽略每行末尾的空白与输出末尾的空行
+     * 行内空白先按期望输出比较并暂存结果，之后出现非空白字符时才确认，因此不需要缓存行尾空白
+     */
+    private static class TrailingSpaceJudge extends OutputJudge {
+
+        /**
+         * 期望输出各行，已去掉行尾空白与末尾空行
+         */
+        private final byte[][] lines;
+
+        private int line = 0;
+
+        /**
+         * 当前行已匹配的字节数
+         */
+        private int position = 0;
+
+        /**
+         * 当前行最后一个非空白字符之后的空白字节数
+         */
+        private int pendingSpaces = 0;
+
+        /**
+         * 暂存的空白是否与期望输出一致
+         */
+        private boolean spacesMatched = true;
+
+        TrailingSpaceJudge(String expected, Charset charset) {
+            super(charset);
+            String[] rawLines = expected.split("\n", -1);
+            int count = rawLines.length;
+            while (count > 0 && stripTrailing(rawLines[count - 1]).isEmpty()) {
+                count--;
+            }
+            lines = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                lines[i] = stripTrailing(rawLines[i]).getBytes(charset);
+            }
+        }
+
+        private static String stripTrailing(String line) {
+            int end = line.length();
+            while (end > 0 && isLineSpace(line.charAt(end - 1))) {
+                end--;
+            }
+            return line.substring(0, end);
+        }
+
+        @Override
+        protected void accept(int b) {
+            if (b == '\n') {
+                endLine();
+                return;
+            }
+            byte[] expectedLine = line < lines.length ? lines[line] : EMPTY;
+            if (isLineSpace(b)) {
+                int offset = position + pendingSpaces;
+                if (!spacesMatched || offset >= expectedLine.length || expectedLine[offset] != (byte) b) {
+                    spacesMatched = false;
+                }
+                pendingSpaces++;
+                return;
+            }
+            if (!spacesMatched) {
+                mismatch();
+                return;
+            }
+            position += pendingSpaces;
+            pendingSpaces = 0;
+            if (position < expectedLine.length && expectedLine[position] == (byte) b) {
+                position++;
+            } else {
+                mismatch();
+            }
+        }
+
+        private void endLine() {
+            int expectedLength = line < lines.length ? lines[line].length : 0;
+            if (position != expectedLength) {
+                mismatch();
+            }
+            line++;
+            position = 0;
+            pendingSpaces = 0;
+            spacesMatched = true;
+        }
+
+        @Override
+        protected boolean finish() {
+            if (position > 0 || pendingSpaces > 0) {
+                endLine();
+            }
+            return line >= lines.length;
+        }
+    }
+
+    /**
+     * 按空白分隔逐个比较，epsilon 不小于 0 时数值在误差范围内视为一致
+     */
+    private static class TokenJudge extends OutputJudge {
+
+        /**
+         * 参与数值比较的单词长度上限，更长的单词只按字节比较
+         */
+        private static final int MAX_NUMBER_LENGTH = 64;
+
+        private final byte[][] tokens;
+
+        private final double epsilon;
+
+        private final byte[] numberBuffer;
+
+        private int token = 0;
+
+        /**
+         * 当前单词已读取的字节数
+         */
+        private int position = 0;
+
+        private boolean inToken = false;
+
+        /**
+         * 当前单词是否仍与期望单词的前缀一致
+         */
+        private boolean tokenMatched = false;
+
+        TokenJudge(String expected, Charset charset, double epsilon) {
+            super(charset);
+            List<byte[]> expectedTokens = new ArrayList<>();
+            for (String expectedToken : expected.trim().split("[ \\t\\n\\r\\f\\u000b]+")) {
+                if (!expectedToken.isEmpty()) {
+                    expectedTokens.add(expectedToken.getBytes(charset));
+                }
+            }
+            this.tokens = expectedTokens.toArray(new byte[0][]);
+            this.epsilon = epsilon;
+            this.numberBuffer = epsilon >= 0 ? new byte[MAX_NUMBER_LENGTH] : null;
+        }
+
+        @Override
+        protected void accept(int b) {
+            if (isSpace(b)) {
+                if (inToken) {
+                    endToken();
+                }
+                return;
+            }
+            if (!inToken) {
+                if (token >= tokens.length) {
+                    // 多余的输出
+                    mismatch();
+                    return;
+                }
+                inToken = true;
+                position = 0;
+                tokenMatched = true;
+            }
+            byte[] expectedToken = tokens[token];
+            if (tokenMatched && (position >= expectedToken.length || expectedToken[position] != (byte) b)) {
+                tokenMatched = false;
+            }
+            if (numberBuffer != null && position < MAX_NUMBER_LENGTH) {
+                numberBuffer[position] = (byte) b;
+            }
+            position++;
+            if (!tokenMatched && (numberBuffer == null || position > MAX_NUMBER_LENGTH)) {
+                mismatch();
+            }
+        }
+
+        private void endToken() {
+            inToken = false;
+            byte[] expectedToken = tokens[token++];
+            if (tokenMatched && position == expectedToken.length) {
+                return;
+            }
+            if (numberBuffer == null || position > MAX_NUMBER_LENGTH || !isClose(expectedToken)) {
+                mismatch();
+            }
+        }
+
+        private boolean isClose(byte[] expectedToken) {
+            try {
+                double expectedValue = Double.parseDouble(new String(expectedToken, StandardCharsets.US_ASCII));
+                double actualValue = Double.parseDouble(new String(numberBuffer, 0, position, StandardCharsets.US_ASCII));
+                double diff = Math.abs(expectedValue - actualValue);
+                return diff <= epsilon || diff <= epsilon * Math.max(Math.abs(expectedValue), Math.abs(actualValue));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+
+        @Override
+        protected boolean finish() {
+            if (inToken) {
+                endToken();
+            }
+            return token == tokens.length;
+        }
+    }
+}
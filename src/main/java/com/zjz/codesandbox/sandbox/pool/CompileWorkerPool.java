@@ -0,0 +1,412 @@
+package com.zjz.codesandbox.sandbox.pool;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.StrUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.exception.DockerException;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import com.zjz.codesandbox.config.CompileWorkerProperties;
+import com.zjz.codesandbox.model.dto.CompileMessage;
+import com.zjz.codesandbox.model.pool.CompileWorkerMetrics;
+import com.zjz.codesandbox.model.process.ProcessMessage;
+import com.zjz.codesandbox.utils.DockerCommonUtils;
+import com.zjz.codesandbox.utils.LanguageCommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻编译容器池
+ * 编译容器启动时创建并长期运行，编译阶段不再创建与启动容器；每个编译容器只读写挂载自己独占的工作目录，
+ * 并只读挂载共享目录（预编译头），同一时间只执行一个编译任务：编译前将代码复制到独占目录，
+ * 编译成功后将结果复制回宿主机的工作目录，之后清空独占目录，编译任务看不到其他提交的代码与编译产物；
+ * 单个任务受 ulimit 内存上限与超时限制，超时后结束容器内的残留进程；容器异常时由定时维护任务重建
+ */
+@Slf4j
+public class CompileWorkerPool {
+
+    /**
+     * 编译容器内独占工作目录的挂载点
+     */
+    public static final String WORKER_CODE_PATH = "/workspace";
+
+    /**
+     * 编译容器内共享目录的挂载点，只读
+     */
+    public static final String SHARED_CODE_PATH = "/shared";
+
+    /**
+     * 各编译容器独占目录在用户代码根目录下的目录名
+     */
+    public static final String WORKER_DIR_NAME = ".workers";
+
+    /**
+     * 编译命令包装：限制虚拟内存，进入工作目录，临时文件写入工作目录以便随工作目录清理
+     */
+    private static final String JOB_CMD = "ulimit -v %d && cd %s && export TMPDIR=%s && %s";
+
+    /**
+     * 结束编译容器内除 init 以外的所有进程
+     */
+    private static final String[] RESET_CMD = new String[]{"sh", "-c", "kill -9 -1 2>/dev/null; exit 0"};
+
+    /**
+     * 结束残留进程的超时时间 ms
+     */
+    private static final long RESET_TIMEOUT = 3000L;
+
+    private final DockerClient dockerClient;
+
+    private final String image;
+
+    /**
+     * 各编译容器独占目录的父目录
+     */
+    private final File workerRoot;
+
+    /**
+     * 只读挂载到所有编译容器的共享目录
+     */
+    private final File sharedDir;
+
+    private final CompileWorkerProperties properties;
+
+    private final List<Worker> workers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 编译名额，总数为容器数
+     */
+    private final Semaphore jobPermits;
+
+    private final AtomicLong compiled = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong waitCount = new AtomicLong();
+
+    private final AtomicLong acquireTimeoutCount = new AtomicLong();
+
+    private final AtomicLong restarts = new AtomicLong();
+
+    /**
+     * 独占目录编号
+     */
+    private final AtomicLong dirIds = new AtomicLong();
+
+    private final ScheduledExecutorService maintainer;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param dockerClient Docker 客户端
+     * @param image 编译镜像
+     * @param hostRoot 宿主机上的用户代码根目录，各编译容器的独占目录为其子目录
+     * @param sharedDir 宿主机上只读挂载到所有编译容器的共享目录
+     * @param properties 配置
+     */
+    public CompileWorkerPool(DockerClient dockerClient, String image, String hostRoot, File sharedDir,
+                             CompileWorkerProperties properties) {
+        this.dockerClient = dockerClient;
+        this.image = image;
+        this.workerRoot = new File(hostRoot, WORKER_DIR_NAME);
+        this.sharedDir = sharedDir;
+        this.properties = properties;
+        this.jobPermits = new Semaphore(Math.max(properties.getWorkers(), 1));
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("compile-worker-").setDaemon(true).build());
+    }
+
+    /**
+     * 创建编译容器并启动定时维护任务
+     */
+    public void start() {
+        FileUtil.mkdir(sharedDir);
+        replenish();
+        long interval = properties.getMaintainInterval();
+        maintainer.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Compile workers for {} started: {}", image, workers.size());
+    }
+
+    /**
+     * 在编译容器中编译工作目录内的代码
+     * @param jobDir 宿主机上的工作目录
+     * @param command 在工作目录中执行的编译命令
+     * @param artifactName 编译产物文件名，编译失败时删除
+     * @return 编译结果
+     */
+    public CompileMessage compile(File jobDir, String command, String artifactName) {
+        return compile(jobDir, command, artifactName, properties.getCompileTimeout());
+    }
+
+    /**
+     * 在编译容器中编译工作目录内的代码
+     * 工作目录的内容复制到编译容器的独占目录中编译，成功后将独占目录的内容复制回工作目录
+     * @param jobDir 宿主机上的工作目录
+     * @param command 在工作目录中执行的编译命令
+     * @param artifactName 编译产物文件名，编译失败时删除
+     * @param timeout 超时时间 ms
+     * @return 编译结果
+     */
+    public CompileMessage compile(File jobDir, String command, String artifactName, long timeout) {
+        if (!acquire()) {
+            return CompileMessage.builder()
+                    .success(false)
+                    .reason("The compiler is busy, please try again later")
+                    .build();
+        }
+        Worker worker = null;
+        try {
+            worker = pickWorker();
+            if (worker == null) {
+                return CompileMessage.builder()
+                        .success(false)
+                        .reason("No compile worker available")
+                        .build();
+            }
+            FileUtil.copyContent(jobDir, worker.hostDir, true);
+            String[] cmd = new String[]{"sh", "-c", String.format(JOB_CMD,
+                    properties.getJobMemory() / 1024, WORKER_CODE_PATH, WORKER_CODE_PATH, command)};
+            ProcessMessage processMessage;
+            try {
+                processMessage = LanguageCommonUtils.execAndCollect(cmd, worker.containerId, dockerClient,
+                        timeout, properties.getOutputLimit());
+            } catch (DockerException e) {
+                log.error("Compile worker {} failed: {}", worker.containerId, e.getMessage());
+                replaceAsync(worker);
+                worker = null;
+                FileUtil.del(new File(jobDir, artifactName));
+                failed.incrementAndGet();
+                return CompileMessage.builder()
+                        .success(false)
+                        .reason("Failed to compile the code")
+                        .build();
+            }
+            if (processMessage.getExitCode() == 0) {
+                FileUtil.copyContent(worker.hostDir, jobDir, true);
+                compiled.incrementAndGet();
+                return CompileMessage.builder()
+                        .success(true)
+                        .build();
+            }
+            FileUtil.del(new File(jobDir, artifactName));
+            if (processMessage.getExitCode() == -1) {
+                // 超时后结束仍在运行的编译进程，失败时重建编译容器
+                if (!DockerCommonUtils.execAndAwait(worker.containerId, dockerClient, RESET_CMD, RESET_TIMEOUT)) {
+                    replaceAsync(worker);
+                    worker = null;
+                }
+                timeouts.incrementAndGet();
+                return CompileMessage.builder()
+                        .success(false)
+                        .reason("Compilation timed out")
+                        .build();
+            }
+            failed.incrementAndGet();
+            String reason = StrUtil.isNotBlank(processMessage.getErrorMsg())
+                    ? processMessage.getErrorMsg() : processMessage.getSuccessMsg();
+            return CompileMessage.builder()
+                    .success(false)
+                    .reason(StrUtil.trim(reason))
+                    .build();
+        } finally {
+            if (worker != null) {
+                release(worker);
+            }
+            jobPermits.release();
+        }
+    }
+
+    /**
+     * 是否已有可用的编译容器
+     */
+    public boolean hasWorkers() {
+        return !workers.isEmpty();
+    }
+
+    /**
+     * 获取编译容器指标
+     */
+    public CompileWorkerMetrics getMetrics() {
+        int runningJobs = 0;
+        for (Worker worker : workers) {
+            if (worker.busy.get()) {
+                runningJobs++;
+            }
+        }
+        return CompileWorkerMetrics.builder()
+                .image(image)
+                .workers(workers.size())
+                .runningJobs(runningJobs)
+                .compiled(compiled.get())
+                .failed(failed.get())
+                .timeouts(timeouts.get())
+                .waitCount(waitCount.get())
+                .acquireTimeoutCount(acquireTimeoutCount.get())
+                .restarts(restarts.get())
+                .build();
+    }
+
+    /**
+     * 关闭并删除所有编译容器
+     */
+    public void close() {
+        closed = true;
+        maintainer.shutdownNow();
+        for (Worker worker : workers) {
+            workers.remove(worker);
+            destroy(worker);
+        }
+        log.info("Compile workers for {} closed", image);
+    }
+
+    private boolean acquire() {
+        if (jobPermits.tryAcquire()) {
+            return true;
+        }
+        waitCount.incrementAndGet();
+        try {
+            if (jobPermits.tryAcquire(properties.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        acquireTimeoutCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * 选择并占用一个空闲的编译容器
+     */
+    private Worker pickWorker() {
+        for (Worker worker : workers) {
+            if (worker.busy.compareAndSet(false, true)) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 清空独占目录后释放编译容器，清空失败时重建
+     */
+    private void release(Worker worker) {
+        if (FileUtil.clean(worker.hostDir)) {
+            worker.busy.set(false);
+        } else {
+            replaceAsync(worker);
+        }
+    }
+
+    /**
+     * 定时维护：重建已停止的编译容器，补足容器数
+     */
+    private void maintain() {
+        try {
+            for (Worker worker : workers) {
+                if (!DockerCommonUtils.isContainerRunning(worker.containerId, dockerClient)) {
+                    replace(worker);
+                }
+            }
+            replenish();
+        } catch (Exception e) {
+            log.error("Compile worker maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void replaceAsync(Worker worker) {
+        if (!closed) {
+            maintainer.execute(() -> replace(worker));
+        }
+    }
+
+    private void replace(Worker worker) {
+        if (workers.remove(worker)) {
+            restarts.incrementAndGet();
+            destroy(worker);
+            replenish();
+        }
+    }
+
+    private void destroy(Worker worker) {
+        DockerCommonUtils.deleteContainer(worker.containerId, dockerClient);
+        FileUtil.del(worker.hostDir);
+    }
+
+    private void replenish() {
+        while (!closed && workers.size() < Math.max(properties.getWorkers(), 1)) {
+            try {
+                workers.add(createWorker());
+            } catch (RuntimeException e) {
+                // Docker 守护进程不可用时连接异常不一定是 DockerException
+                log.error("Failed to create compile worker for {}: {}", image, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private Worker createWorker() {
+        File hostDir = new File(workerRoot, "worker-" + dirIds.incrementAndGet());
+        FileUtil.mkdir(hostDir);
+        HostConfig hostConfig = new HostConfig();
+        hostConfig.setBinds(new Bind(hostDir.getAbsolutePath(), new Volume(WORKER_CODE_PATH)),
+                new Bind(sharedDir.getAbsolutePath(), new Volume(SHARED_CODE_PATH), AccessMode.ro));
+        hostConfig.withMemory(properties.getWorkerMemory());
+        hostConfig.withMemorySwap(properties.getWorkerMemory());
+        String containerId = null;
+        try {
+            CreateContainerResponse response = dockerClient.createContainerCmd(image)
+                    .withHostConfig(hostConfig)
+                    .withNetworkDisabled(true)
+                    .withAttachStdin(true)
+                    .withAttachStderr(true)
+                    .withAttachStdout(true)
+                    .withTty(true)
+                    .exec();
+            containerId = response.getId();
+            dockerClient.startContainerCmd(containerId).exec();
+        } catch (RuntimeException e) {
+            if (containerId != null) {
+                DockerCommonUtils.deleteContainer(containerId, dockerClient);
+            }
+            FileUtil.del(hostDir);
+            throw e;
+        }
+        return new Worker(containerId, hostDir);
+    }
+
+    private static class Worker {
+
+        private final String containerId;
+
+        /**
+         * 独占的宿主机目录，挂载到编译容器的工作目录
+         */
+        private final File hostDir;
+
+        /**
+         * 是否正在执行编译任务
+         */
+        private final AtomicBoolean busy = new AtomicBoolean();
+
+        private Worker(String containerId, File hostDir) {
+            this.containerId = containerId;
+            this.hostDir = hostDir;
+        }
+    }
+}
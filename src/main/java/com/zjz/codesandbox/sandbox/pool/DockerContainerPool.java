@@ -0,0 +1,333 @@
+package com.zjz.codesandbox.sandbox.pool;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.CreateContainerResponse;
+import com.github.dockerjava.api.model.HostConfig;
+import com.zjz.codesandbox.config.ContainerPoolProperties;
+import com.zjz.codesandbox.model.pool.ContainerPoolMetrics;
+import com.zjz.codesandbox.utils.DockerCommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Docker 预热容器池
+ * 容器在创建时即启动，租用方通过 exec 在容器内运行代码，归还时清理残留进程后复用；
+ * 每个容器只挂载自己独占的宿主机目录，租用方运行前将本次提交的文件复制到该目录，归还时清空，
+ * 容器之间互相看不到其他提交的代码与输入
+ */
+@Slf4j
+public class DockerContainerPool {
+
+    /**
+     * 归还容器时杀掉容器内除 1 号进程外的所有进程，并清空只读根文件系统之外仍可写的 /dev/shm 与 /dev/mqueue，
+     * 两者都为空时退出码为 0，否则容器不再复用
+     */
+    private static final String[] RESET_CMD = new String[]{"sh", "-c", "kill -9 -1;"
+            + " rm -rf /dev/shm/* /dev/shm/.[!.]* /dev/shm/..?* /dev/mqueue/* 2>/dev/null;"
+            + " [ -z \"$(ls -A /dev/shm)\" ] && [ -z \"$(ls -A /dev/mqueue 2>/dev/null)\" ]"};
+
+    private final DockerClient dockerClient;
+
+    private final String image;
+
+    /**
+     * 按容器独占的宿主机目录创建容器配置
+     */
+    private final Function<File, HostConfig> hostConfigFactory;
+
+    /**
+     * 各容器独占目录的父目录
+     */
+    private final File hostRoot;
+
+    private final ContainerPoolProperties properties;
+
+    /**
+     * 空闲容器，头部为最近归还的容器
+     */
+    private final LinkedBlockingDeque<PooledContainer> idleContainers = new LinkedBlockingDeque<>();
+
+    /**
+     * 已租出的容器
+     */
+    private final Map<String, PooledContainer> leasedContainers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final AtomicLong created = new AtomicLong();
+
+    /**
+     * 容器独占目录编号
+     */
+    private final AtomicLong dirIds = new AtomicLong();
+
+    private final AtomicLong destroyed = new AtomicLong();
+
+    private final AtomicLong leaseCount = new AtomicLong();
+
+    private final AtomicLong leaseWaitCount = new AtomicLong();
+
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+
+    private final AtomicLong leaseWaitTime = new AtomicLong();
+
+    private final AtomicLong evicted = new AtomicLong();
+
+    private final AtomicLong unhealthy = new AtomicLong();
+
+    private final ScheduledExecutorService maintainer;
+
+    private volatile boolean closed = false;
+
+    /**
+     * @param dockerClient Docker 客户端
+     * @param image 镜像
+     * @param hostRoot 宿主机上各容器独占目录的父目录
+     * @param hostConfigFactory 按容器独占目录创建容器配置，需将该目录挂载到容器内
+     * @param properties 配置
+     */
+    public DockerContainerPool(DockerClient dockerClient, String image, File hostRoot,
+                               Function<File, HostConfig> hostConfigFactory, ContainerPoolProperties properties) {
+        this.dockerClient = dockerClient;
+        this.image = image;
+        this.hostRoot = hostRoot;
+        this.hostConfigFactory = hostConfigFactory;
+        this.properties = properties;
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(
+                ThreadFactoryBuilder.create().setNamePrefix("container-pool-").setDaemon(true).build());
+    }
+
+    /**
+     * 预热最少空闲容器并启动定时维护任务
+     */
+    public void start() {
+        replenish();
+        long interval = properties.getMaintainInterval();
+        maintainer.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Container pool for {} started, warm containers: {}", image, idleContainers.size());
+    }
+
+    /**
+     * 池中是否已有创建完成的容器
+     */
+    public boolean hasContainers() {
+        return !idleContainers.isEmpty() || !leasedContainers.isEmpty();
+    }
+
+    /**
+     * 租用一个已启动的容器
+     * @return 容器 id
+     */
+    public String lease() {
+        if (closed) {
+            throw new IllegalStateException("Container pool is closed");
+        }
+        PooledContainer container = idleContainers.pollFirst();
+        if (container == null && tryReserve()) {
+            container = createReserved();
+        }
+        if (container == null) {
+            // 容器数已达上限 等待其他请求归还
+            leaseWaitCount.incrementAndGet();
+            long start = System.currentTimeMillis();
+            try {
+                container = idleContainers.pollFirst(properties.getLeaseTimeout(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            leaseWaitTime.addAndGet(System.currentTimeMillis() - start);
+            if (container == null) {
+                leaseTimeoutCount.incrementAndGet();
+                throw new IllegalStateException("No container available for " + image);
+            }
+        }
+        leasedContainers.put(container.getContainerId(), container);
+        leaseCount.incrementAndGet();
+        return container.getContainerId();
+    }
+
+    /**
+     * 已租出容器独占的宿主机目录
+     * @param containerId 容器 id
+     * @return 目录，容器未租出时为 null
+     */
+    public File getHostDir(String containerId) {
+        PooledContainer container = containerId == null ? null : leasedContainers.get(containerId);
+        return container == null ? null : container.getHostDir();
+    }
+
+    /**
+     * 归还容器，重置失败（超时或退出码不为 0）、独占目录清空失败或池已关闭时直接销毁
+     * @param containerId 容器 id
+     */
+    public void release(String containerId) {
+        if (containerId == null) {
+            return;
+        }
+        PooledContainer container = leasedContainers.remove(containerId);
+        if (container == null) {
+            log.warn("Container {} is not leased from pool", containerId);
+            return;
+        }
+        Integer exitCode = DockerCommonUtils.execForExitCode(containerId, dockerClient, RESET_CMD,
+                properties.getResetTimeout());
+        // 残留进程结束后再清空独占目录
+        if (exitCode == null || exitCode != 0 || closed || !FileUtil.clean(container.getHostDir())) {
+            if (exitCode != null && exitCode != 0) {
+                log.warn("Failed to reset container {}, exit code {}", containerId, exitCode);
+            }
+            destroy(container);
+            return;
+        }
+        container.setLastUsedTime(System.currentTimeMillis());
+        idleContainers.offerFirst(container);
+    }
+
+    /**
+     * 获取容器池指标
+     */
+    public ContainerPoolMetrics getMetrics() {
+        return ContainerPoolMetrics.builder()
+                .image(image)
+                .total(total.get())
+                .idle(idleContainers.size())
+                .leased(leasedContainers.size())
+                .created(created.get())
+                .destroyed(destroyed.get())
+                .leaseCount(leaseCount.get())
+                .leaseWaitCount(leaseWaitCount.get())
+                .leaseTimeoutCount(leaseTimeoutCount.get())
+                .leaseWaitTime(leaseWaitTime.get())
+                .evicted(evicted.get())
+                .unhealthy(unhealthy.get())
+                .build();
+    }
+
+    /**
+     * 关闭容器池并删除所有容器
+     */
+    public void close() {
+        closed = true;
+        maintainer.shutdownNow();
+        PooledContainer container;
+        while ((container = idleContainers.pollFirst()) != null) {
+            destroy(container);
+        }
+        for (PooledContainer leased : new ArrayList<>(leasedContainers.values())) {
+            leasedContainers.remove(leased.getContainerId());
+            destroy(leased);
+        }
+        log.info("Container pool for {} closed", image);
+    }
+
+    /**
+     * 定时维护：回收超时空闲容器、剔除不健康容器、补足最少空闲容器
+     */
+    private void maintain() {
+        try {
+            long now = System.currentTimeMillis();
+            List<PooledContainer> snapshot = new ArrayList<>(idleContainers);
+            for (PooledContainer container : snapshot) {
+                // 只比较空闲容器数，租出的容器不计入，避免负载高时回收后又立即补足
+                boolean expired = now - container.getLastUsedTime() > properties.getIdleTimeout()
+                        && idleContainers.size() > properties.getMinIdle();
+                if (expired) {
+                    if (idleContainers.remove(container)) {
+                        evicted.incrementAndGet();
+                        destroy(container);
+                    }
+                } else if (!DockerCommonUtils.isContainerRunning(container.getContainerId(), dockerClient)) {
+                    if (idleContainers.remove(container)) {
+                        unhealthy.incrementAndGet();
+                        destroy(container);
+                    }
+                }
+            }
+            replenish();
+        } catch (Exception e) {
+            log.error("Container pool maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 补足最少空闲容器
+     */
+    private void replenish() {
+        while (!closed && idleContainers.size() < properties.getMinIdle() && tryReserve()) {
+            try {
+                idleContainers.offerLast(createReserved());
+            } catch (RuntimeException e) {
+                // Docker 守护进程不可用时连接异常不一定是 DockerException
+                log.error("Failed to warm container for {}: {}", image, e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 在上限内占用一个容器名额
+     */
+    private boolean tryReserve() {
+        while (true) {
+            int current = total.get();
+            if (current >= properties.getMaxTotal()) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 创建并启动容器，调用前需已占用名额
+     */
+    private PooledContainer createReserved() {
+        File hostDir = new File(hostRoot, "container-" + dirIds.incrementAndGet());
+        String containerId = null;
+        try {
+            FileUtil.mkdir(hostDir);
+            CreateContainerResponse response = dockerClient.createContainerCmd(image)
+                    .withHostConfig(hostConfigFactory.apply(hostDir))
+                    .withNetworkDisabled(true)  // 网络限制
+                    .withReadonlyRootfs(true)   // 限制对 root 目录的写权限
+                    .withAttachStdin(true)
+                    .withAttachStderr(true)
+                    .withAttachStdout(true)
+                    .withTty(true)
+                    .exec();
+            containerId = response.getId();
+            dockerClient.startContainerCmd(containerId).exec();
+            created.incrementAndGet();
+            return new PooledContainer(containerId, hostDir);
+        } catch (RuntimeException e) {
+            if (containerId != null) {
+                DockerCommonUtils.deleteContainer(containerId, dockerClient);
+            }
+            FileUtil.del(hostDir);
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void destroy(PooledContainer container) {
+        DockerCommonUtils.deleteContainer(container.getContainerId(), dockerClient);
+        FileUtil.del(container.getHostDir());
+        total.decrementAndGet();
+        destroyed.incrementAndGet();
+    }
+}
@@ -0,0 +1,41 @@
+package com.zjz.codesandbox.sandbox.pool;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.File;
+
+/**
+ * 池化容器
+ */
+@Getter
+public class PooledContainer {
+
+    /**
+     * 容器 id
+     */
+    private final String containerId;
+
+    /**
+     * 容器独占的宿主机目录，挂载到容器内的代码目录
+     */
+    private final File hostDir;
+
+    /**
+     * 创建时间
+     */
+    private final long createTime;
+
+    /**
+     * 最近一次归还时间
+     */
+    @Setter
+    private volatile long lastUsedTime;
+
+    public PooledContainer(String containerId, File hostDir) {
+        this.containerId = containerId;
+        this.hostDir = hostDir;
+        this.createTime = System.currentTimeMillis();
+        this.lastUsedTime = this.createTime;
+    }
+}
@@ -0,0 +1,106 @@
+package com.zjz.codesandbox.sandbox.pool;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.zjz.codesandbox.config.CompileWorkerProperties;
+import com.zjz.codesandbox.constant.CmdConstant;
+import com.zjz.codesandbox.model.dto.CompileMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 预编译头
+ * 编译容器启动后在后台由编译容器为每个编译配置预编译常用的头文件，gcc 要求预编译头与编译参数一致，因此每个编译配置各一份；
+ * 预编译头保存在用户代码根目录下，只读挂载到各编译容器，随编译镜像与进程重建，构建完成前及构建失败的编译配置按原方式编译
+ */
+@Slf4j
+public class PrecompiledHeaders {
+
+    /**
+     * 预编译头在用户代码根目录下的目录名
+     */
+    public static final String PCH_DIR_NAME = ".pch";
+
+    private final CompileWorkerPool compileWorkerPool;
+
+    private final File pchRoot;
+
+    private final CompileWorkerProperties properties;
+
+    /**
+     * 预编译头已构建完成的编译配置
+     */
+    private final Set<String> readyProfiles = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService builder = Executors.newSingleThreadExecutor(
+            ThreadFactoryBuilder.create().setNamePrefix("precompiled-header-").setDaemon(true).build());
+
+    /**
+     * @param compileWorkerPool 编译容器池
+     * @param pchRoot 宿主机上的预编译头目录，需为编译容器的共享目录
+     * @param properties 配置
+     */
+    public PrecompiledHeaders(CompileWorkerPool compileWorkerPool, File pchRoot, CompileWorkerProperties properties) {
+        this.compileWorkerPool = compileWorkerPool;
+        this.pchRoot = pchRoot;
+        this.properties = properties;
+    }
+
+    /**
+     * 在后台依次构建各编译配置的预编译头
+     */
+    public void buildAsync() {
+        if (properties.getPrecompiledHeaders().isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, String> profile : properties.getProfiles().entrySet()) {
+            builder.execute(() -> build(profile.getKey(), profile.getValue()));
+        }
+        builder.shutdown();
+    }
+
+    /**
+     * 编译时引入预编译头的参数，该编译配置的预编译头未就绪时为空
+     * @param profile 编译配置名称
+     */
+    public String includeFlags(String profile) {
+        if (!readyProfiles.contains(profile)) {
+            return "";
+        }
+        return "-I " + CompileWorkerPool.SHARED_CODE_PATH + "/" + profile;
+    }
+
+    /**
+     * 停止尚未开始的构建任务
+     */
+    public void close() {
+        builder.shutdownNow();
+    }
+
+    private void build(String profile, String flags) {
+        File profileDir = new File(pchRoot, profile);
+        FileUtil.del(profileDir);
+        long start = System.currentTimeMillis();
+        for (String header : properties.getPrecompiledHeaders()) {
+            File headerFile = new File(profileDir, header);
+            FileUtil.mkdir(headerFile.getParentFile());
+            String command = String.format(CmdConstant.CPP_PRECOMPILE_CMD,
+                    header, flags, header, flags, header, header, header, header);
+            CompileMessage compileMessage = compileWorkerPool.compile(profileDir, command,
+                    header + ".gch", properties.getPrecompileTimeout());
+            if (!Boolean.TRUE.equals(compileMessage.getSuccess())) {
+                log.warn("Failed to precompile {} for profile {}: {}", header, profile, compileMessage.getReason());
+                FileUtil.del(profileDir);
+                return;
+            }
+        }
+        readyProfiles.add(profile);
+        log.info("Precompiled headers for profile {} are ready in {} ms", profile, System.currentTimeMillis() - start);
+    }
+}
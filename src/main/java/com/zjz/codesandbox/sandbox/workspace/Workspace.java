@@ -0,0 +1,54 @@
+package com.zjz.codesandbox.sandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * 单次执行独占的用户代码工作目录
+ */
+@Getter
+public class Workspace {
+
+    /**
+     * 编程语言
+     */
+    private final String language;
+
+    /**
+     * 目录
+     */
+    private final File dir;
+
+    /**
+     * 是否为可复用的目录槽，否则用完即删
+     */
+    private final boolean slot;
+
+    /**
+     * 目录大小上限 字节，小于等于 0 时不限制
+     */
+    private final long maxBytes;
+
+    public Workspace(String language, File dir, boolean slot, long maxBytes) {
+        this.language = language;
+        this.dir = dir;
+        this.slot = slot;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 目录绝对路径
+     */
+    public String getPath() {
+        return dir.getAbsolutePath();
+    }
+
+    /**
+     * 目录当前大小是否超出上限
+     */
+    public boolean exceedsQuota() {
+        return maxBytes > 0 && FileUtil.size(dir) > maxBytes;
+    }
+}
@@ -0,0 +1,314 @@
+package com.zjz.codesandbox.sandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zjz.codesandbox.config.WorkspaceProperties;
+import com.zjz.codesandbox.constant.FileConstant;
+import com.zjz.codesandbox.model.workspace.WorkspaceMetrics;
+import com.zjz.codesandbox.utils.FileCommonUtils;
+import com.zjz.codesandbox.utils.MetricsUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户代码工作目录管理
+ * 工作目录分配在可配置的根目录（默认 /dev/shm 下的 tmpfs）中，每种语言预先创建固定数量的目录槽循环复用，
+ * 用完后由后台线程异步清空再放回空闲队列，执行线程不再同步删除目录树；
+ * 根目录可被多个进程（服务、测试、基准测试与压测）同时使用，每个进程在其下创建自己的实例目录并持有对应锁文件上的排他锁，
+ * 只清理自己的实例目录与锁已释放的遗留实例目录（其他非空目录拒绝启动），<实例目录>/<语言> 即各沙箱挂载到容器内的用户代码根目录
+ */
+@Slf4j
+public class WorkspaceManager {
+
+    private static final String SHM_DIR = "/dev/shm";
+
+    private static final String SHM_ROOT_NAME = "codebox";
+
+    private static final String SLOT_PREFIX = "slot-";
+
+    private static final String INSTANCE_PREFIX = "instance-";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final WorkspaceProperties properties;
+
+    /**
+     * 当前进程的实例目录
+     */
+    private final File rootDir;
+
+    /**
+     * 实例目录锁文件，进程存活期间一直持有其排他锁
+     */
+    private final File lockFile;
+
+    private final FileChannel lockChannel;
+
+    /**
+     * 语言 -> 空闲目录槽，头部为最近清理完成的目录槽
+     */
+    private final Map<String, ConcurrentLinkedDeque<File>> freeSlots = new ConcurrentHashMap<>();
+
+    /**
+     * 语言 -> 已创建的目录槽数
+     */
+    private final Map<String, AtomicInteger> slotCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 语言 -> 下一个目录槽编号
+     */
+    private final Map<String, AtomicInteger> slotIds = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor cleaner = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            ThreadFactoryBuilder.create().setNamePrefix("workspace-cleaner-").setDaemon(true).build());
+
+    private final AtomicInteger pendingCleanups = new AtomicInteger();
+
+    private final AtomicLong allocated = new AtomicLong();
+
+    private final AtomicLong slotHits = new AtomicLong();
+
+    private final AtomicLong cleanupFailures = new AtomicLong();
+
+    private final AtomicLong quotaRejections = new AtomicLong();
+
+    public WorkspaceManager(WorkspaceProperties properties) {
+        this.properties = properties;
+        File baseDir = resolveRootDir(properties.getRootDir());
+        FileCommonUtils.prepareOwnedDir(baseDir, StrUtil.isBlank(properties.getRootDir()));
+        removeStaleInstances(baseDir);
+        String instanceName = INSTANCE_PREFIX + ProcessHandle.current().pid() + "-" + IdUtil.fastSimpleUUID();
+        this.lockFile = new File(baseDir, instanceName + LOCK_SUFFIX);
+        // 先持有锁再创建实例目录，其他进程看到的实例目录总是已加锁
+        this.lockChannel = lockInstance(lockFile);
+        this.rootDir = new File(baseDir, instanceName);
+        FileUtil.mkdir(rootDir);
+        if (properties.getLanguages() != null) {
+            for (String language : properties.getLanguages()) {
+                for (int i = 0; i < properties.getSlotsPerLanguage(); i++) {
+                    File slot = createSlot(language);
+                    if (slot == null) {
+                        break;
+                    }
+                    freeSlots(language).offerLast(slot);
+                }
+            }
+        }
+        log.info("Workspace root {}", rootDir.getAbsolutePath());
+        MetricsUtils.registerWorkspace(this);
+    }
+
+    /**
+     * 未配置根目录时优先使用内存文件系统
+     */
+    private static File resolveRootDir(String configured) {
+        if (StrUtil.isNotBlank(configured)) {
+            return new File(configured);
+        }
+        File shm = new File(SHM_DIR);
+        if (shm.isDirectory() && shm.canWrite()) {
+            return new File(shm, SHM_ROOT_NAME);
+        }
+        return new File(System.getProperty("user.dir"), FileConstant.GLOBAL_CODE_DIR_NAME);
+    }
+
+    /**
+     * 删除锁已释放的实例目录，即异常退出的进程留下的目录；锁被其他进程持有的实例目录不动
+     */
+    private static void removeStaleInstances(File baseDir) {
+        File[] lockFiles = baseDir.listFiles(file -> file.isFile()
+                && file.getName().startsWith(INSTANCE_PREFIX) && file.getName().endsWith(LOCK_SUFFIX));
+        if (lockFiles == null) {
+            return;
+        }
+        for (File stale : lockFiles) {
+            try (FileChannel channel = FileChannel.open(stale.toPath(), StandardOpenOption.WRITE)) {
+                FileLock lock = channel.tryLock();
+                if (lock == null) {
+                    continue;
+                }
+                String name = stale.getName();
+                FileUtil.del(new File(baseDir, name.substring(0, name.length() - LOCK_SUFFIX.length())));
+                FileUtil.del(stale);
+                log.info("Removed stale workspace {}", name);
+            } catch (OverlappingFileLockException e) {
+                // 当前进程中的其他实例持有该锁
+            } catch (IOException e) {
+                log.warn("Failed to check workspace lock {}: {}", stale.getName(), e.getMessage());
+            }
+        }
+    }
+
+    private static FileChannel lockInstance(File lockFile) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            channel.lock();
+            return channel;
+        } catch (IOException e) {
+            IoUtil.close(channel);
+            throw new IllegalStateException("Failed to lock workspace " + lockFile.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * 获取某种语言的工作目录根目录，各工作目录均为其直接子目录
+     * @param language 编程语言
+     * @return 根目录绝对路径
+     */
+    public String getLanguageRoot(String language) {
+        File languageRoot = new File(rootDir, language);
+        FileUtil.mkdir(languageRoot);
+        return languageRoot.getAbsolutePath();
+    }
+
+    /**
+     * 分配一个空的工作目录，优先复用空闲目录槽
+     * @param language 编程语言
+     * @return 工作目录，用完后需调用 release
+     */
+    public Workspace allocate(String language) {
+        allocated.incrementAndGet();
+        File slot = freeSlots(language).pollFirst();
+        if (slot != null) {
+            slotHits.incrementAndGet();
+            return new Workspace(language, slot, true, properties.getMaxBytes());
+        }
+        slot = createSlot(language);
+        if (slot != null) {
+            return new Workspace(language, slot, true, properties.getMaxBytes());
+        }
+        // 目录槽已用完，临时创建目录
+        File dir = new File(getLanguageRoot(language), IdUtil.getSnowflake().nextIdStr());
+        FileUtil.mkdir(dir);
+        return new Workspace(language, dir, false, properties.getMaxBytes());
+    }
+
+    /**
+     * 归还工作目录，由后台线程清理
+     * @param workspace 工作目录
+     */
+    public void release(Workspace workspace) {
+        pendingCleanups.incrementAndGet();
+        try {
+            cleaner.execute(() -> cleanup(workspace));
+        } catch (RejectedExecutionException e) {
+            // 已关闭，直接在当前线程清理
+            cleanup(workspace);
+        }
+    }
+
+    /**
+     * 提交的代码与输入是否超出单个工作目录的大小上限，超出时计入拒绝次数
+     * @param bytes 需要写入工作目录的字节数
+     */
+    public boolean exceedsQuota(long bytes) {
+        if (properties.getMaxBytes() > 0 && bytes > properties.getMaxBytes()) {
+            quotaRejections.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 记录一次编译后超出大小上限的拒绝
+     */
+    public void recordQuotaRejection() {
+        quotaRejections.incrementAndGet();
+    }
+
+    public WorkspaceMetrics getMetrics() {
+        int slots = slotCounts.values().stream().mapToInt(AtomicInteger::get).sum();
+        int free = freeSlots.values().stream().mapToInt(ConcurrentLinkedDeque::size).sum();
+        return WorkspaceMetrics.builder()
+                .rootDir(rootDir.getAbsolutePath())
+                .slots(slots)
+                .freeSlots(free)
+                .allocated(allocated.get())
+                .slotHits(slotHits.get())
+                .pendingCleanups(pendingCleanups.get())
+                .cleanupFailures(cleanupFailures.get())
+                .quotaRejections(quotaRejections.get())
+                .build();
+    }
+
+    /**
+     * 等待已提交的清理完成后停止清理线程，删除实例目录并释放锁
+     */
+    public void close() {
+        cleaner.shutdown();
+        try {
+            cleaner.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        FileUtil.del(rootDir);
+        FileUtil.del(lockFile);
+        IoUtil.close(lockChannel);
+    }
+
+    private void cleanup(Workspace workspace) {
+        try {
+            File dir = workspace.getDir();
+            if (!workspace.isSlot()) {
+                FileUtil.del(dir);
+                return;
+            }
+            if (FileUtil.clean(dir) && FileUtil.isDirEmpty(dir)) {
+                freeSlots(workspace.getLanguage()).offerFirst(dir);
+                return;
+            }
+            // 清理不干净的目录槽直接丢弃，之后按需重新创建
+            log.error("清理工作目录 {} 失败，丢弃该目录槽", dir.getName());
+            cleanupFailures.incrementAndGet();
+            slotCounts.get(workspace.getLanguage()).decrementAndGet();
+            FileUtil.del(dir);
+        } catch (Exception e) {
+            log.error("清理工作目录失败：{}", e.getMessage());
+        } finally {
+            pendingCleanups.decrementAndGet();
+        }
+    }
+
+    /**
+     * 目录槽未达到上限时创建新的目录槽
+     * @return 目录槽，已达到上限时返回 null
+     */
+    private File createSlot(String language) {
+        AtomicInteger count = slotCounts.computeIfAbsent(language, key -> new AtomicInteger());
+        int current;
+        do {
+            current = count.get();
+            if (current >= properties.getSlotsPerLanguage()) {
+                return null;
+            }
+        } while (!count.compareAndSet(current, current + 1));
+        int id = slotIds.computeIfAbsent(language, key -> new AtomicInteger()).getAndIncrement();
+        File slot = new File(getLanguageRoot(language), SLOT_PREFIX + id);
+        FileUtil.mkdir(slot);
+        return slot;
+    }
+
+    private ConcurrentLinkedDeque<File> freeSlots(String language) {
+        return freeSlots.computeIfAbsent(language, key -> new ConcurrentLinkedDeque<>());
+    }
+}
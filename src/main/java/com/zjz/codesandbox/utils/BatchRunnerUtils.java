@@ -0,0 +1,324 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zjz.codesandbox.constant.CmdConstant;
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.dto.CompileMessage;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.model.process.BatchCaseResult;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 批量运行器工具类
+ * 批量运行器源码位于 resources/harness，首次使用时以 Java 8 为目标编译，之后复用字节码
+ */
+@Slf4j
+public class BatchRunnerUtils {
+
+    /**
+     * 批量运行器类名
+     */
+    public static final String RUNNER_CLASS_NAME = "BatchRunner";
+
+    private static final String RUNNER_RESOURCE = "harness/" + RUNNER_CLASS_NAME + ".java";
+
+    private static final String HARNESS_DIR_NAME = "harness";
+
+    private static final String CASE_INPUT_FILE = "case-%d.in";
+
+    /**
+     * 传递本次运行标记的环境变量，批量运行器在用户代码运行前读取，结果行以标记开头
+     */
+    private static final String NONCE_ENV = "CODEBOX_BATCH_NONCE";
+
+    /**
+     * 每行结果的字段数：标记 序号 状态 退出码 耗时 CPU时间 分配内存 峰值堆内存 标准输出 错误输出
+     */
+    private static final int RESULT_FIELDS = 10;
+
+    /**
+     * 每行结果中除输出外的字段长度上限
+     */
+    private static final long RESULT_LINE_OVERHEAD = 288;
+
+    /**
+     * 批量运行器字节码，文件名 -> 内容，编译失败时为空 Map
+     */
+    private static volatile Map<String, byte[]> runnerClasses;
+
+    /**
+     * 准备批量运行：写入批量运行器字节码与各测试用例输入
+     * 写入后目录大小会超出上限时不写入任何文件，由调用方逐个运行用例（输入经标准输入传递，不落盘）
+     * @param userCodePath 用户代码目录
+     * @param inputs 测试用例
+     * @param maxBytes 目录大小上限 字节，小于等于 0 时不限制
+     * @return 是否可以使用批量运行
+     */
+    public static boolean prepare(String userCodePath, List<String> inputs, long maxBytes) {
+        Map<String, byte[]> classes = getRunnerClasses();
+        if (classes.isEmpty()) {
+            return false;
+        }
+        if (maxBytes > 0) {
+            long bytes = FileUtil.size(new File(userCodePath));
+            for (byte[] bytecode : classes.values()) {
+                bytes += bytecode.length;
+            }
+            for (String input : inputs) {
+                bytes += FileCommonUtils.utf8Length(String.valueOf(input)) + 1;
+            }
+            if (bytes > maxBytes) {
+                log.warn("批量运行的输入文件将超出工作目录大小上限（{} > {}），逐个运行用例", bytes, maxBytes);
+                return false;
+            }
+        }
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            FileUtil.writeBytes(entry.getValue(), new File(userCodePath, entry.getKey()));
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            FileUtil.writeString(inputs.get(i) + "\n",
+                    new File(userCodePath, String.format(CASE_INPUT_FILE, i)), StandardCharsets.UTF_8);
+        }
+        return true;
+    }
+
+    /**
+     * 生成本次批量运行的随机标记，用户代码无法得知标记，也就无法伪造结果行
+     */
+    public static String newNonce() {
+        return IdUtil.fastSimpleUUID();
+    }
+
+    /**
+     * 容器内批量运行需设置的环境变量
+     * @param nonce 本次运行标记
+     */
+    public static List<String> buildDockerEnv(String nonce) {
+        return Collections.singletonList(NONCE_ENV + "=" + nonce);
+    }
+
+    /**
+     * 本机批量运行的环境变量，在当前进程的环境变量基础上加入运行标记
+     * @param nonce 本次运行标记
+     */
+    public static String[] buildNativeEnv(String nonce) {
+        List<String> env = new ArrayList<>();
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            if (!NONCE_ENV.equals(entry.getKey())) {
+                env.add(entry.getKey() + "=" + entry.getValue());
+            }
+        }
+        env.add(NONCE_ENV + "=" + nonce);
+        return env.toArray(new String[0]);
+    }
+
+    /**
+     * 构建本机批量运行命令
+     * @param userCodePath 用户代码目录
+     * @param caseCount 用例数量
+     * @param outputLimit 单个用例的输出字节上限
+     * @param maxFailures 失败用例数达到该值后停止运行，0 表示不限制
+     * @param caseMemory 单个测试用例的内存上限 字节，堆上限与逐个运行时相同
+     * @return 运行命令
+     */
+    public static String buildNativeCommand(String userCodePath, int caseCount, long outputLimit, int maxFailures,
+                                            long caseMemory) {
+        // JDK 18 起默认禁止运行时设置 SecurityManager，需要显式允许以拦截 System.exit
+        String jvmOptions = Runtime.version().feature() >= 18 ? "-Djava.security.manager=allow " : "";
+        return String.format(CmdConstant.JAVA_BATCH_RUN_CMD, LanguageCommonUtils.javaHeapOption(caseMemory),
+                jvmOptions, userCodePath, userCodePath, caseCount, CommonConstant.TIME_OUT, outputLimit, maxFailures);
+    }
+
+    /**
+     * 构建容器内批量运行命令，容器内为 Java 8 运行环境
+     * @param containerCodePath 容器内用户代码目录
+     * @param caseCount 用例数量
+     * @param outputLimit 单个用例的输出字节上限
+     * @param maxFailures 失败用例数达到该值后停止运行，0 表示不限制
+     * @param caseMemory 单个测试用例的内存上限 字节，堆上限与逐个运行时相同
+     * @return 运行命令
+     */
+    public static String[] buildDockerCommand(String containerCodePath, int caseCount, long outputLimit,
+                                              int maxFailures, long caseMemory) {
+        return new String[]{
+                "java", LanguageCommonUtils.javaHeapOption(caseMemory), "-cp", containerCodePath, RUNNER_CLASS_NAME,
+                containerCodePath, String.valueOf(caseCount), String.valueOf(CommonConstant.TIME_OUT),
+                String.valueOf(outputLimit), String.valueOf(maxFailures)
+        };
+    }
+
+    /**
+     * 批量运行整体超时时间
+     */
+    public static long getBatchTimeout(int caseCount) {
+        return CommonConstant.TIME_OUT * (caseCount + 1);
+    }
+
+    /**
+     * 批量运行器整体的输出字节上限
+     * 每个用例的标准输出与错误输出各自不超过 outputLimit，经 Base64 编码后约为原来的 4/3
+     * @param caseCount 用例数量
+     * @param outputLimit 单个用例的输出字节上限
+     */
+    public static long getBatchOutputLimit(int caseCount, long outputLimit) {
+        if (outputLimit <= 0) {
+            return 0;
+        }
+        return caseCount * (outputLimit * 2 * 4 / 3 + RESULT_LINE_OVERHEAD);
+    }
+
+    /**
+     * 解析批量运行器输出，只接受以本次运行标记开头的结果行
+     * @param output 批量运行器标准输出
+     * @param charset 用例输出的编码
+     * @param nonce 本次运行标记
+     * @return 已完成的用例结果，按用例顺序排列
+     */
+    public static List<BatchCaseResult> parseResults(String output, Charset charset, String nonce) {
+        List<BatchCaseResult> results = new ArrayList<>();
+        if (StrUtil.isBlank(output)) {
+            return results;
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (String line : output.split("\\R")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != RESULT_FIELDS || !fields[0].equals(nonce)) {
+                continue;
+            }
+            try {
+                results.add(BatchCaseResult.builder()
+                        .index(Integer.parseInt(fields[1]))
+                        .timeout("TIMEOUT".equals(fields[2]))
+                        .outputLimitExceeded("OUTPUT_LIMIT".equals(fields[2]))
+                        .exitCode(Integer.parseInt(fields[3]))
+                        .executeTime(Long.parseLong(fields[4]))
+                        .cpuTime(Long.parseLong(fields[5]))
+                        .allocatedMemory(Long.parseLong(fields[6]))
+                        .memoryUsage(Long.parseLong(fields[7]))
+                        .successMsg(new String(decoder.decode(fields[8]), charset))
+                        .errorMsg(new String(decoder.decode(fields[9]), charset))
+                        .build());
+            } catch (IllegalArgumentException e) {
+                log.error("无法解析批量运行结果：{}", e.getMessage());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 将批量运行结果转换为输出与执行信息，只收集从第 0 个开始连续完成的用例
+     * 批量运行器的输出已整体读取，判题时将解码后的标准输出写入比较器
+     * @param judges 按用例序号创建输出比较器，返回 null 时不判题
+     * @return 已收集的用例数量
+     */
+    public static int collectResults(List<BatchCaseResult> results, List<String> outputs,
+                                     List<ExecuteInfo> executeInfos, IntFunction<OutputJudge> judges) {
+        int collected = 0;
+        for (BatchCaseResult result : results) {
+            if (result.getIndex() != collected) {
+                break;
+            }
+            ExecuteInfo executeInfo = new ExecuteInfo();
+            executeInfo.setTime(result.getExecuteTime());
+            executeInfo.setMemory(result.getMemoryUsage());
+            executeInfo.setCpuTime(result.getCpuTime());
+            executeInfo.setAllocatedMemory(result.getAllocatedMemory());
+            String payload;
+            if (result.getExitCode() == 0) {
+                executeInfo.setMessage("success");
+                payload = result.getSuccessMsg();
+            } else {
+                executeInfo.setMessage("failed");
+                if (result.getTimeout()) {
+                    payload = CommonConstant.TIME_OUT_MESSAGE;
+                } else if (result.getOutputLimitExceeded()) {
+                    payload = CommonConstant.OUTPUT_LIMIT_MESSAGE;
+                } else {
+                    payload = result.getErrorMsg();
+                }
+            }
+            OutputJudge judge = judges.apply(result.getIndex());
+            if (judge != null) {
+                judge.write(result.getSuccessMsg());
+                executeInfo.setVerdict(JudgeUtils.verdict(result.getTimeout(), result.getOutputLimitExceeded(),
+                        result.getExitCode(), result.getErrorMsg(), judge));
+                if (result.getExitCode() == 0) {
+                    // 判题时不返回标准输出
+                    payload = "";
+                }
+            }
+            outputs.add(payload.replaceAll("\\R", ""));
+            executeInfos.add(executeInfo);
+            collected++;
+        }
+        return collected;
+    }
+
+    /**
+     * 获取批量运行器字节码，首次调用时编译
+     */
+    private static Map<String, byte[]> getRunnerClasses() {
+        if (runnerClasses == null) {
+            synchronized (BatchRunnerUtils.class) {
+                if (runnerClasses == null) {
+                    runnerClasses = compileRunner();
+                }
+            }
+        }
+        return runnerClasses;
+    }
+
+    private static Map<String, byte[]> compileRunner() {
+        Map<String, byte[]> classes = new HashMap<>();
+        if (!JavaCompilerUtils.isAvailable()) {
+            log.warn("System java compiler is unavailable, batch run mode is disabled");
+            return classes;
+        }
+        // 在本次新建的临时目录中编译，不删除其他进程可能正在使用的固定目录
+        File harnessDir;
+        try {
+            harnessDir = Files.createTempDirectory(HARNESS_DIR_NAME).toFile();
+        } catch (IOException e) {
+            log.error("Failed to create batch runner build directory: {}", e.getMessage());
+            return classes;
+        }
+        try {
+            return compileRunner(harnessDir, classes);
+        } finally {
+            FileUtil.del(harnessDir);
+        }
+    }
+
+    private static Map<String, byte[]> compileRunner(File harnessDir, Map<String, byte[]> classes) {
+        File sourceFile = new File(harnessDir, RUNNER_CLASS_NAME + ".java");
+        FileUtil.writeString(ResourceUtil.readUtf8Str(RUNNER_RESOURCE), sourceFile, StandardCharsets.UTF_8);
+        CompileMessage compileMessage = JavaCompilerUtils.compile(
+                sourceFile, Arrays.asList("-encoding", "utf-8", "--release", "8", "-nowarn"));
+        if (!compileMessage.getSuccess()) {
+            log.error("Failed to compile batch runner: {}", compileMessage.getReason());
+            return classes;
+        }
+        for (File classFile : FileUtil.loopFiles(harnessDir, file -> file.getName().endsWith(".class"))) {
+            classes.put(classFile.getName(), FileUtil.readBytes(classFile));
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,82 @@
+package com.zjz.codesandbox.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 按块编码字符串的输入流
+ * 读取时才将字符串逐块编码为字节，不会一次性生成与输入等长的字节数组，用于向容器内的程序写入标准输入
+ */
+public class ChunkedStringInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final CharBuffer source;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer chunk;
+
+    private boolean flushed = false;
+
+    public ChunkedStringInputStream(String content, Charset charset) {
+        this.source = CharBuffer.wrap(content == null ? "" : content);
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chunk = ByteBuffer.allocate(CHUNK_SIZE);
+        // 初始为空，首次读取时编码
+        this.chunk.flip();
+    }
+
+    @Override
+    public int read() {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int read = Math.min(len, chunk.remaining());
+        chunk.get(bytes, off, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return chunk.remaining();
+    }
+
+    /**
+     * 当前块读完后编码下一块
+     * @return 是否还有可读字节
+     */
+    private boolean fill() {
+        while (!chunk.hasRemaining()) {
+            if (flushed) {
+                return false;
+            }
+            chunk.clear();
+            CoderResult result = encoder.encode(source, chunk, true);
+            if (result.isUnderflow()) {
+                encoder.flush(chunk);
+                flushed = true;
+            }
+            chunk.flip();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,398 @@
+package com.zjz.codesandbox.utils;
+
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.exception.DockerException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 容器资源统计工具类
+ * 直接读取容器 cgroup 的内存峰值与 CPU 用量，在每次 exec 前后各读取一次，
+ * 不再依赖 docker stats 流的回调时机；内核不支持重置内存峰值时（cgroup v2 且 Linux 6.12 以下，或 cgroup v1 无写权限），
+ * 以及 cgroup v1 下同一容器内并行运行多个 exec 时（v1 的重置对整个 cgroup 生效，会清掉其他 exec 已记录的峰值），
+ * 改为采样容器内本次 exec 各进程的 VmHWM
+ */
+@Slf4j
+public class ContainerResourceUtils {
+
+    private static final String PROC_ROOT = "/proc";
+
+    private static final String CGROUP_ROOT = "/sys/fs/cgroup";
+
+    /**
+     * cgroup v2 文件
+     */
+    private static final String V2_MEMORY_PEAK = "memory.peak";
+
+    private static final String V2_CPU_STAT = "cpu.stat";
+
+    private static final String V2_CPU_USAGE_FIELD = "usage_usec ";
+
+    /**
+     * cgroup v1 文件
+     */
+    private static final String V1_MEMORY_PEAK = "memory.max_usage_in_bytes";
+
+    private static final String V1_CPU_USAGE = "cpuacct.usage";
+
+    /**
+     * cgroup 内的进程列表，v1 与 v2 相同
+     */
+    private static final String CGROUP_PROCS = "cgroup.procs";
+
+    /**
+     * 容器 id -> cgroup 目录，容器删除时移除
+     */
+    private static final Map<String, CgroupDirs> CGROUP_DIRS = new ConcurrentHashMap<>();
+
+    private static final AtomicBoolean UNAVAILABLE_WARNED = new AtomicBoolean(false);
+
+    private static final AtomicBoolean RESET_UNSUPPORTED_WARNED = new AtomicBoolean(false);
+
+    /**
+     * 开始统计一次 exec 的资源用量，需在 exec 启动前调用
+     * @param containerId 容器 id
+     * @param marker exec 的标记，见 DockerCommonUtils.execMarkerEnv，按进程采样时用于找到本次 exec 的进程
+     * @param client Docker 客户端
+     * @param parallel 同一容器内是否可能同时运行其他 exec
+     * @return 统计，cgroup 不可读时统计结果均为 -1
+     */
+    public static Measurement startMeasure(String containerId, String marker, DockerClient client, boolean parallel) {
+        CgroupDirs dirs = CGROUP_DIRS.computeIfAbsent(containerId, id -> resolveCgroupDirs(id, client));
+        Measurement measurement = new Measurement(dirs, DockerCommonUtils.execMarkerEnv(marker).get(0), parallel);
+        measurement.start();
+        return measurement;
+    }
+
+    /**
+     * 容器删除后清理缓存的 cgroup 目录
+     */
+    public static void forget(String containerId) {
+        CGROUP_DIRS.remove(containerId);
+    }
+
+    /**
+     * 通过容器主进程的 /proc/{pid}/cgroup 定位容器 cgroup 目录，兼容 cgroup v1 与 v2
+     */
+    private static CgroupDirs resolveCgroupDirs(String containerId, DockerClient client) {
+        CgroupDirs dirs = new CgroupDirs();
+        Long pid;
+        try {
+            InspectContainerResponse response = client.inspectContainerCmd(containerId).exec();
+            pid = response.getState().getPidLong();
+        } catch (DockerException e) {
+            log.error("Error inspecting container {}: {}", containerId, e.getMessage());
+            return dirs;
+        }
+        Path cgroupFile = pid == null || pid <= 0 ? null : Paths.get(PROC_ROOT, String.valueOf(pid), "cgroup");
+        if (cgroupFile == null || !Files.isReadable(cgroupFile)) {
+            warnUnavailable();
+            return dirs;
+        }
+        try {
+            for (String line : Files.readAllLines(cgroupFile, StandardCharsets.US_ASCII)) {
+                // 形如 0::/system.slice/docker-xxx.scope 或 4:memory:/docker/xxx
+                String[] fields = line.split(":", 3);
+                if (fields.length != 3) {
+                    continue;
+                }
+                if (fields[0].equals("0") && fields[1].isEmpty()) {
+                    Path dir = Paths.get(CGROUP_ROOT, fields[2]);
+                    if (Files.isReadable(dir.resolve(V2_MEMORY_PEAK))) {
+                        dirs.memoryDir = dir;
+                        dirs.cpuDir = dir;
+                        dirs.v2 = true;
+                        break;
+                    }
+                }
+                for (String controller : fields[1].split(",")) {
+                    if (controller.equals("memory")) {
+                        dirs.memoryDir = Paths.get(CGROUP_ROOT, "memory", fields[2]);
+                    } else if (controller.equals("cpuacct")) {
+                        dirs.cpuDir = Paths.get(CGROUP_ROOT, fields[1], fields[2]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading cgroup of container {}: {}", containerId, e.getMessage());
+        }
+        if (dirs.memoryDir == null) {
+            warnUnavailable();
+        }
+        return dirs;
+    }
+
+    private static void warnUnavailable() {
+        if (UNAVAILABLE_WARNED.compareAndSet(false, true)) {
+            log.warn("Container cgroup is not readable from the sandbox host, memory and cpu usage will not be reported");
+        }
+    }
+
+    private static void warnResetUnsupported() {
+        if (RESET_UNSUPPORTED_WARNED.compareAndSet(false, true)) {
+            log.warn("Container memory peak cannot be reset, sampling VmHWM of exec processes instead");
+        }
+    }
+
+    private static long readLong(Path path) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(path), StandardCharsets.US_ASCII).trim());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static class CgroupDirs {
+        private Path memoryDir;
+        private Path cpuDir;
+        private boolean v2;
+    }
+
+    /**
+     * 一次 exec 的资源统计
+     */
+    public static class Measurement {
+
+        private final CgroupDirs dirs;
+
+        /**
+         * 本次 exec 进程环境变量中的标记
+         */
+        private final byte[] markerEnv;
+
+        /**
+         * 同一容器内是否可能同时运行其他 exec
+         */
+        private final boolean parallel;
+
+        /**
+         * 按进程采样时本次 exec 各进程的峰值 KB
+         */
+        private final Map<Long, Long> processPeaks = new ConcurrentHashMap<>();
+
+        /**
+         * 不属于本次 exec 的进程，不再重复检查
+         */
+        private final Set<Long> otherProcesses = ConcurrentHashMap.newKeySet();
+
+        private ScheduledFuture<?> sampling;
+
+        private boolean stopped = false;
+
+        /**
+         * cgroup v2 的 memory.peak 按文件描述符重置，统计期间需保持打开
+         */
+        private FileChannel peakChannel;
+
+        private long cpuStart = -1;
+
+        private long peakMemory = -1;
+
+        private long cpuTime = -1;
+
+        private Measurement(CgroupDirs dirs, String markerEnv, boolean parallel) {
+            this.dirs = dirs;
+            this.markerEnv = markerEnv.getBytes(StandardCharsets.US_ASCII);
+            this.parallel = parallel;
+        }
+
+        private void start() {
+            if (dirs.memoryDir != null && !dirs.v2 && parallel) {
+                // cgroup v1 的峰值重置对整个 cgroup 生效，并行时不能重置
+                sampling = ProcessUtils.scheduleMemorySampling(this::sampleProcesses);
+            } else if (dirs.memoryDir != null && !resetPeak()) {
+                warnResetUnsupported();
+                sampling = ProcessUtils.scheduleMemorySampling(this::sampleProcesses);
+            }
+            if (dirs.cpuDir != null) {
+                cpuStart = readCpuUsage();
+            }
+        }
+
+        /**
+         * 结束统计，需在 exec 结束后调用，重复调用时只有第一次生效
+         */
+        public Measurement stop() {
+            if (stopped) {
+                return this;
+            }
+            stopped = true;
+            if (sampling != null) {
+                sampling.cancel(false);
+                sampleProcesses();
+                peakMemory = processPeaks.isEmpty()
+                        ? -1 : processPeaks.values().stream().mapToLong(Long::longValue).sum();
+            } else if (dirs.memoryDir != null) {
+                peakMemory = readPeak();
+            }
+            if (cpuStart >= 0) {
+                long cpuEnd = readCpuUsage();
+                cpuTime = cpuEnd >= cpuStart ? (cpuEnd - cpuStart) / 1000 : -1;
+            }
+            return this;
+        }
+
+        /**
+         * exec 期间的内存峰值 KB，不可用时为 -1
+         */
+        public long getPeakMemory() {
+            return peakMemory;
+        }
+
+        /**
+         * exec 期间的 CPU 时间 ms，不可用时为 -1
+         */
+        public long getCpuTime() {
+            return cpuTime;
+        }
+
+        /**
+         * 重置内存峰值，容器被复用时峰值只统计本次 exec
+         * cgroup v2 写入 memory.peak 仅对当前文件描述符生效(Linux 6.12+)，
+         * 不支持重置时读取到的是容器创建以来的峰值
+         * @return 是否重置成功
+         */
+        private boolean resetPeak() {
+            if (dirs.v2) {
+                try {
+                    peakChannel = FileChannel.open(dirs.memoryDir.resolve(V2_MEMORY_PEAK),
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    peakChannel.write(ByteBuffer.wrap("reset\n".getBytes(StandardCharsets.US_ASCII)));
+                    return true;
+                } catch (IOException e) {
+                    // 内核不支持重置
+                    closePeakChannel();
+                    return false;
+                }
+            }
+            try {
+                Files.write(dirs.memoryDir.resolve(V1_MEMORY_PEAK), "0".getBytes(StandardCharsets.US_ASCII));
+                return true;
+            } catch (IOException e) {
+                // 无写权限
+                return false;
+            }
+        }
+
+        private void closePeakChannel() {
+            if (peakChannel == null) {
+                return;
+            }
+            try {
+                peakChannel.close();
+            } catch (IOException ignored) {
+            }
+            peakChannel = null;
+        }
+
+        /**
+         * 读取容器 cgroup 内属于本次 exec 的进程的 VmHWM，进程退出前的最后一次采样即为其峰值
+         */
+        private void sampleProcesses() {
+            List<String> pids;
+            try {
+                pids = Files.readAllLines(dirs.memoryDir.resolve(CGROUP_PROCS), StandardCharsets.US_ASCII);
+            } catch (IOException e) {
+                return;
+            }
+            for (String line : pids) {
+                long pid;
+                try {
+                    pid = Long.parseLong(line.trim());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (otherProcesses.contains(pid)) {
+                    continue;
+                }
+                if (!processPeaks.containsKey(pid) && !hasMarker(pid)) {
+                    otherProcesses.add(pid);
+                    continue;
+                }
+                long peak = ProcessUtils.readProcStatus(pid, ProcessUtils.PROC_PEAK_RSS_FIELD);
+                if (peak > 0) {
+                    processPeaks.merge(pid, peak, Math::max);
+                }
+            }
+        }
+
+        /**
+         * 进程的环境变量中是否带有本次 exec 的标记，环境变量不可读时视为不是
+         */
+        private boolean hasMarker(long pid) {
+            byte[] environ;
+            try {
+                environ = Files.readAllBytes(Paths.get(PROC_ROOT, String.valueOf(pid), "environ"));
+            } catch (IOException e) {
+                return false;
+            }
+            int begin = 0;
+            for (int i = 0; i <= environ.length; i++) {
+                if (i == environ.length || environ[i] == 0) {
+                    if (Arrays.equals(environ, begin, i, markerEnv, 0, markerEnv.length)) {
+                        return true;
+                    }
+                    begin = i + 1;
+                }
+            }
+            return false;
+        }
+
+        private long readPeak() {
+            if (!dirs.v2) {
+                long peak = readLong(dirs.memoryDir.resolve(V1_MEMORY_PEAK));
+                return peak < 0 ? -1 : peak / 1024;
+            }
+            if (peakChannel == null) {
+                long peak = readLong(dirs.memoryDir.resolve(V2_MEMORY_PEAK));
+                return peak < 0 ? -1 : peak / 1024;
+            }
+            try (FileChannel channel = peakChannel) {
+                ByteBuffer buffer = ByteBuffer.allocate(32);
+                channel.read(buffer, 0);
+                buffer.flip();
+                return Long.parseLong(StandardCharsets.US_ASCII.decode(buffer).toString().trim()) / 1024;
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            } finally {
+                peakChannel = null;
+            }
+        }
+
+        /**
+         * 读取累计 CPU 用量 μs
+         */
+        private long readCpuUsage() {
+            if (!dirs.v2) {
+                long usage = readLong(dirs.cpuDir.resolve(V1_CPU_USAGE));
+                return usage < 0 ? -1 : usage / 1000;
+            }
+            try {
+                for (String line : Files.readAllLines(dirs.cpuDir.resolve(V2_CPU_STAT), StandardCharsets.US_ASCII)) {
+                    if (line.startsWith(V2_CPU_USAGE_FIELD)) {
+                        return Long.parseLong(line.substring(V2_CPU_USAGE_FIELD.length()).trim());
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+            return -1;
+        }
+    }
+}
@@ -1,16 +1,105 @@
 package com.zjz.codesandbox.utils;
 
+import cn.hutool.core.util.StrUtil;
 import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.command.ExecCreateCmdResponse;
+import com.github.dockerjava.api.command.InspectContainerResponse;
+import com.github.dockerjava.api.command.InspectExecResponse;
 import com.github.dockerjava.api.exception.DockerException;
+import com.github.dockerjava.core.DefaultDockerClientConfig;
+import com.github.dockerjava.core.DockerClientBuilder;
+import com.github.dockerjava.core.DockerClientConfig;
+import com.github.dockerjava.core.DockerClientImpl;
+import com.github.dockerjava.httpclient5.ApacheDockerHttpClient;
+import com.github.dockerjava.netty.NettyDockerCmdExecFactory;
+import com.zjz.codesandbox.config.DockerClientProperties;
+import com.zjz.codesandbox.sandbox.docker.ExecFrameCallback;
+import com.zjz.codesandbox.sandbox.docker.MeteredDockerHttpClient;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Docker 工具类
  */
 @Slf4j
 public class DockerCommonUtils {
 
+    /**
+     * 标记 exec 进程的环境变量名，子进程继承该变量，终止时按变量值找到容器内的进程
+     */
+    private static final String EXEC_MARKER_ENV = "CODEBOX_EXEC";
+
+    /**
+     * 在容器内终止环境变量中带有指定标记的所有进程 参数为 标记
+     */
+    private static final String KILL_MARKED_CMD = "for p in /proc/[0-9]*; do"
+            + " if tr '\\0' '\\n' < $p/environ | grep -qx '%s'; then kill -9 ${p#/proc/}; fi;"
+            + " done 2>/dev/null; exit 0";
+
+    /**
+     * 终止 exec 进程的超时时间 ms
+     */
+    private static final long KILL_TIMEOUT = 3000L;
+
+    /**
+     * 创建 Docker 客户端
+     * 使用 httpclient5 传输与连接池，连接在调用之间复用，每次调用记录耗时、进行中调用数与守护进程错误
+     * @param properties 客户端配置
+     */
+    public static DockerClient createDockerClient(DockerClientProperties properties){
+        DockerClientConfig config = createConfig(properties);
+        ApacheDockerHttpClient.Builder httpClientBuilder = new ApacheDockerHttpClient.Builder()
+                .dockerHost(config.getDockerHost())
+                .sslConfig(config.getSSLConfig())
+                .maxConnections(properties.getMaxConnections())
+                .connectionTimeout(Duration.ofMillis(properties.getConnectionTimeout()));
+        if (properties.getResponseTimeout() > 0){
+            httpClientBuilder.responseTimeout(Duration.ofMillis(properties.getResponseTimeout()));
+        }
+        return DockerClientImpl.getInstance(config, new MeteredDockerHttpClient(httpClientBuilder.build()));
+    }
+
+    /**
+     * 创建向 exec 写入标准输入用的 Docker 客户端
+     * 使用 Netty 传输：向 exec 写入标准输入需要接管连接，写完后需要半关闭连接，容器内的程序才能读到输入结束；
+     * httpclient5 传输在输入结束时直接关闭连接，会丢失之后的输出，因此只有带标准输入的 exec 启动使用该客户端；
+     * Netty 传输不经过 DockerHttpClient，无法由 MeteredDockerHttpClient 记录指标，改由启动时的 ExecFrameCallback.meter 记录
+     * @param properties 客户端配置
+     */
+    public static DockerClient createStdinDockerClient(DockerClientProperties properties){
+        NettyDockerCmdExecFactory execFactory = new NettyDockerCmdExecFactory();
+        execFactory.withConnectTimeout(properties.getStdinConnectTimeout());
+        if (properties.getStdinReadTimeout() > 0){
+            execFactory.withReadTimeout(properties.getStdinReadTimeout());
+        }
+        return buildWithExecFactory(createConfig(properties), execFactory);
+    }
+
+    /**
+     * docker-java 只剩 DockerCmdExecFactory 这一种接入 Netty 传输的方式，已标记为过时，
+     * 在 httpclient5 支持半关闭标准输入之前保留，过时警告只在此处抑制
+     */
+    @SuppressWarnings("deprecation")
+    private static DockerClient buildWithExecFactory(DockerClientConfig config, NettyDockerCmdExecFactory execFactory){
+        return DockerClientBuilder.getInstance(config)
+                .withDockerCmdExecFactory(execFactory)
+                .build();
+    }
+
+    private static DockerClientConfig createConfig(DockerClientProperties properties){
+        DefaultDockerClientConfig.Builder configBuilder = DefaultDockerClientConfig.createDefaultConfigBuilder();
+        if (StrUtil.isNotBlank(properties.getDockerHost())){
+            configBuilder.withDockerHost(properties.getDockerHost());
+        }
+        return configBuilder.build();
+    }
+
     public static void deleteContainer(String containerId, DockerClient client){
+        ContainerResourceUtils.forget(containerId);
         try {
             client.removeContainerCmd(containerId)
                     .withForce(true)
@@ -20,4 +109,85 @@ public class DockerCommonUtils {
             log.error("Error deleting container: {}", e.getMessage());
         }
     }
+
+    /**
+     * 创建 exec 时设置的标记环境变量，配合 killExec 终止该 exec 的进程
+     * @param marker 标记，每个 exec 唯一
+     */
+    public static List<String> execMarkerEnv(String marker){
+        return Collections.singletonList(EXEC_MARKER_ENV + "=" + marker);
+    }
+
+    /**
+     * 终止仍在运行的 exec 进程及其子进程
+     * exec 超时后 awaitCompletion 只会停止等待，容器内的进程仍在运行；inspect 返回的 pid 属于 Docker 所在主机，
+     * 守护进程在远程或本服务运行在容器中时不可用，因此在目标容器内按 exec 的标记环境变量找到进程并终止；
+     * 改写了自身环境变量的进程在归还或删除容器时终止
+     * @param containerId 容器 id
+     * @param execId exec id
+     * @param marker 创建 exec 时通过 execMarkerEnv 设置的标记
+     */
+    public static void killExec(String containerId, String execId, String marker, DockerClient client){
+        try {
+            InspectExecResponse response = client.inspectExecCmd(execId).exec();
+            if (!Boolean.TRUE.equals(response.isRunning())) {
+                return;
+            }
+            String[] cmd = new String[]{"sh", "-c", String.format(KILL_MARKED_CMD, execMarkerEnv(marker).get(0))};
+            if (execAndAwait(containerId, client, cmd, KILL_TIMEOUT)) {
+                log.info("Exec {} killed due to timeout.", execId);
+            }
+        } catch (DockerException e){
+            log.error("Error killing exec {}: {}", execId, e.getMessage());
+        }
+    }
+
+    /**
+     * 容器是否处于运行状态
+     */
+    public static boolean isContainerRunning(String containerId, DockerClient client){
+        try {
+            InspectContainerResponse response = client.inspectContainerCmd(containerId).exec();
+            return Boolean.TRUE.equals(response.getState().getRunning());
+        } catch (DockerException e){
+            log.error("Error inspecting container {}: {}", containerId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 在容器内执行命令并等待结束，不收集输出
+     * @return 是否在超时时间内执行完成
+     */
+    public static boolean execAndAwait(String containerId, DockerClient client, String[] cmd, long timeout){
+        return execForExitCode(containerId, client, cmd, timeout) != null;
+    }
+
+    /**
+     * 在容器内执行命令并等待结束，不收集输出
+     * @return 退出码，超时或执行失败时为 null
+     */
+    public static Integer execForExitCode(String containerId, DockerClient client, String[] cmd, long timeout){
+        try {
+            ExecCreateCmdResponse response = client.execCreateCmd(containerId)
+                    .withCmd(cmd)
+                    .withAttachStdout(true)
+                    .withAttachStderr(true)
+                    .exec();
+            boolean completed = client.execStartCmd(response.getId())
+                    .exec(new ExecFrameCallback(null, null))
+                    .awaitCompletion(timeout, TimeUnit.MILLISECONDS);
+            if (!completed) {
+                return null;
+            }
+            Long exitCode = client.inspectExecCmd(response.getId()).exec().getExitCodeLong();
+            return exitCode == null ? null : exitCode.intValue();
+        } catch (DockerException e){
+            log.error("Error executing command in container {}: {}", containerId, e.getMessage());
+            return null;
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
 }
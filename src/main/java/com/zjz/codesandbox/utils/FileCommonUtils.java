@@ -0,0 +1,79 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import com.zjz.codesandbox.constant.FileConstant;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+
+/**
+ * 文件工具类
+ */
+@Slf4j
+public class FileCommonUtils {
+
+    /**
+     * 准备由本服务独占的目录并清空上次运行留下的内容
+     * 目录由本服务创建时写入标记文件，只有不存在、为空或带有标记文件的目录才会被清空；
+     * 配置错误指向其他非空目录（如 /tmp）时拒绝启动，不删除任何文件
+     * @param dir 目录
+     * @param defaultLocation 是否为未配置时使用的默认位置，默认位置的旧目录没有标记文件也视为本服务创建
+     */
+    public static void resetOwnedDir(File dir, boolean defaultLocation) {
+        prepareOwnedDir(dir, defaultLocation);
+        File[] files = dir.listFiles(file -> !file.getName().equals(FileConstant.OWNER_MARKER_NAME));
+        if (files != null) {
+            for (File file : files) {
+                FileUtil.del(file);
+            }
+        }
+        log.info("Directory {} is ready", dir.getAbsolutePath());
+    }
+
+    /**
+     * 字符串按 UTF-8 编码后的字节数，不复制字符串
+     * @param str 字符串，null 时为 0
+     */
+    public static long utf8Length(String str) {
+        if (str == null) {
+            return 0;
+        }
+        long bytes = 0;
+        int length = str.length();
+        for (int i = 0; i < length; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))) {
+                // 代理对编码为 4 字节
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 准备由本服务独占的目录，不清空已有内容，供多个进程共用同一目录、各自只清理自己创建的子目录时使用
+     * @param dir 目录
+     * @param defaultLocation 是否为未配置时使用的默认位置，默认位置的旧目录没有标记文件也视为本服务创建
+     */
+    public static void prepareOwnedDir(File dir, boolean defaultLocation) {
+        if (dir.exists() && !dir.isDirectory()) {
+            throw new IllegalStateException(StrUtil.format("{} is not a directory", dir.getAbsolutePath()));
+        }
+        File marker = new File(dir, FileConstant.OWNER_MARKER_NAME);
+        String[] children = dir.list();
+        if (children != null && children.length > 0 && !marker.isFile() && !defaultLocation) {
+            throw new IllegalStateException(StrUtil.format(
+                    "{} is not empty and was not created by the sandbox, refusing to clean it", dir.getAbsolutePath()));
+        }
+        FileUtil.mkdir(dir);
+        FileUtil.touch(marker);
+    }
+}
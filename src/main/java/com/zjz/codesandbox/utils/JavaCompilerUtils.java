@@ -0,0 +1,193 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.io.FileUtil;
+import com.zjz.codesandbox.model.compile.CompileDiagnostic;
+import com.zjz.codesandbox.model.dto.CompileMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 进程内 Java 编译工具类
+ * 使用 javax.tools 在服务进程内编译，源码与字节码都保存在内存中，避免每次提交启动 javac 进程；
+ * 类路径与源码路径为空且不运行注解处理器，用户代码只能引用 JDK 的类，与单独运行 javac 一致
+ */
+@Slf4j
+public class JavaCompilerUtils {
+
+    /**
+     * 系统编译器，运行在 JRE 上时为 null
+     */
+    private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+    /**
+     * 标准文件管理器会缓存平台类索引，创建代价较高且非线程安全，每个线程复用一个
+     */
+    private static final ThreadLocal<StandardJavaFileManager> STANDARD_FILE_MANAGER = ThreadLocal.withInitial(
+            JavaCompilerUtils::createStandardFileManager);
+
+    /**
+     * 不运行注解处理器，服务类路径上的处理器（如 lombok）不会在进程内处理用户代码
+     */
+    private static final String PROC_NONE = "-proc:none";
+
+    /**
+     * 当前运行环境是否支持进程内编译
+     */
+    public static boolean isAvailable() {
+        return COMPILER != null;
+    }
+
+    /**
+     * 在进程内编译 Java 代码，并将字节码写入代码文件所在目录
+     * @param file 代码文件
+     * @param options 编译参数
+     * @return 编译结果
+     */
+    public static CompileMessage compile(File file, List<String> options) {
+        String code = FileUtil.readString(file, StandardCharsets.UTF_8);
+        String className = FileUtil.mainName(file);
+        DiagnosticCollector<JavaFileObject> collector = new DiagnosticCollector<>();
+        MemoryFileManager fileManager = new MemoryFileManager(STANDARD_FILE_MANAGER.get());
+        List<String> compileOptions = new ArrayList<>();
+        compileOptions.add(PROC_NONE);
+        compileOptions.addAll(options);
+        JavaCompiler.CompilationTask task = COMPILER.getTask(null, fileManager, collector, compileOptions, null,
+                Collections.singletonList(new SourceFileObject(className, code)));
+        boolean success = task.call();
+
+        List<CompileDiagnostic> diagnostics = new ArrayList<>();
+        StringBuilder reason = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : collector.getDiagnostics()) {
+            String message = diagnostic.getMessage(Locale.ROOT);
+            diagnostics.add(CompileDiagnostic.builder()
+                    .kind(diagnostic.getKind().name())
+                    .line(diagnostic.getLineNumber())
+                    .column(diagnostic.getColumnNumber())
+                    .message(message)
+                    .build());
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                reason.append(file.getName()).append(':').append(diagnostic.getLineNumber())
+                        .append(": error: ").append(message).append('\n');
+            }
+        }
+        if (!success) {
+            log.error("编译失败： {}", reason);
+            return CompileMessage.builder()
+                    .success(false)
+                    .reason(reason.toString())
+                    .diagnostics(diagnostics)
+                    .build();
+        }
+        // 将字节码写入用户代码目录，供运行阶段使用
+        File outputDir = file.getParentFile();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : fileManager.getClassBytes().entrySet()) {
+            String classFileName = entry.getKey().replace('.', File.separatorChar) + ".class";
+            FileUtil.writeBytes(entry.getValue().toByteArray(), new File(outputDir, classFileName));
+        }
+        return CompileMessage.builder()
+                .success(true)
+                .diagnostics(diagnostics)
+                .build();
+    }
+
+    /**
+     * 创建类路径与源码路径为空的标准文件管理器，不继承服务进程的类路径
+     */
+    private static StandardJavaFileManager createStandardFileManager() {
+        StandardJavaFileManager fileManager = COMPILER.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_PATH, Collections.emptyList());
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.emptyList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to reset compiler class path", e);
+        }
+        return fileManager;
+    }
+
+    /**
+     * 内存中的源码文件
+     */
+    private static class SourceFileObject extends SimpleJavaFileObject {
+
+        private final String code;
+
+        SourceFileObject(String className, String code) {
+            super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * 内存中的字节码文件
+     */
+    private static class ClassFileObject extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        ClassFileObject(String className) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return outputStream;
+        }
+    }
+
+    /**
+     * 将编译输出保存在内存中的文件管理器，不关闭被复用的标准文件管理器
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        private final Map<String, ByteArrayOutputStream> classBytes = new LinkedHashMap<>();
+
+        MemoryFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFileObject classFile = new ClassFileObject(className);
+            classBytes.put(className, classFile.outputStream);
+            return classFile;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        Map<String, ByteArrayOutputStream> getClassBytes() {
+            return classBytes;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.zjz.codesandbox.utils;
+
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.enums.JudgeVerdictEnum;
+import com.zjz.codesandbox.model.process.ProcessMessage;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+
+/**
+ * 判题工具类
+ * 根据测试用例的运行状态与流式比较结果给出判题结果
+ */
+public class JudgeUtils {
+
+    /**
+     * 进程被 SIGKILL 终止的退出码，容器内存超限时由内核 OOM killer 终止
+     */
+    private static final int KILLED_EXIT_CODE = 137;
+
+    private static final String[] MEMORY_ERRORS = {"java.lang.OutOfMemoryError", "std::bad_alloc"};
+
+    /**
+     * 计算判题结果
+     * @param timeout 是否运行超时
+     * @param outputLimitExceeded 输出是否超出上限
+     * @param exitCode 退出码，未知时为 null
+     * @param errorOutput 错误输出
+     * @param judge 输出比较器
+     * @return JudgeVerdictEnum 的值
+     */
+    public static String verdict(boolean timeout, boolean outputLimitExceeded, Integer exitCode,
+                                 String errorOutput, OutputJudge judge) {
+        if (timeout) {
+            return JudgeVerdictEnum.TIME_LIMIT_EXCEEDED.getValue();
+        }
+        if (outputLimitExceeded) {
+            return JudgeVerdictEnum.OUTPUT_LIMIT_EXCEEDED.getValue();
+        }
+        if (isMemoryError(exitCode, errorOutput)) {
+            return JudgeVerdictEnum.MEMORY_LIMIT_EXCEEDED.getValue();
+        }
+        if (exitCode == null || exitCode != 0) {
+            return JudgeVerdictEnum.RUNTIME_ERROR.getValue();
+        }
+        return judge.isAccepted() ? JudgeVerdictEnum.ACCEPTED.getValue() : JudgeVerdictEnum.WRONG_ANSWER.getValue();
+    }
+
+    /**
+     * 根据本机进程的运行结果计算判题结果
+     */
+    public static String verdict(ProcessMessage processMessage, OutputJudge judge) {
+        return verdict(CommonConstant.TIME_OUT_MESSAGE.equals(processMessage.getErrorMsg()),
+                Boolean.TRUE.equals(processMessage.getOutputLimitExceeded()),
+                processMessage.getExitCode(), processMessage.getErrorMsg(), judge);
+    }
+
+    private static boolean isMemoryError(Integer exitCode, String errorOutput) {
+        if (exitCode != null && exitCode == KILLED_EXIT_CODE) {
+            return true;
+        }
+        if (errorOutput == null) {
+            return false;
+        }
+        for (String memoryError : MEMORY_ERRORS) {
+            if (errorOutput.contains(memoryError)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,32 +1,44 @@
 package com.zjz.codesandbox.utils;
 
-import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import com.github.dockerjava.api.DockerClient;
-import com.github.dockerjava.api.async.ResultCallback;
 import com.github.dockerjava.api.command.ExecCreateCmdResponse;
-import com.github.dockerjava.api.command.StatsCmd;
 import com.github.dockerjava.api.model.Frame;
-import com.github.dockerjava.api.model.Statistics;
 import com.github.dockerjava.api.model.StreamType;
-import com.github.dockerjava.core.command.ExecStartResultCallback;
 import com.zjz.codesandbox.constant.CmdConstant;
 import com.zjz.codesandbox.constant.CommonConstant;
 import com.zjz.codesandbox.model.dto.CompileMessage;
+import com.zjz.codesandbox.model.enums.JavaCompileModeEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
 import com.zjz.codesandbox.model.execute.ExecuteInfo;
 import com.zjz.codesandbox.model.process.ProcessMessage;
+import com.zjz.codesandbox.sandbox.docker.ExecFrameCallback;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 
-import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 public class LanguageCommonUtils {
 
+    /**
+     * Java 运行命令的最大堆参数，堆上限为用例内存的 3/4，其余留给元空间、线程栈等堆外内存
+     * @param caseMemory 单个测试用例的内存上限 字节
+     */
+    public static String javaHeapOption(long caseMemory){
+        return String.format(CmdConstant.JAVA_HEAP_OPTION, caseMemory * 3 / 4 / 1024 / 1024);
+    }
+
     /**
      * 编译 Java 代码
      * @param file
@@ -42,7 +54,7 @@ public class LanguageCommonUtils {
 
             if (compileMessage.getExitCode() == 0) {
                 // 编译成功
-                System.out.println(compileMessage.getSuccessMsg());
+                log.debug("Compile output: {}", compileMessage.getSuccessMsg());
             } else {
                 responseMessage = compileMessage.getErrorMsg();
                 return CompileMessage.builder()
@@ -59,95 +71,212 @@ public class LanguageCommonUtils {
     }
 
     /**
-     * 运行代码，并收集结果
+     * 按指定方式编译 Java 代码，运行环境不支持进程内编译时退回到 javac 进程
+     * @param file 代码文件
+     * @param compileMode 编译方式
+     * @param options 进程内编译参数
+     * @return 编译结果
      */
-    public static boolean runCode(List<String> outputs,List<ExecuteInfo> executeInfos,
-                                  String[] cmd, String containerId, DockerClient dockerClient){
+    public static CompileMessage compileJavaCode(File file, JavaCompileModeEnum compileMode, List<String> options){
+        if (JavaCompileModeEnum.IN_PROCESS.equals(compileMode)) {
+            if (JavaCompilerUtils.isAvailable()) {
+                return JavaCompilerUtils.compile(file, options);
+            }
+            log.warn("System java compiler is unavailable, fall back to javac process");
+        }
+        return compileJavaCode(file);
+    }
+
+    /**
+     * 在容器内执行命令并收集完整的标准输出与错误输出
+     * @param cmd 命令
+     * @param containerId 容器 id
+     * @param dockerClient Docker 客户端
+     * @param timeout 超时时间 ms
+     * @param outputLimit 标准输出与错误输出各自的字节上限，超出时终止 exec
+     * @return 执行结果，超时时退出码为 -1
+     */
+    public static ProcessMessage execAndCollect(String[] cmd, String containerId,
+                                                DockerClient dockerClient, long timeout, long outputLimit){
+        return execAndCollect(cmd, Collections.emptyList(), containerId, dockerClient, timeout, outputLimit);
+    }
+
+    /**
+     * 在容器内执行命令并收集完整的标准输出与错误输出
+     * @param cmd 命令
+     * @param env 额外设置的环境变量，格式为 NAME=value
+     * @param containerId 容器 id
+     * @param dockerClient Docker 客户端
+     * @param timeout 超时时间 ms
+     * @param outputLimit 标准输出与错误输出各自的字节上限，超出时终止 exec
+     * @return 执行结果，超时时退出码为 -1
+     */
+    public static ProcessMessage execAndCollect(String[] cmd, List<String> env, String containerId,
+                                                DockerClient dockerClient, long timeout, long outputLimit){
+        String marker = IdUtil.fastSimpleUUID();
+        List<String> execEnv = new ArrayList<>(env);
+        execEnv.addAll(DockerCommonUtils.execMarkerEnv(marker));
+        ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
+                .withCmd(cmd)
+                .withEnv(execEnv)
+                .withAttachStdout(true)
+                .withAttachStderr(true)
+                .exec();
+        String execId = execCreateCmdResponse.getId();
+        Runnable kill = () -> DockerCommonUtils.killExec(containerId, execId, marker, dockerClient);
+        OutputBuffer stdout = new OutputBuffer(outputLimit).onExceeded(kill);
+        OutputBuffer stderr = new OutputBuffer(outputLimit).onExceeded(kill);
+        ExecFrameCallback execStartResultCallback = new ExecFrameCallback(stdout, stderr);
+        ProcessMessage processMessage = new ProcessMessage();
+        try {
+            StopWatch stopWatch = new StopWatch();
+            stopWatch.start();
+            // 超时后由看门狗终止容器内仍在运行的进程
+            ProcessWatchdog.Deadline deadline = ProcessWatchdog.watch(timeout, kill);
+            boolean completionInTime = dockerClient.execStartCmd(execId)
+                    .exec(execStartResultCallback)
+                    .awaitCompletion(timeout, TimeUnit.MILLISECONDS);
+            stopWatch.stop();
+            if (completionInTime){
+                deadline.cancel();
+            }
+            processMessage.setExecuteTime(stopWatch.getLastTaskTimeMillis());
+            Long exitCode = completionInTime
+                    ? dockerClient.inspectExecCmd(execId).exec().getExitCodeLong() : null;
+            processMessage.setExitCode(exitCode == null ? -1 : exitCode.intValue());
+        } catch (InterruptedException e){
+            log.error("The program execution run is abnormal", e);
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                execStartResultCallback.close();
+            } catch (IOException e) {
+                log.error("关闭执行回调时发生错误：{}", e.getMessage());
+            }
+        }
+        processMessage.setOutputLimitExceeded(stdout.isExceeded() || stderr.isExceeded());
+        processMessage.setSuccessMsg(stdout.toString(StandardCharsets.UTF_8));
+        processMessage.setErrorMsg(stderr.toString(StandardCharsets.UTF_8));
+        stdout.close();
+        stderr.close();
+        return processMessage;
+    }
+
+    /**
+     * 在容器内运行一个测试用例，并收集结果
+     * 输入通过 exec 的标准输入按块写入程序，不经过输入文件与 sh；
+     * 每个用例的输入输出单独传输，可以同时运行同一容器内的多个用例
+     * @param cmd 命令
+     * @param input 用例输入
+     * @param dockerClient Docker 客户端
+     * @param stdinClient 启动带标准输入的 exec 用的 Docker 客户端
+     * @param outputLimit 输出字节上限，超出时终止 exec
+     * @param charset 输出编码
+     * @param judge 输出比较器，不为 null 时标准输出只写入比较器，用例输出中不再包含标准输出
+     * @param parallel 同一容器内是否同时运行其他用例，决定内存峰值的统计方式
+     * @return 用例结果，创建 exec 失败时返回 null
+     */
+    public static CaseResult runCase(String[] cmd, String input, String containerId, DockerClient dockerClient,
+                                     DockerClient stdinClient, long outputLimit, Charset charset, OutputJudge judge,
+                                     boolean parallel){
 
         // 1.1 创建执行命令的ExecCreateCmd
+        String marker = IdUtil.fastSimpleUUID();
         ExecCreateCmdResponse execCreateCmdResponse = dockerClient.execCreateCmd(containerId)
                 .withCmd(cmd)
+                .withEnv(DockerCommonUtils.execMarkerEnv(marker))
                 .withAttachStdout(true)
                 .withAttachStderr(true)
                 .withAttachStdin(true)
                 .exec();
         String execId = execCreateCmdResponse.getId();
         if (StrUtil.isBlank(execId)){
-            return false;
+            return null;
         }
 
         ExecuteInfo executeInfo = new ExecuteInfo();
-        ExecStartResultCallback execStartResultCallback = new ExecStartResultCallback(){
+        executeInfo.setMessage("success");
+        // 标准输出与错误输出按原始字节写入同一个有上限的缓冲区，结束后再解码；
+        // 判题时标准输出单独计数并流式写入比较器，缓冲区只保存错误输出
+        Runnable kill = () -> DockerCommonUtils.killExec(containerId, execId, marker, dockerClient);
+        OutputBuffer output = new OutputBuffer(outputLimit).onExceeded(kill);
+        OutputBuffer stdout = judge == null
+                ? output : new OutputBuffer(outputLimit).tee(judge).retain(false).onExceeded(kill);
+        ExecFrameCallback execStartResultCallback = new ExecFrameCallback(stdout, output){
             @Override
             public void onNext(Frame frame) {
-                StreamType streamType = frame.getStreamType();
-                if (StreamType.STDERR.equals(streamType)){
+                if (StreamType.STDERR.equals(frame.getStreamType())){
                     executeInfo.setMessage("failed");
-                } else {
-                    executeInfo.setMessage("success");
                 }
-                String payload = new String(frame.getPayload());
-                // 去掉所有换行符
-                payload = payload.replaceAll("\\R", "");
-                outputs.add(payload);
-                System.out.println("Execution result：" + new String(frame.getPayload()));
                 super.onNext(frame);
             }
         };
 
-        // 获取 docker 容器状态
-        final Long[] maxMemoryUsage = {0L};
-        StatsCmd statsCmd = dockerClient.statsCmd(containerId);
-        ResultCallback<Statistics> statisticsResultCallback = new ResultCallback<>() {
-            @Override
-            public void onStart(Closeable closeable) {}
-
-            @Override
-            public void onNext(Statistics statistics) {
-                Long usage = statistics.getMemoryStats().getUsage();
-                if (ObjectUtil.isNotNull(usage)){
-                    maxMemoryUsage[0] = Math.max(maxMemoryUsage[0], usage);
-                }
-            }
-
-            @Override
-            public void onError(Throwable throwable) {}
-
-            @Override
-            public void onComplete() {}
-
-            @Override
-            public void close() throws IOException {}
-        };
-
-        statsCmd.exec(statisticsResultCallback);
-
         // 1.2 使用ExecStartCmd执行命令
+        // 直接读取容器 cgroup 统计本次 exec 的内存峰值与 CPU 时间
+        ContainerResourceUtils.Measurement measurement = ContainerResourceUtils.startMeasure(containerId, marker, dockerClient,
+                parallel);
+        InputStream stdin = new ChunkedStringInputStream(input, StandardCharsets.UTF_8);
         try{
             StopWatch stopWatch = new StopWatch();
             stopWatch.start();
-            boolean completionInTime = dockerClient.execStartCmd(execId)
-                    .exec(execStartResultCallback)
+            // 超时后由看门狗终止容器内仍在运行的进程
+            ProcessWatchdog.Deadline deadline = ProcessWatchdog.watch(CommonConstant.TIME_OUT, kill);
+            boolean completionInTime = stdinClient.execStartCmd(execId)
+                    .withStdIn(stdin)
+                    .exec(execStartResultCallback.meter())
                     .awaitCompletion(CommonConstant.TIME_OUT, TimeUnit.MILLISECONDS);
             stopWatch.stop();
-            if (!completionInTime){
+            measurement.stop();
+            boolean outputLimitExceeded = output.isExceeded() || stdout.isExceeded();
+            String caseOutput;
+            if (outputLimitExceeded){
+                deadline.cancel();
+                log.info(CommonConstant.OUTPUT_LIMIT_MESSAGE);
+                executeInfo.setMessage("failed");
+                caseOutput = CommonConstant.OUTPUT_LIMIT_MESSAGE;
+            } else if (completionInTime){
+                deadline.cancel();
+                // 去掉所有换行符
+                caseOutput = output.toString(charset).replaceAll("\\R", "");
+            } else {
                 // 超时退出
-                log.info("process terminated due to timeout");
-                outputs.add("process terminated due to timeout");
+                log.info(CommonConstant.TIME_OUT_MESSAGE);
+                executeInfo.setMessage("failed");
+                caseOutput = CommonConstant.TIME_OUT_MESSAGE;
+            }
+            if (judge != null){
+                // 判题需要退出码区分运行错误与内存超限
+                Long exitCode = completionInTime && !outputLimitExceeded
+                        ? dockerClient.inspectExecCmd(execId).exec().getExitCodeLong() : null;
+                if (exitCode != null && exitCode != 0){
+                    executeInfo.setMessage("failed");
+                }
+                executeInfo.setVerdict(JudgeUtils.verdict(!completionInTime && !outputLimitExceeded,
+                        outputLimitExceeded, exitCode == null ? null : exitCode.intValue(), caseOutput, judge));
             }
             // 1.3 设置执行信息
-            Thread.sleep(1000);  // 增加一个短暂的等待时间，确保统计回调能及时处理数据
             executeInfo.setTime(stopWatch.getLastTaskTimeMillis());
-            executeInfo.setMemory(maxMemoryUsage[0] / 8 / 1024);
-            executeInfos.add(executeInfo);
-
+            executeInfo.setMemory(Math.max(measurement.getPeakMemory(), 0));
+            executeInfo.setCpuTime(measurement.getCpuTime() < 0 ? null : measurement.getCpuTime());
+            return CaseResult.builder()
+                    .output(caseOutput)
+                    .executeInfo(executeInfo)
+                    .build();
         } catch (InterruptedException e){
-            log.error("The program execution run is abnormal，{}", e.getStackTrace());
+            log.error("The program execution run is abnormal", e);
             throw new RuntimeException(e);
-        }finally {
-            statsCmd.close();
+        } finally {
+            // 启动 exec 失败时也需结束统计，关闭 memory.peak 的文件描述符并停止采样
+            measurement.stop();
+            try {
+                execStartResultCallback.close();
+            } catch (IOException e) {
+                log.error("关闭执行回调时发生错误：{}", e.getMessage());
+            }
+            output.close();
+            stdout.close();
         }
-        return true;
     }
 
 }
@@ -0,0 +1,291 @@
+package com.zjz.codesandbox.utils;
+
+import com.zjz.codesandbox.model.enums.ExecuteStageEnum;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.sandbox.admission.AdmissionLimiter;
+import com.zjz.codesandbox.sandbox.workspace.WorkspaceManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 执行指标工具类
+ * 指标注册到 Micrometer 全局注册表，Spring Boot 启动后由 /actuator/prometheus 暴露；
+ * 未启动 Spring 时全局注册表为空，记录操作不产生开销
+ */
+public class MetricsUtils {
+
+    /**
+     * 各阶段耗时，标签 box language stage
+     */
+    public static final String STAGE_TIMER = "codebox.execute.stage";
+
+    /**
+     * 整次执行耗时，标签 box language outcome，outcome 取 CodeBoxExecuteEnum 的值或 error
+     */
+    public static final String EXECUTE_TIMER = "codebox.execute";
+
+    /**
+     * 运行超时的测试用例数，标签 box language
+     */
+    public static final String CASE_TIMEOUT_COUNTER = "codebox.case.timeouts";
+
+    /**
+     * 输出超出上限的测试用例数，标签 box language
+     */
+    public static final String CASE_OUTPUT_LIMIT_COUNTER = "codebox.case.output.limits";
+
+    /**
+     * 判题结果数，标签 box language verdict
+     */
+    public static final String CASE_VERDICT_COUNTER = "codebox.case.verdicts";
+
+    /**
+     * 按执行策略跳过的测试用例数，标签 box language
+     */
+    public static final String CASE_SKIPPED_COUNTER = "codebox.case.skipped";
+
+    /**
+     * 看门狗因超时终止的进程数
+     */
+    public static final String WATCHDOG_KILL_COUNTER = "codebox.watchdog.kills";
+
+    /**
+     * 准入控制排队与执行中的提交数，标签 box
+     */
+    public static final String ADMISSION_QUEUE_GAUGE = "codebox.admission.queue.depth";
+
+    public static final String ADMISSION_RUNNING_GAUGE = "codebox.admission.running";
+
+    /**
+     * 空闲工作目录槽与等待清理的工作目录数
+     */
+    public static final String WORKSPACE_FREE_SLOTS_GAUGE = "codebox.workspace.free.slots";
+
+    public static final String WORKSPACE_PENDING_CLEANUP_GAUGE = "codebox.workspace.pending.cleanups";
+
+    /**
+     * Docker API 调用耗时，标签 operation status，status 为响应状态码，连接异常时为 error
+     */
+    public static final String DOCKER_CALL_TIMER = "codebox.docker.calls";
+
+    /**
+     * 进行中的 Docker API 调用数，流式调用在响应关闭前都计入
+     */
+    public static final String DOCKER_INFLIGHT_GAUGE = "codebox.docker.calls.inflight";
+
+    /**
+     * Docker 守护进程错误数，标签 operation reason，reason 为 5xx 状态码或异常类型
+     */
+    public static final String DOCKER_ERROR_COUNTER = "codebox.docker.errors";
+
+    private static final AtomicInteger DOCKER_INFLIGHT = new AtomicInteger();
+
+    private static final double[] PERCENTILES = new double[]{0.5, 0.9, 0.99};
+
+    /**
+     * 沙箱支持的语言，其他值统一记为 other，请求中的任意字符串不会注册新的时间序列
+     */
+    private static final Set<String> LANGUAGES = new HashSet<>(Arrays.asList("java", "cpp"));
+
+    private static final String OTHER_LANGUAGE = "other";
+
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(2);
+
+    static {
+        FunctionCounter.builder(WATCHDOG_KILL_COUNTER, ProcessWatchdog.class, watchdog -> ProcessWatchdog.getKillCount())
+                .description("Processes killed by the watchdog due to timeout")
+                .register(Metrics.globalRegistry);
+        Gauge.builder(DOCKER_INFLIGHT_GAUGE, DOCKER_INFLIGHT, AtomicInteger::get)
+                .description("Docker API calls in flight, including open streams")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * 语言标签，不支持的语言记为 other
+     */
+    private static String languageTag(String language) {
+        return LANGUAGES.contains(language) ? language : OTHER_LANGUAGE;
+    }
+
+    /**
+     * 记录一次执行各阶段的耗时
+     * @param box 沙箱名称
+     * @param language 编程语言
+     * @param stageTimes 各阶段耗时 ms
+     */
+    public static void recordStages(String box, String language, Map<ExecuteStageEnum, Long> stageTimes) {
+        for (Map.Entry<ExecuteStageEnum, Long> entry : stageTimes.entrySet()) {
+            Timer.builder(STAGE_TIMER)
+                    .description("Latency of each ExecuteCodeTemplate stage")
+                    .tag("box", box)
+                    .tag("language", languageTag(language))
+                    .tag("stage", entry.getKey().getValue())
+                    .publishPercentiles(PERCENTILES)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(MAX_EXPECTED)
+                    .register(Metrics.globalRegistry)
+                    .record(entry.getValue(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 记录一次执行的结果与总耗时
+     * @param box 沙箱名称
+     * @param language 编程语言
+     * @param outcome 执行结果
+     * @param cost 总耗时 ms
+     */
+    public static void recordOutcome(String box, String language, String outcome, long cost) {
+        Timer.builder(EXECUTE_TIMER)
+                .description("Latency and outcome of whole submissions")
+                .tag("box", box)
+                .tag("language", languageTag(language))
+                .tag("outcome", String.valueOf(outcome))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(Metrics.globalRegistry)
+                .record(cost, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 注册准入控制的排队深度与执行中提交数
+     */
+    public static void registerAdmission(AdmissionLimiter limiter) {
+        Gauge.builder(ADMISSION_QUEUE_GAUGE, limiter, l -> l.getMetrics().getQueueDepth())
+                .description("Submissions waiting in the admission queue")
+                .tag("box", limiter.getName())
+                .register(Metrics.globalRegistry);
+        Gauge.builder(ADMISSION_RUNNING_GAUGE, limiter, l -> l.getMetrics().getRunning())
+                .description("Submissions currently executing")
+                .tag("box", limiter.getName())
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * 注册工作目录的空闲目录槽数与等待清理数
+     */
+    public static void registerWorkspace(WorkspaceManager manager) {
+        Gauge.builder(WORKSPACE_FREE_SLOTS_GAUGE, manager, m -> m.getMetrics().getFreeSlots())
+                .description("Workspace slots ready to be allocated")
+                .register(Metrics.globalRegistry);
+        Gauge.builder(WORKSPACE_PENDING_CLEANUP_GAUGE, manager, m -> m.getMetrics().getPendingCleanups())
+                .description("Released workspaces waiting for asynchronous cleanup")
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * 记录运行超时的测试用例数
+     */
+    public static void recordCaseTimeouts(String box, String language, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder(CASE_TIMEOUT_COUNTER)
+                .description("Test cases terminated due to timeout")
+                .tag("box", box)
+                .tag("language", languageTag(language))
+                .register(Metrics.globalRegistry)
+                .increment(count);
+    }
+
+    /**
+     * 记录输出超出上限的测试用例数
+     */
+    public static void recordCaseOutputLimits(String box, String language, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder(CASE_OUTPUT_LIMIT_COUNTER)
+                .description("Test cases terminated due to exceeding the output limit")
+                .tag("box", box)
+                .tag("language", languageTag(language))
+                .register(Metrics.globalRegistry)
+                .increment(count);
+    }
+
+    /**
+     * 记录按执行策略跳过的测试用例数
+     */
+    public static void recordCaseSkips(String box, String language, long count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder(CASE_SKIPPED_COUNTER)
+                .description("Test cases skipped by the fail policy")
+                .tag("box", box)
+                .tag("language", languageTag(language))
+                .register(Metrics.globalRegistry)
+                .increment(count);
+    }
+
+    /**
+     * 按判题结果记录测试用例数
+     */
+    public static void recordCaseVerdicts(String box, String language, List<ExecuteInfo> executeInfos) {
+        for (ExecuteInfo executeInfo : executeInfos) {
+            if (executeInfo == null || executeInfo.getVerdict() == null) {
+                continue;
+            }
+            Counter.builder(CASE_VERDICT_COUNTER)
+                    .description("Judged test cases by verdict")
+                    .tag("box", box)
+                    .tag("language", languageTag(language))
+                    .tag("verdict", executeInfo.getVerdict())
+                    .register(Metrics.globalRegistry)
+                    .increment();
+        }
+    }
+
+    /**
+     * 开始一次 Docker API 调用
+     */
+    public static void dockerCallStarted() {
+        DOCKER_INFLIGHT.incrementAndGet();
+    }
+
+    /**
+     * 结束一次 Docker API 调用并记录耗时
+     * @param operation 调用类型
+     * @param status 响应状态码，连接异常时为 error
+     * @param nanos 耗时 ns
+     */
+    public static void dockerCallFinished(String operation, String status, long nanos) {
+        DOCKER_INFLIGHT.decrementAndGet();
+        Timer.builder(DOCKER_CALL_TIMER)
+                .description("Latency of Docker API calls by operation")
+                .tag("operation", operation)
+                .tag("status", status)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录 Docker 守护进程错误
+     * @param operation 调用类型
+     * @param reason 5xx 状态码或异常类型
+     */
+    public static void recordDockerError(String operation, String reason) {
+        Counter.builder(DOCKER_ERROR_COUNTER)
+                .description("Docker daemon errors and connection failures")
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(Metrics.globalRegistry)
+                .increment();
+    }
+}
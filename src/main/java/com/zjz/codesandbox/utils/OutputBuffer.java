@@ -0,0 +1,197 @@
+package com.zjz.codesandbox.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有字节上限的输出缓冲区
+ * 以原始字节保存进程输出，存储块从共享池中借用并在 close 时归还；
+ * 超出上限后丢弃后续输出并触发一次回调，使单个测试用例占用的堆内存有上界；
+ * 输出只在需要时才按指定编码解码；也可以只计数不保存，将输出转交给 tee 的目标流式处理
+ */
+public class OutputBuffer extends OutputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * 存储块池中最多保留的块数
+     */
+    private static final int MAX_POOLED_CHUNKS = 512;
+
+    private static final ConcurrentLinkedQueue<byte[]> CHUNK_POOL = new ConcurrentLinkedQueue<>();
+
+    private static final AtomicInteger POOLED_CHUNKS = new AtomicInteger();
+
+    /**
+     * 字节上限，小于等于 0 时不限制
+     */
+    private final long limit;
+
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    /**
+     * 已写入的字节数，不保存输出时只计数
+     */
+    private long size = 0;
+
+    private volatile boolean exceeded = false;
+
+    private Runnable onExceeded;
+
+    private OutputStream sink;
+
+    private boolean retain = true;
+
+    public OutputBuffer(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * 设置超出上限时的回调，例如终止仍在输出的进程
+     */
+    public OutputBuffer onExceeded(Runnable onExceeded) {
+        this.onExceeded = onExceeded;
+        return this;
+    }
+
+    /**
+     * 将上限以内的输出同时写入 sink，例如流式比较输出
+     */
+    public OutputBuffer tee(OutputStream sink) {
+        this.sink = sink;
+        return this;
+    }
+
+    /**
+     * 设置是否保存输出，不保存时只计入字节上限，需在写入前设置
+     */
+    public OutputBuffer retain(boolean retain) {
+        this.retain = retain;
+        return this;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) {
+        boolean justExceeded;
+        synchronized (this) {
+            if (exceeded) {
+                return;
+            }
+            int accepted = len;
+            if (limit > 0 && size + len > limit) {
+                accepted = (int) (limit - size);
+            }
+            if (sink != null && accepted > 0) {
+                try {
+                    sink.write(bytes, off, accepted);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            if (retain) {
+                append(bytes, off, accepted);
+            } else {
+                size += accepted;
+            }
+            justExceeded = accepted < len;
+            if (justExceeded) {
+                exceeded = true;
+            }
+        }
+        if (justExceeded && onExceeded != null) {
+            onExceeded.run();
+        }
+    }
+
+    /**
+     * 是否超出字节上限
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * 已写入的字节数
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * 按指定编码解码已保存的输出
+     */
+    public synchronized String toString(Charset charset) {
+        if (size == 0 || !retain) {
+            return "";
+        }
+        return new String(toByteArray(), charset);
+    }
+
+    /**
+     * 复制已保存的输出
+     */
+    public synchronized byte[] toByteArray() {
+        if (!retain) {
+            return new byte[0];
+        }
+        byte[] bytes = new byte[(int) size];
+        int copied = 0;
+        for (byte[] chunk : chunks) {
+            int length = Math.min(chunk.length, (int) size - copied);
+            System.arraycopy(chunk, 0, bytes, copied, length);
+            copied += length;
+        }
+        return bytes;
+    }
+
+    /**
+     * 归还存储块，之后不可再读取
+     */
+    @Override
+    public synchronized void close() {
+        for (byte[] chunk : chunks) {
+            if (POOLED_CHUNKS.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+                CHUNK_POOL.offer(chunk);
+            } else {
+                POOLED_CHUNKS.decrementAndGet();
+            }
+        }
+        chunks.clear();
+        size = 0;
+    }
+
+    private void append(byte[] bytes, int off, int len) {
+        while (len > 0) {
+            int position = (int) (size % CHUNK_SIZE);
+            if (position == 0) {
+                chunks.add(borrowChunk());
+            }
+            byte[] chunk = chunks.get(chunks.size() - 1);
+            int length = Math.min(len, CHUNK_SIZE - position);
+            System.arraycopy(bytes, off, chunk, position, length);
+            size += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    private static byte[] borrowChunk() {
+        byte[] chunk = CHUNK_POOL.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        POOLED_CHUNKS.decrementAndGet();
+        return chunk;
+    }
+}
@@ -0,0 +1,69 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * 测试用例并行运行工具类
+ * 同一次提交的多个用例由至多 K 个工作者按序号领取运行，结果按用例顺序返回
+ */
+@Slf4j
+public class ParallelCaseUtils {
+
+    /**
+     * 所有提交共用的用例运行线程，空闲一段时间后回收
+     */
+    private static final ThreadPoolExecutor CASE_EXECUTOR = new ThreadPoolExecutor(
+            0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            ThreadFactoryBuilder.create().setNamePrefix("case-runner-").setDaemon(true).build());
+
+    /**
+     * 并行运行测试用例
+     * @param caseCount 用例数量
+     * @param parallelism 同时运行的用例数上限，小于等于 1 时在当前线程依次运行
+     * @param runner 运行第 i 个用例
+     * @return 按用例顺序排列的结果
+     */
+    public static <R> List<R> runInOrder(int caseCount, int parallelism, IntFunction<R> runner) {
+        Object[] results = new Object[caseCount];
+        int workers = Math.min(Math.max(parallelism, 1), caseCount);
+        AtomicInteger nextCase = new AtomicInteger();
+        Runnable worker = () -> {
+            int index;
+            while ((index = nextCase.getAndIncrement()) < caseCount) {
+                results[index] = runner.apply(index);
+            }
+        };
+        // 当前线程也作为一个工作者
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            futures.add(CASE_EXECUTOR.submit(worker));
+        }
+        worker.run();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                log.error("测试用例运行失败：{}", e.getCause().getMessage());
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<R> ordered = (List<R>) Arrays.asList(results);
+        return ordered;
+    }
+}
@@ -0,0 +1,115 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程输出读取泵
+ * 所有进程共用一个读取线程池，调用方线程自己读取标准输出，线程池只负责错误输出，读取缓冲区按线程复用；
+ * 错误输出的读取任务贯穿整个进程生命周期，排队等待会使进程写满管道后阻塞，因此线程池不排队，
+ * 线程数等于同时运行的进程数，上限由各沙箱通过 reserve 按同时执行的提交数预留，
+ * 超出上限的读取任务直接拒绝，由调用方终止进程；空闲线程复用后超时回收；
+ * 读取到的字节写入有上限的 OutputBuffer，需要时再解码
+ */
+@Slf4j
+public class ProcessOutputPump {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 没有沙箱预留线程时（基准测试、压测等不经过准入控制的场景）的线程上限
+     */
+    private static final int DEFAULT_MAX_THREADS = 16;
+
+    /**
+     * 每个提交预留的线程数：同一时间只有一个本机进程，但上一个进程的读取线程回到线程池之前，
+     * 下一个进程可能已经提交读取任务
+     */
+    private static final int THREADS_PER_SUBMISSION = 2;
+
+    /**
+     * 沙箱名称 -> 预留的线程数
+     */
+    private static final Map<String, Integer> RESERVATIONS = new ConcurrentHashMap<>();
+
+    private static final ThreadPoolExecutor PUMP_EXECUTOR = new ThreadPoolExecutor(
+            0, DEFAULT_MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            ThreadFactoryBuilder.create().setNamePrefix("process-output-pump-").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 每个线程复用的读取缓冲区
+     */
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    /**
+     * 为沙箱预留读取线程，线程上限随之调整为所有沙箱预留数之和
+     * @param name 沙箱名称，重复调用时覆盖之前的预留
+     * @param submissions 该沙箱同时执行的提交数上限
+     */
+    public static synchronized void reserve(String name, int submissions) {
+        RESERVATIONS.put(name, Math.max(submissions, 0) * THREADS_PER_SUBMISSION);
+        int max = RESERVATIONS.values().stream().mapToInt(Integer::intValue).sum();
+        PUMP_EXECUTOR.setMaximumPoolSize(Math.max(max, 1));
+    }
+
+    /**
+     * 读取线程上限
+     */
+    public static int getMaxThreads() {
+        return PUMP_EXECUTOR.getMaximumPoolSize();
+    }
+
+    /**
+     * 在共享线程池中异步读取输入流直到结束
+     * @param inputStream 进程输出流
+     * @param buffer 输出缓冲区，超出上限后继续读取并丢弃，避免进程写管道阻塞
+     * @return 读取任务
+     * @throws java.util.concurrent.RejectedExecutionException 读取线程已达上限
+     */
+    public static Future<?> pump(InputStream inputStream, OutputBuffer buffer) {
+        return PUMP_EXECUTOR.submit(() -> drain(inputStream, buffer));
+    }
+
+    /**
+     * 在当前线程读取输入流直到结束，读取完成后关闭流
+     * @param inputStream 进程输出流
+     * @param buffer 输出缓冲区，超出上限后继续读取并丢弃，避免进程写管道阻塞
+     */
+    public static void drain(InputStream inputStream, OutputBuffer buffer) {
+        byte[] readBuffer = READ_BUFFER.get();
+        try (InputStream in = inputStream) {
+            int read;
+            while ((read = in.read(readBuffer)) != -1) {
+                buffer.write(readBuffer, 0, read);
+            }
+        } catch (IOException e) {
+            log.error("读取进程输出时发生错误：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 按行解码进程输出，统一换行符为 \n，且每行以 \n 结尾
+     * @param buffer 进程输出
+     * @param charset 编码
+     * @return 解码后的输出
+     */
+    public static String decodeLines(OutputBuffer buffer, Charset charset) {
+        String output = buffer.toString(charset);
+        if (output.isEmpty()) {
+            return output;
+        }
+        output = output.replace("\r\n", "\n").replace('\r', '\n');
+        return output.endsWith("\n") ? output : output + "\n";
+    }
+}
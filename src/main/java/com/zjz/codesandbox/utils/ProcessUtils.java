@@ -1,14 +1,29 @@
 package com.zjz.codesandbox.utils;
 
+import cn.hutool.core.thread.ThreadFactoryBuilder;
 import com.zjz.codesandbox.constant.CommonConstant;
 import com.zjz.codesandbox.constant.FileConstant;
+import com.zjz.codesandbox.model.process.MemorySamplerMetrics;
 import com.zjz.codesandbox.model.process.ProcessMessage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.util.StopWatch;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.StringTokenizer;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.zjz.codesandbox.constant.CmdConstant.*;
 
@@ -18,6 +33,57 @@ import static com.zjz.codesandbox.constant.CmdConstant.*;
 @Slf4j
 public class ProcessUtils {
 
+    private static final String PROC_ROOT = "/proc";
+
+    private static final String CGROUP_ROOT = "/sys/fs/cgroup";
+
+    /**
+     * 进程峰值常驻内存字段
+     */
+    static final String PROC_PEAK_RSS_FIELD = "VmHWM:";
+
+    private static final boolean IS_WINDOWS = System.getProperty("os.name").toLowerCase().contains("win");
+
+    /**
+     * 在进程退出时报告其峰值常驻内存的 time 命令
+     */
+    private static final Path TIME_CMD = Paths.get("/usr/bin/time");
+
+    private static final boolean TIME_AVAILABLE = !IS_WINDOWS && Files.isExecutable(TIME_CMD);
+
+    /**
+     * 是否可以通过 /proc 获取进程内存
+     */
+    private static final boolean PROC_AVAILABLE = Files.isReadable(Paths.get(PROC_ROOT, "self", "status"));
+
+    /**
+     * 内核是否提供 /proc/{pid}/task/{tid}/children
+     */
+    private static final boolean PROC_CHILDREN_AVAILABLE = PROC_AVAILABLE
+            && Files.isReadable(Paths.get(PROC_ROOT, "thread-self", "children"));
+
+    /**
+     * 服务自身所在的 cgroup
+     */
+    private static final String SELF_CGROUP = PROC_AVAILABLE ? readCgroupPath("self") : null;
+
+    /**
+     * 所有进程共用的内存采样线程池，采样任务在进程结束后取消
+     */
+    private static final ScheduledThreadPoolExecutor MEMORY_SAMPLER = new ScheduledThreadPoolExecutor(
+            Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+            ThreadFactoryBuilder.create().setNamePrefix("memory-sampler-").setDaemon(true).build());
+
+    static {
+        MEMORY_SAMPLER.setRemoveOnCancelPolicy(true);
+    }
+
+    private static final AtomicLong SAMPLE_COUNT = new AtomicLong();
+
+    /**
+     * 累计采样耗时 ns
+     */
+    private static final AtomicLong SAMPLE_TIME = new AtomicLong();
 
     private static long getWinMemoryUsage(String command) {
         try {
@@ -68,74 +134,244 @@ public class ProcessUtils {
     }
 
     /**
-     * 获取 Windows 内存使用情况
+     * 从 /proc/{pid}/status 读取指定字段，单位 KB
+     * @return 字段值，进程已退出或字段不存在时返回 -1
+     */
+    static long readProcStatus(long pid, String field) {
+        Path statusPath = Paths.get(PROC_ROOT, String.valueOf(pid), "status");
+        try (BufferedReader reader = Files.newBufferedReader(statusPath, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(field)) {
+                    // 形如 VmHWM:	    1234 kB
+                    return Long.parseLong(line.substring(field.length()).replaceAll("[^0-9]", ""));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    /**
+     * 获取所有子孙进程
+     * 优先读取各线程的 /proc/{pid}/task/{tid}/children，只访问进程树本身；
+     * 内核不支持时退回 ProcessHandle，其实现需要遍历全部进程
+     */
+    private static List<Long> getDescendants(long pid) {
+        List<Long> descendants = new ArrayList<>();
+        if (!PROC_CHILDREN_AVAILABLE) {
+            ProcessHandle.of(pid).ifPresent(
+                    handle -> handle.descendants().forEach(child -> descendants.add(child.pid())));
+            return descendants;
+        }
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.push(pid);
+        while (!pending.isEmpty()) {
+            Path taskDir = Paths.get(PROC_ROOT, String.valueOf(pending.pop()), "task");
+            try (DirectoryStream<Path> tasks = Files.newDirectoryStream(taskDir)) {
+                for (Path task : tasks) {
+                    String children = new String(
+                            Files.readAllBytes(task.resolve("children")), StandardCharsets.US_ASCII).trim();
+                    if (children.isEmpty()) {
+                        continue;
+                    }
+                    for (String child : children.split("\\s+")) {
+                        long childPid = Long.parseLong(child);
+                        descendants.add(childPid);
+                        pending.push(childPid);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // 进程已退出
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * 读取进程所在的 cgroup v2 路径
+     */
+    private static String readCgroupPath(String pid) {
+        Path cgroupPath = Paths.get(PROC_ROOT, pid, "cgroup");
+        try {
+            for (String line : Files.readAllLines(cgroupPath, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("0::")) {
+                    return line.substring(3);
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * 进程独占 cgroup 时读取 cgroup v2 的 memory.peak，单位 KB
+     * 与服务处于同一 cgroup 时峰值包含服务自身内存，不可用，返回 -1
+     */
+    private static long getCgroupPeakMemory(long pid) {
+        String cgroup = readCgroupPath(String.valueOf(pid));
+        if (cgroup == null || cgroup.equals(SELF_CGROUP)) {
+            return -1;
+        }
+        Path peakPath = Paths.get(CGROUP_ROOT, cgroup, "memory.peak");
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(peakPath), StandardCharsets.US_ASCII).trim()) / 1024;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 不创建子进程，直接从 /proc 读取整个进程树的峰值常驻内存 VmHWM，单位 KB
+     * VmHWM 是内核记录的历史峰值，两次采样之间的短暂内存高峰也不会遗漏
+     */
+    private static long getProcMemoryUsage(long pid) {
+        long cgroupPeak = getCgroupPeakMemory(pid);
+        if (cgroupPeak >= 0) {
+            return cgroupPeak;
+        }
+        long total = readProcStatus(pid, PROC_PEAK_RSS_FIELD);
+        if (total < 0) {
+            return -1;
+        }
+        // 累加所有子孙进程
+        for (long child : getDescendants(pid)) {
+            total += Math.max(0, readProcStatus(child, PROC_PEAK_RSS_FIELD));
+        }
+        return total;
+    }
+
+    /**
+     * 获取进程内存使用情况，并统计采样开销
      * @param pid 进程号
-     * @return 内存使用量，单位为字节
+     * @return 内存使用量，单位为 KB
      */
     private static long getMemoryUsage(long pid){
-        String command;
-        String os = System.getProperty("os.name").toLowerCase();
-        long res = -1;
-        if (os.contains("win")) {
-            command = WINDOWS_TASKLIST_CMD_PREFIX + pid + WINDOWS_TASKLIST_CMD_SUFFIX;
-            res = getWinMemoryUsage(command);
-        }else {
-            command = LINUX_TASKLIST_CMD_PREFIX + pid + LINUX_TASKLIST_CMD_SUFFIX;;
-            res = getLinuxMemoryUsage(command);
+        long start = System.nanoTime();
+        long res;
+        if (IS_WINDOWS) {
+            res = getWinMemoryUsage(WINDOWS_TASKLIST_CMD_PREFIX + pid + WINDOWS_TASKLIST_CMD_SUFFIX);
+        } else if (PROC_AVAILABLE) {
+            res = getProcMemoryUsage(pid);
+        } else {
+            res = getLinuxMemoryUsage(LINUX_TASKLIST_CMD_PREFIX + pid + LINUX_TASKLIST_CMD_SUFFIX);
         }
+        SAMPLE_COUNT.incrementAndGet();
+        SAMPLE_TIME.addAndGet(System.nanoTime() - start);
         return res;
     }
 
+    /**
+     * 启动进程，time 命令可用时由其在进程退出时将峰值常驻内存写入 peakFile，
+     * 将 peakFile 传给 runProcessAndMessage 即可得到精确的峰值，不可用时只能依靠采样
+     * @param command 命令，按空白分割参数
+     * @param peakFile 峰值内存的写入位置
+     */
+    public static Process exec(String command, File peakFile) throws IOException {
+        if (!TIME_AVAILABLE) {
+            return Runtime.getRuntime().exec(command);
+        }
+        Files.deleteIfExists(peakFile.toPath());
+        List<String> cmd = new ArrayList<>(Arrays.asList(
+                TIME_CMD.toString(), "-f", "%M", "-o", peakFile.getAbsolutePath()));
+        StringTokenizer tokenizer = new StringTokenizer(command);
+        while (tokenizer.hasMoreTokens()) {
+            cmd.add(tokenizer.nextToken());
+        }
+        return Runtime.getRuntime().exec(cmd.toArray(new String[0]));
+    }
 
     /**
-     * 获取进程输出信息 try-with-resources会自动关闭流，无论是正常结束还是抛出异常
-     * @param runProcess 进程
-     * @return 进程输出信息
+     * 读取 time 命令写入的峰值常驻内存，单位 KB
+     * 程序非正常退出时 GNU time 会在数值前写入一行退出状态，只取最后一行
+     * @return 峰值，文件不存在或无法解析时返回 -1
      */
-    public static void buildProcessSuccessOutput(
-            Process runProcess, StringBuilder SuccessStringBuilder, CountDownLatch latch) {
-        Thread outputReaderThread = new Thread(() -> {
-            try (BufferedReader reader
-                         = new BufferedReader(new InputStreamReader(runProcess.getInputStream(), FileConstant.ENCODING_GBK))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    SuccessStringBuilder.append(line).append("\n");
+    private static long readPeakFile(File peakFile) {
+        if (peakFile == null) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(peakFile.toPath(), StandardCharsets.US_ASCII);
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                String line = lines.get(i).trim();
+                if (!line.isEmpty()) {
+                    return Long.parseLong(line);
                 }
-            } catch (IOException e) {
-                log.error("读取进程输出时发生错误：{}", e.getMessage());
-            } finally {
-                latch.countDown();  // 确保在任务完成后减少计数
             }
-        });
-        outputReaderThread.start();
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
     }
 
     /**
-     * 获取进程错误输出信息
-     * @param runProcess 进程
-     * @return 进程错误输出信息
+     * 在共享的采样线程中每 10ms 执行一次内存采样
+     * @return 采样任务，结束时需取消
      */
-    public static void buildProcessErrorOutput(
-            Process runProcess, StringBuilder ErrorStringBuilder, CountDownLatch latch) {
-        Thread errorReaderThread = new Thread(() -> {
-            try (BufferedReader reader
-                         = new BufferedReader(new InputStreamReader(runProcess.getErrorStream(), FileConstant.ENCODING_GBK))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    ErrorStringBuilder.append(line).append("\n");
-                    log.error("进程错误输出：{}", line);
-                }
-            } catch (IOException e) {
-                log.error("读取进程错误输出时发生错误：{}", e.getMessage());
-            } finally {
-                latch.countDown();  // 确保在任务完成后减少计数
-            }
-        });
-        errorReaderThread.start();
+    static ScheduledFuture<?> scheduleMemorySampling(Runnable sampler) {
+        return MEMORY_SAMPLER.scheduleAtFixedRate(sampler, 10, 10, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取内存采样器开销指标
+     */
+    public static MemorySamplerMetrics getMemorySamplerMetrics() {
+        long samples = SAMPLE_COUNT.get();
+        long totalTime = SAMPLE_TIME.get() / 1000;
+        String source = IS_WINDOWS ? "tasklist" : PROC_AVAILABLE ? "proc" : "ps";
+        return MemorySamplerMetrics.builder()
+                .source(source)
+                .samples(samples)
+                .totalTime(totalTime)
+                .averageTime(samples == 0 ? 0D : (double) totalTime / samples)
+                .build();
     }
 
 
+    /**
+     * 读取进程的标准输出与错误输出
+     * 标准输出在当前线程读取，错误输出交给共享的读取泵，两者并行读取避免任一管道写满阻塞进程；
+     * 任一输出超出上限时立即终止整个进程树
+     * @param runProcess 进程
+     * @param outputLimit 标准输出与错误输出各自的字节上限
+     * @param successSink 标准输出的流式处理目标，不为 null 时标准输出只写入该目标，不保存
+     * @return 标准输出与错误输出，使用后需关闭
+     */
+    private static OutputBuffer[] readProcessOutput(Process runProcess, long outputLimit, OutputStream successSink)
+            throws InterruptedException, ExecutionException {
+        Runnable kill = () -> {
+            runProcess.descendants().forEach(ProcessHandle::destroyForcibly);
+            runProcess.destroyForcibly();
+        };
+        OutputBuffer successBuffer = new OutputBuffer(outputLimit).onExceeded(kill);
+        OutputBuffer errorBuffer = new OutputBuffer(outputLimit).onExceeded(kill);
+        if (successSink != null) {
+            successBuffer.tee(successSink).retain(false);
+        }
+        Future<?> errorFuture;
+        try {
+            errorFuture = ProcessOutputPump.pump(runProcess.getErrorStream(), errorBuffer);
+        } catch (RejectedExecutionException e) {
+            // 读取线程已达上限，不排队等待，直接终止进程
+            log.error("Process output pump is saturated, max threads {}", ProcessOutputPump.getMaxThreads());
+            kill.run();
+            successBuffer.close();
+            errorBuffer.close();
+            throw e;
+        }
+        ProcessOutputPump.drain(runProcess.getInputStream(), successBuffer);
+        errorFuture.get();
+        return new OutputBuffer[]{successBuffer, errorBuffer};
+    }
 
+    private static void closeOutput(OutputBuffer[] output) {
+        if (output != null) {
+            output[0].close();
+            output[1].close();
+        }
+    }
 
     /**
      * 运行进程并返回信息
@@ -145,36 +381,21 @@ public class ProcessUtils {
      */
     public static ProcessMessage runProcessAndMessage(Process runProcess,String opName){
         ProcessMessage processMessage = new ProcessMessage();
+        Charset charset = Charset.forName(FileConstant.ENCODING_GBK);
+        OutputBuffer[] output = null;
         try {
+            // 先读完输出再等待进程结束，避免输出写满管道时进程阻塞
+            output = readProcessOutput(runProcess, CommonConstant.OUTPUT_LIMIT, null);
             int exit = runProcess.waitFor();
             processMessage.setExitCode(exit);
-            StringBuilder SuccessStringBuilder = new StringBuilder();
-            StringBuilder ErrorStringBuilder = new StringBuilder();
-
-            // 创建线程池
-            CountDownLatch latch = new CountDownLatch(2);
-            ExecutorService executor = Executors.newFixedThreadPool(2);
-
-            // 提交任务获取标准输出
-            Future<?> successFuture = executor.submit(() -> buildProcessSuccessOutput(runProcess, SuccessStringBuilder, latch));
-
-            // 提交任务获取错误输出
-            Future<?> errorFuture = executor.submit(() -> buildProcessErrorOutput(runProcess, ErrorStringBuilder, latch));
-            // 等待任务完成
-            latch.await();
-            successFuture.get();
-            errorFuture.get();
-
-            // 关闭线程池
-            executor.shutdown();
             if (exit == 0) {
                 log.info(opName + "成功");
                 // 获取控制台输出的信息
-                processMessage.setSuccessMsg(SuccessStringBuilder.toString());
+                processMessage.setSuccessMsg(ProcessOutputPump.decodeLines(output[0], charset));
             }else {
                 // 获取控制台输出的错误信息
                 // 获取错误信息字符串
-                String errorStr = ErrorStringBuilder.toString();
+                String errorStr = ProcessOutputPump.decodeLines(output[1], charset);
                 StringBuilder filteredErrorStr = new StringBuilder();
                 String[] lines = errorStr.split("\n");
 
@@ -196,35 +417,83 @@ public class ProcessUtils {
             }
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException(e);
+        } finally {
+            closeOutput(output);
         }
         return processMessage;
     }
 
     public static ProcessMessage runProcessAndMessage(Process runProcess, String opName, String input) {
+        return runProcessAndMessage(runProcess, opName, input, CommonConstant.TIME_OUT);
+    }
+
+    public static ProcessMessage runProcessAndMessage(Process runProcess, String opName, String input, long timeout) {
+        return runProcessAndMessage(runProcess, opName, input, timeout,
+                CommonConstant.OUTPUT_LIMIT, Charset.forName(FileConstant.ENCODING_GBK));
+    }
+
+    public static ProcessMessage runProcessAndMessage(Process runProcess, String opName, String input,
+                                                      long timeout, long outputLimit, Charset charset) {
+        return runProcessAndMessage(runProcess, opName, input, timeout, outputLimit, charset, null);
+    }
+
+    /**
+     * 运行进程并返回信息
+     * @param runProcess 进程
+     * @param opName 操作名称
+     * @param input 标准输入
+     * @param timeout 超时时间 ms
+     * @param outputLimit 标准输出与错误输出各自的字节上限，超出时终止进程
+     * @param charset 输出编码
+     * @param successSink 标准输出的流式处理目标，例如判题时的输出比较器，不为 null 时不返回标准输出
+     * @return ProcessMessage
+     */
+    public static ProcessMessage runProcessAndMessage(Process runProcess, String opName, String input,
+                                                      long timeout, long outputLimit, Charset charset,
+                                                      OutputStream successSink) {
+        return runProcessAndMessage(runProcess, opName, input, timeout, outputLimit, charset, successSink, null);
+    }
+
+    /**
+     * 运行进程并返回信息
+     * 运行期间每 10ms 采样一次内存，进程由 exec 启动时以 time 命令在退出时报告的峰值为准，
+     * 不会遗漏最后一次采样之后到退出之前的内存高峰
+     * @param runProcess 进程
+     * @param opName 操作名称
+     * @param input 标准输入
+     * @param timeout 超时时间 ms
+     * @param outputLimit 标准输出与错误输出各自的字节上限，超出时终止进程
+     * @param charset 输出编码
+     * @param successSink 标准输出的流式处理目标，例如判题时的输出比较器，不为 null 时不返回标准输出
+     * @param peakFile 启动进程时传给 exec 的峰值内存文件，为 null 时只使用采样结果
+     * @return ProcessMessage
+     */
+    public static ProcessMessage runProcessAndMessage(Process runProcess, String opName, String input,
+                                                      long timeout, long outputLimit, Charset charset,
+                                                      OutputStream successSink, File peakFile) {
         ProcessMessage processMessage = new ProcessMessage();
+        OutputBuffer[] output = null;
         StopWatch stopWatch = new StopWatch();
         OutputStream outputStream = runProcess.getOutputStream();
         OutputStreamWriter outputStreamWriter = new OutputStreamWriter(outputStream);
 
 //        String[] split = input.split(" ");
         long pid = runProcess.pid();
-        final long[] maxMemoryUsage = {0};
+        AtomicLong maxMemoryUsage = new AtomicLong();
 
-        // 创建一个定时执行器，用于定时监控进程内存使用情况
-        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
         // 定义一个用于监控内存的任务
         Runnable memoryMonitor = () -> {
             try {
                 long memoryUsage = getMemoryUsage(pid); // 获取当前进程内存使用情况
-                maxMemoryUsage[0] = Math.max(memoryUsage, maxMemoryUsage[0]);
+                maxMemoryUsage.accumulateAndGet(memoryUsage, Math::max);
             } catch (Exception e) {
                 log.error("获取内存使用情况失败：{}", e.getMessage());
             }
         };
 
+        // 每 10 ms 监控一次内存使用情况，在共用的采样线程池中执行
+        ScheduledFuture<?> sampling = scheduleMemorySampling(memoryMonitor);
         try {
-            // 每 10 ms 监控一次内存使用情况
-            scheduler.scheduleAtFixedRate(memoryMonitor, 10, 10, TimeUnit.MILLISECONDS); // 定期检查内存使用情况
 
             outputStreamWriter.write(input + "\n");
 //            System.out.println(String.join("\n", split) + "\n");
@@ -233,28 +502,10 @@ public class ProcessUtils {
 
             // 监控是否超时
             AtomicBoolean isTerminated  = new AtomicBoolean(false);
-            monitorProcessTime(runProcess,isTerminated);
-
-            // 异步读取标准输出和标准错误输出，防止阻塞
-            StringBuilder SuccessStringBuilder = new StringBuilder();
-            StringBuilder ErrorStringBuilder = new StringBuilder();
-
-            // 创建线程池
-            CountDownLatch latch = new CountDownLatch(2);
-            ExecutorService executor = Executors.newFixedThreadPool(2);
-
-            // 提交任务获取标准输出
-            Future<?> successFuture = executor.submit(() -> buildProcessSuccessOutput(runProcess, SuccessStringBuilder, latch));
+            monitorProcessTime(runProcess,isTerminated,timeout);
 
-            // 提交任务获取错误输出
-            Future<?> errorFuture = executor.submit(() -> buildProcessErrorOutput(runProcess, ErrorStringBuilder, latch));
-            // 等待任务完成
-            latch.await();
-            successFuture.get();
-            errorFuture.get();
-
-            // 关闭线程池
-            executor.shutdown();
+            // 读取标准输出和标准错误输出，防止阻塞
+            output = readProcessOutput(runProcess, outputLimit, successSink);
             // 检查进程是否存活并等待进程结束
             if (runProcess.isAlive()) {
                 runProcess.waitFor();
@@ -267,16 +518,22 @@ public class ProcessUtils {
             int exitCode = runProcess.exitValue();
             processMessage.setExitCode(exitCode);
             processMessage.setExecuteTime(stopWatch.getLastTaskTimeMillis());
-            if (exitCode == 0){
-                processMessage.setSuccessMsg(SuccessStringBuilder.toString());
+            if (output[0].isExceeded() || output[1].isExceeded()){
+                // 输出超出上限，进程已被终止
+                processMessage.setOutputLimitExceeded(true);
+                processMessage.setErrorMsg(CommonConstant.OUTPUT_LIMIT_MESSAGE);
+                log.info(opName + "失败:" + CommonConstant.OUTPUT_LIMIT_MESSAGE + "，测试用例为：{}", input);
+            } else if (exitCode == 0){
+                // 只解码需要返回的输出
+                processMessage.setSuccessMsg(ProcessOutputPump.decodeLines(output[0], charset));
                 log.info(opName + "成功，测试用例为：{}", input);
             }else {
                 if (isTerminated.get()){
                     // 运行超时
-                    processMessage.setErrorMsg("process terminated due to timeout");
-                    log.info(opName + "失败:"+ "process terminated due to timeout，测试用例为：{}", input);
+                    processMessage.setErrorMsg(CommonConstant.TIME_OUT_MESSAGE);
+                    log.info(opName + "失败:" + CommonConstant.TIME_OUT_MESSAGE + "，测试用例为：{}", input);
                 } else {
-                    processMessage.setErrorMsg(ErrorStringBuilder.toString());
+                    processMessage.setErrorMsg(ProcessOutputPump.decodeLines(output[1], charset));
                     log.info(opName + "失败，测试用例为：{}", input);
                 }
             }
@@ -291,14 +548,7 @@ public class ProcessUtils {
         } catch (ExecutionException e) {
             throw new RuntimeException(e);
         } finally {
-            scheduler.shutdown(); // 停止内存监控
-            try {
-                if (!scheduler.awaitTermination(1, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-            }
+            sampling.cancel(false); // 停止内存监控
 
             try {
                 outputStreamWriter.close();
@@ -306,29 +556,28 @@ public class ProcessUtils {
             } catch (IOException e) {
                 log.error("关闭输出流时发生错误：{}", e.getMessage());
             }
-            processMessage.setMemoryUsage(maxMemoryUsage[0]);
+            closeOutput(output);
+            long exitPeak = readPeakFile(peakFile);
+            processMessage.setMemoryUsage(exitPeak > 0 ? exitPeak : maxMemoryUsage.get());
         }
         return processMessage;
     }
 
     /**
-     * 守护线程，监控进程运行时间，超时则终止进程
+     * 监控进程运行时间，超时则终止进程
      * @param runProcess
      */
     public static void monitorProcessTime(Process runProcess, AtomicBoolean isTerminated){
-        new Thread(() -> {
-            try {
-                Thread.sleep(CommonConstant.TIME_OUT);
-                long pid = runProcess.pid();
-                if (runProcess.isAlive()) {
-                    runProcess.destroy();
-                    isTerminated.set(true); // 设置终止标志
-                    log.info("进程 {} 运行超时，已终止", pid);
-                }
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        }).start();
+        monitorProcessTime(runProcess, isTerminated, CommonConstant.TIME_OUT);
+    }
+
+    /**
+     * 监控进程运行时间，超时则终止整个进程树，由共享的看门狗调度，进程结束后自动取消
+     * @param runProcess 进程
+     * @param timeout 超时时间 ms
+     */
+    public static void monitorProcessTime(Process runProcess, AtomicBoolean isTerminated, long timeout){
+        ProcessWatchdog.watch(runProcess, timeout, () -> isTerminated.set(true)); // 设置终止标志
     }
 
 }
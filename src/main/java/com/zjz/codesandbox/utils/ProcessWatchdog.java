@@ -0,0 +1,166 @@
+package com.zjz.codesandbox.utils;
+
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程超时看门狗
+ * 所有进程与容器 exec 的截止时间共用一个调度器，进程结束时立即取消截止时间，
+ * 不再为每个测试用例创建一个休眠到超时的线程
+ */
+@Slf4j
+public class ProcessWatchdog {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+    /**
+     * 当前未到期且未取消的截止时间数
+     */
+    private static final AtomicInteger ACTIVE_DEADLINES = new AtomicInteger();
+
+    /**
+     * 因超时执行的终止次数
+     */
+    private static final AtomicLong KILL_COUNT = new AtomicLong();
+
+    static {
+        SCHEDULER = new ScheduledThreadPoolExecutor(2,
+                ThreadFactoryBuilder.create().setNamePrefix("process-watchdog-").setDaemon(true).build());
+        // 取消的任务立即移出队列，避免大量已结束进程的截止时间堆积
+        SCHEDULER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * 监控本机进程，超时后终止整个进程树，进程退出时自动取消
+     * @param process 进程
+     * @param timeout 超时时间 ms
+     * @param onTimeout 终止前的回调，可为 null
+     * @return 截止时间
+     */
+    public static Deadline watch(Process process, long timeout, Runnable onTimeout) {
+        Deadline deadline = schedule(timeout, () -> {
+            if (!process.isAlive()) {
+                return false;
+            }
+            if (onTimeout != null) {
+                onTimeout.run();
+            }
+            // 先终止子孙进程，再终止进程本身
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+            log.info("进程 {} 运行超时，已终止", process.pid());
+            return true;
+        });
+        process.onExit().thenRun(deadline::cancel);
+        return deadline;
+    }
+
+    /**
+     * 注册一个通用截止时间，到期时执行终止动作
+     * @param timeout 超时时间 ms
+     * @param killAction 终止动作
+     * @return 截止时间，任务结束后需调用 cancel
+     */
+    public static Deadline watch(long timeout, Runnable killAction) {
+        return schedule(timeout, () -> {
+            killAction.run();
+            return true;
+        });
+    }
+
+    /**
+     * 当前活跃的截止时间数
+     */
+    public static int getActiveDeadlines() {
+        return ACTIVE_DEADLINES.get();
+    }
+
+    /**
+     * 累计超时终止次数
+     */
+    public static long getKillCount() {
+        return KILL_COUNT.get();
+    }
+
+    private static Deadline schedule(long timeout, KillAction killAction) {
+        Deadline deadline = new Deadline();
+        ACTIVE_DEADLINES.incrementAndGet();
+        deadline.future = SCHEDULER.schedule(() -> {
+            if (!deadline.finish()) {
+                return;
+            }
+            try {
+                if (killAction.kill()) {
+                    deadline.fired = true;
+                    KILL_COUNT.incrementAndGet();
+                }
+            } catch (Exception e) {
+                log.error("超时终止失败：{}", e.getMessage());
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        if (deadline.finished.get()) {
+            // 注册完成前任务已结束
+            deadline.future.cancel(false);
+        }
+        return deadline;
+    }
+
+    @FunctionalInterface
+    private interface KillAction {
+
+        /**
+         * 执行终止
+         * @return 是否确实终止了仍在运行的任务
+         */
+        boolean kill();
+    }
+
+    /**
+     * 截止时间
+     */
+    public static class Deadline {
+
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        private volatile ScheduledFuture<?> future;
+
+        private volatile boolean fired = false;
+
+        /**
+         * 任务已结束，取消截止时间
+         */
+        public void cancel() {
+            if (finish()) {
+                ScheduledFuture<?> scheduled = future;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+            }
+        }
+
+        /**
+         * 是否因超时被终止
+         */
+        public boolean isFired() {
+            return fired;
+        }
+
+        /**
+         * 标记结束，保证活跃计数只减少一次
+         */
+        private boolean finish() {
+            if (finished.compareAndSet(false, true)) {
+                ACTIVE_DEADLINES.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilePermission;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ReflectPermission;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.security.Permission;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 批量运行器：在同一个 JVM 内依次运行所有测试用例
+ * 每个用例使用新的类加载器加载用户的 Main，保证静态状态互不影响，并单独重定向标准输入输出
+ *
+ * 参数：用户代码目录 用例数量 单个用例超时时间(ms) [单个用例输出字节上限] [失败用例数上限]
+ * 环境变量：CODEBOX_BATCH_NONCE 本次运行的随机标记，在用户代码运行前读取
+ * 输入：用户代码目录下的 case-{i}.in
+ * 输出：每个用例一行，字段以制表符分隔：
+ * 标记 序号 状态(OK/ERROR/TIMEOUT/OUTPUT_LIMIT) 退出码 耗时ms CPU时间ms 分配内存KB 峰值堆内存KB 标准输出(Base64) 错误输出(Base64)
+ * 出现超时或失败用例数达到上限后不再运行后续用例；输出超出上限时后续写入抛出异常，结束当前用例
+ *
+ * 用户代码与批量运行器在同一个 JVM 中，用户代码不能访问文件描述符、替换标准输入输出、读取环境变量与文件、
+ * 反射访问私有成员与创建类加载器，因此无法直接写入真正的标准输出，也无法得知标记以伪造结果行
+ */
+public class BatchRunner {
+
+    private static final String NONCE_ENV = "CODEBOX_BATCH_NONCE";
+
+    /**
+     * 用例线程及其创建的线程中为 TRUE
+     */
+    private static final InheritableThreadLocal<Boolean> IN_CASE = new InheritableThreadLocal<Boolean>();
+
+    private static String nonce = "";
+
+    private static final PrintStream REAL_OUT = System.out;
+
+    private static final InputStream REAL_IN = System.in;
+
+    private static final PrintStream REAL_ERR = System.err;
+
+    /**
+     * 用户代码调用 System.exit 时抛出，用于结束当前用例而不是整个 JVM
+     */
+    private static class ExitException extends SecurityException {
+        private final int status;
+
+        ExitException(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * 用例输出超出上限时抛出
+     */
+    private static class OutputLimitException extends RuntimeException {
+        OutputLimitException() {
+            super("output limit exceeded");
+        }
+    }
+
+    /**
+     * 有字节上限的用例输出，超出后保留已写入的部分并拒绝后续写入
+     */
+    private static class LimitedOutputStream extends ByteArrayOutputStream {
+        private final long limit;
+        private volatile boolean exceeded = false;
+
+        LimitedOutputStream(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (limit > 0 && count + (long) len > limit) {
+                super.write(b, off, (int) Math.max(0, limit - count));
+                exceeded = true;
+                throw new OutputLimitException();
+            }
+            super.write(b, off, len);
+        }
+    }
+
+    /**
+     * 用例的类加载器，由它加载的类即用户代码，安全策略据此限制权限
+     */
+    private static class CaseClassLoader extends URLClassLoader {
+        CaseClassLoader(URL[] urls, ClassLoader parent) {
+            super(urls, parent);
+        }
+    }
+
+    private static class CaseResult {
+        volatile int exitCode = 0;
+        volatile String error;
+        volatile long cpuTime;
+        volatile long allocated;
+    }
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args[0]);
+        int caseCount = Integer.parseInt(args[1]);
+        long timeout = Long.parseLong(args[2]);
+        long outputLimit = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int maxFailures = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+        String configuredNonce = System.getenv(NONCE_ENV);
+        nonce = configuredNonce == null ? "" : configuredNonce;
+        installSecurityManager();
+        URL[] urls = new URL[]{dir.toURI().toURL()};
+        ClassLoader parent = ClassLoader.getSystemClassLoader().getParent();
+        int failures = 0;
+        for (int i = 0; i < caseCount; i++) {
+            String status = runCase(i, dir, urls, parent, timeout, outputLimit);
+            if ("TIMEOUT".equals(status)) {
+                break;
+            }
+            if (!"OK".equals(status) && ++failures == maxFailures) {
+                break;
+            }
+        }
+        REAL_OUT.flush();
+        Runtime.getRuntime().halt(0);
+    }
+
+    private static String runCase(int index, File dir, final URL[] urls, final ClassLoader parent,
+                                   long timeout, long outputLimit) throws Exception {
+        final LimitedOutputStream out = new LimitedOutputStream(outputLimit);
+        final LimitedOutputStream err = new LimitedOutputStream(outputLimit);
+        final CaseResult result = new CaseResult();
+        InputStream in = new FileInputStream(new File(dir, "case-" + index + ".in"));
+        PrintStream caseOut = new PrintStream(out, true);
+        PrintStream caseErr = new PrintStream(err, true);
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        System.setIn(in);
+        System.setOut(caseOut);
+        System.setErr(caseErr);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                com.sun.management.ThreadMXBean threadMXBean =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                long threadId = Thread.currentThread().getId();
+                long cpuStart = threadMXBean.getCurrentThreadCpuTime();
+                long allocStart = threadMXBean.getThreadAllocatedBytes(threadId);
+                URLClassLoader loader = new CaseClassLoader(urls, parent);
+                IN_CASE.set(Boolean.TRUE);
+                try {
+                    Class<?> mainClass = loader.loadClass("Main");
+                    Method mainMethod = mainClass.getMethod("main", String[].class);
+                    mainMethod.invoke(null, (Object) new String[0]);
+                } catch (InvocationTargetException e) {
+                    handleThrowable(e.getCause(), result);
+                } catch (Throwable e) {
+                    handleThrowable(e, result);
+                } finally {
+                    IN_CASE.remove();
+                    System.out.flush();
+                    result.cpuTime = threadMXBean.getCurrentThreadCpuTime() - cpuStart;
+                    result.allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocStart;
+                    try {
+                        loader.close();
+                    } catch (Exception ignored) {
+                    }
+                }
+            }
+        }, "case-" + index);
+        long start = System.nanoTime();
+        worker.start();
+        worker.join(timeout);
+        long wallTime = (System.nanoTime() - start) / 1000000;
+        boolean finished = !worker.isAlive();
+        if (finished) {
+            // 超时的用例线程仍可能在输出，保持重定向直到 JVM 退出
+            System.setIn(REAL_IN);
+            System.setOut(REAL_OUT);
+            System.setErr(REAL_ERR);
+            in.close();
+        }
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        String status;
+        if (!finished) {
+            status = "TIMEOUT";
+            result.exitCode = 1;
+        } else if (out.exceeded || err.exceeded) {
+            status = "OUTPUT_LIMIT";
+            result.exitCode = 1;
+        } else if (result.exitCode == 0) {
+            status = "OK";
+        } else {
+            status = "ERROR";
+            if (result.error != null) {
+                try {
+                    err.write(result.error.getBytes(StandardCharsets.UTF_8));
+                } catch (OutputLimitException ignored) {
+                    // 错误信息过长时只保留上限以内的部分
+                }
+            }
+        }
+        Base64.Encoder encoder = Base64.getEncoder();
+        REAL_OUT.println(nonce + "\t" + index + "\t" + status + "\t" + result.exitCode + "\t" + wallTime
+                + "\t" + result.cpuTime / 1000000 + "\t" + result.allocated / 1024 + "\t" + peakHeap / 1024
+                + "\t" + encoder.encodeToString(out.toByteArray())
+                + "\t" + encoder.encodeToString(err.toByteArray()));
+        REAL_OUT.flush();
+        return status;
+    }
+
+    private static void handleThrowable(Throwable e, CaseResult result) {
+        if (e instanceof ExitException) {
+            result.exitCode = ((ExitException) e).status;
+            return;
+        }
+        if (e instanceof OutputLimitException) {
+            result.exitCode = 1;
+            return;
+        }
+        result.exitCode = 1;
+        // 去掉批量运行器与反射调用的栈帧，使错误信息与单独运行时一致
+        List<StackTraceElement> frames = new ArrayList<StackTraceElement>();
+        for (StackTraceElement frame : e.getStackTrace()) {
+            String className = frame.getClassName();
+            if (!className.startsWith("BatchRunner") && !className.equals("java.lang.Thread")
+                    && !className.startsWith("java.lang.reflect.")
+                    && !className.startsWith("jdk.internal.reflect.") && !className.startsWith("sun.reflect.")) {
+                frames.add(frame);
+            }
+        }
+        e.setStackTrace(frames.toArray(new StackTraceElement[0]));
+        StringWriter writer = new StringWriter();
+        e.printStackTrace(new PrintWriter(writer));
+        result.error = writer.toString();
+    }
+
+    /**
+     * 拦截用例线程中的 System.exit；敏感权限按调用栈检查，安全策略只拒绝用户代码，
+     * 批量运行器与 JDK 内部在特权代码块中的访问不受影响；其余权限检查全部放行
+     */
+    private static void installSecurityManager() {
+        try {
+            Policy.setPolicy(new Policy() {
+                @Override
+                public boolean implies(ProtectionDomain domain, Permission perm) {
+                    return !(domain.getClassLoader() instanceof CaseClassLoader) || !isSensitive(perm);
+                }
+            });
+            System.setSecurityManager(new SecurityManager() {
+                @Override
+                public void checkExit(int status) {
+                    if (Boolean.TRUE.equals(IN_CASE.get())) {
+                        throw new ExitException(status);
+                    }
+                }
+
+                @Override
+                public void checkPermission(Permission perm) {
+                    if (isSensitive(perm)) {
+                        super.checkPermission(perm);
+                    }
+                }
+
+                @Override
+                public void checkPermission(Permission perm, Object context) {
+                    if (isSensitive(perm)) {
+                        super.checkPermission(perm, context);
+                    }
+                }
+            });
+        } catch (UnsupportedOperationException e) {
+            REAL_ERR.println("System.exit can not be intercepted: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 用户代码可借以绕过输出重定向或读取标记的权限
+     */
+    private static boolean isSensitive(Permission perm) {
+        if (perm instanceof FilePermission || perm instanceof ReflectPermission) {
+            return true;
+        }
+        if (perm instanceof RuntimePermission) {
+            String name = perm.getName();
+            return name.equals("setIO") || name.equals("readFileDescriptor") || name.equals("writeFileDescriptor")
+                    || name.equals("setSecurityManager") || name.equals("createSecurityManager")
+                    || name.startsWith("getenv.") || name.equals("createClassLoader");
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package com.zjz.codesandbox.sandbox;
+
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.enums.FailPolicyEnum;
+import com.zjz.codesandbox.model.enums.JudgeVerdictEnum;
+import com.zjz.codesandbox.model.execute.CaseResult;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.model.execute.ExecuteRequest;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecuteContextTest {
+
+    @Test
+    void runAllNeverStops() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder().build());
+        assertEquals(FailPolicyEnum.RUN_ALL, context.getFailPolicy());
+        assertEquals(0, context.getMaxFailures());
+        for (int i = 0; i < 5; i++) {
+            context.recordCase(info("failed", null));
+        }
+        assertFalse(context.isStopped());
+    }
+
+    @Test
+    void failFastStopsAfterFirstFailure() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder()
+                .failPolicy(FailPolicyEnum.FAIL_FAST.getValue())
+                .build());
+        context.recordCase(info("success", null));
+        assertFalse(context.isStopped());
+        context.recordCase(info("failed", null));
+        assertTrue(context.isStopped());
+    }
+
+    @Test
+    void maxFailuresStopsAtLimit() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder()
+                .failPolicy(FailPolicyEnum.MAX_FAILURES.getValue())
+                .maxFailures(2)
+                .build());
+        assertEquals(2, context.getMaxFailures());
+        context.recordCase(info("failed", null));
+        assertFalse(context.isStopped());
+        context.recordCase(info("failed", null));
+        assertTrue(context.isStopped());
+    }
+
+    @Test
+    void maxFailuresWithoutLimitRunsAll() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder()
+                .failPolicy(FailPolicyEnum.MAX_FAILURES.getValue())
+                .maxFailures(-1)
+                .build());
+        context.recordCase(info("failed", null));
+        assertEquals(0, context.getMaxFailures());
+        assertFalse(context.isStopped());
+    }
+
+    @Test
+    void unknownFailPolicyIsNull() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder().failPolicy("unknown").build());
+        assertNull(context.getFailPolicy());
+        assertEquals(0, context.getMaxFailures());
+    }
+
+    @Test
+    void judgingCountsVerdictsInsteadOfMessages() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder()
+                .expectedOutputs(Arrays.asList("1", "2"))
+                .failPolicy(FailPolicyEnum.FAIL_FAST.getValue())
+                .build());
+        // 运行成功但答案错误
+        context.recordCase(info("success", JudgeVerdictEnum.ACCEPTED.getValue()));
+        assertFalse(context.isStopped());
+        context.recordCase(info("success", JudgeVerdictEnum.WRONG_ANSWER.getValue()));
+        assertTrue(context.isStopped());
+    }
+
+    @Test
+    void skipCaseCarriesSkippedVerdictOnlyWhenJudging() {
+        CaseResult skipped = new ExecuteContext(ExecuteRequest.builder().build()).skipCase();
+        assertEquals(CommonConstant.SKIPPED_MESSAGE, skipped.getOutput());
+        assertEquals("skipped", skipped.getExecuteInfo().getMessage());
+        assertNull(skipped.getExecuteInfo().getVerdict());
+
+        CaseResult judged = new ExecuteContext(ExecuteRequest.builder()
+                .expectedOutputs(Arrays.asList("1"))
+                .build()).skipCase();
+        assertEquals(JudgeVerdictEnum.SKIPPED.getValue(), judged.getExecuteInfo().getVerdict());
+    }
+
+    @Test
+    void createJudgeOnlyForCasesWithExpectedOutput() {
+        ExecuteContext context = new ExecuteContext(ExecuteRequest.builder()
+                .expectedOutputs(Arrays.asList("1"))
+                .build());
+        assertNotNull(context.createJudge(0, StandardCharsets.UTF_8));
+        assertNull(context.createJudge(1, StandardCharsets.UTF_8));
+        assertNull(new ExecuteContext(ExecuteRequest.builder().build())
+                .createJudge(0, StandardCharsets.UTF_8));
+    }
+
+    private static ExecuteInfo info(String message, String verdict) {
+        ExecuteInfo executeInfo = new ExecuteInfo();
+        executeInfo.setMessage(message);
+        executeInfo.setVerdict(verdict);
+        return executeInfo;
+    }
+}
@@ -0,0 +1,75 @@
+package com.zjz.codesandbox.sandbox.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionLimiterTest {
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        AdmissionLimiter limiter = new AdmissionLimiter("queue-full", 2, 0, 1000);
+        assertTrue(limiter.acquire());
+        assertTrue(limiter.acquire());
+        assertFalse(limiter.acquire());
+
+        assertEquals(2, limiter.getMetrics().getRunning());
+        assertEquals(2, limiter.getMetrics().getAdmitted());
+        assertEquals(1, limiter.getMetrics().getRejected());
+        limiter.release();
+        assertTrue(limiter.acquire());
+    }
+
+    @Test
+    void timesOutInQueue() {
+        AdmissionLimiter limiter = new AdmissionLimiter("queue-timeout", 1, 1, 50);
+        assertTrue(limiter.acquire());
+        long start = System.nanoTime();
+        assertFalse(limiter.acquire());
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+        assertEquals(1, limiter.getMetrics().getTimedOut());
+        assertEquals(0, limiter.getMetrics().getQueueDepth());
+        assertEquals(1, limiter.getMetrics().getRunning());
+    }
+
+    @Test
+    void queuedSubmissionRunsAfterRelease() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter("queue-release", 1, 1, 10000);
+        assertTrue(limiter.acquire());
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limiter::acquire);
+        awaitQueueDepth(limiter, 1);
+        // 队列已满
+        assertFalse(limiter.acquire());
+
+        limiter.release();
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(1, limiter.getMetrics().getRunning());
+        assertEquals(1, limiter.getMetrics().getRejected());
+    }
+
+    @Test
+    void raisingLimitAdmitsQueuedSubmission() throws Exception {
+        AdmissionLimiter limiter = new AdmissionLimiter("update-limits", 1, 1, 10000);
+        assertTrue(limiter.acquire());
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(limiter::acquire);
+        awaitQueueDepth(limiter, 1);
+
+        limiter.updateLimits(2, 1, 10000);
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(2, limiter.getMetrics().getRunning());
+    }
+
+    private static void awaitQueueDepth(AdmissionLimiter limiter, int depth) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.getMetrics().getQueueDepth() != depth) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Submission was not queued");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.zjz.codesandbox.sandbox.judge;
+
+import com.zjz.codesandbox.model.enums.JudgeModeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputJudgeTest {
+
+    @Test
+    void exactNormalizesLineEndingsOnly() {
+        assertTrue(judge(JudgeModeEnum.EXACT, "1 2\n3\n", "1 2\r\n3\r\n"));
+        assertTrue(judge(JudgeModeEnum.EXACT, "1 2\r\n3", "1 2\n3"));
+        assertFalse(judge(JudgeModeEnum.EXACT, "1 2\n3\n", "1 2\n3"));
+        assertFalse(judge(JudgeModeEnum.EXACT, "1 2\n3\n", "1 2 \n3\n"));
+        // 单独的 \r 不是换行
+        assertFalse(judge(JudgeModeEnum.EXACT, "a\nb", "a\rb"));
+        assertTrue(judge(JudgeModeEnum.EXACT, "a\rb", "a\rb"));
+    }
+
+    @Test
+    void trailingSpaceIgnoresLineEndsAndBlankTail() {
+        assertTrue(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1 2\n3", "1 2   \n3\t\n\n\n"));
+        assertTrue(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1 2  \n3\n\n", "1 2\r\n3"));
+        assertTrue(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "", "  \n\n"));
+        assertTrue(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, null, ""));
+    }
+
+    @Test
+    void trailingSpaceStillComparesInnerSpaces() {
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1 2", "1  2"));
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1 2", "12"));
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1 2", " 1 2"));
+        // 空行不能省略，行也不能合并
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1\n\n2", "1\n2"));
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1\n2", "1 2"));
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1\n2", "1"));
+        assertFalse(judge(JudgeModeEnum.IGNORE_TRAILING_SPACE, "1", "1\n2"));
+    }
+
+    @Test
+    void tokenIgnoresAllWhitespaceLayout() {
+        assertTrue(judge(JudgeModeEnum.TOKEN, "1 2\n3", "  1\n\n2 \t 3  \r\n"));
+        assertFalse(judge(JudgeModeEnum.TOKEN, "1 2 3", "1 2"));
+        assertFalse(judge(JudgeModeEnum.TOKEN, "1 2", "1 2 3"));
+        assertFalse(judge(JudgeModeEnum.TOKEN, "12", "1 2"));
+        // 不按数值比较
+        assertFalse(judge(JudgeModeEnum.TOKEN, "1.0", "1.00"));
+    }
+
+    @Test
+    void floatComparesNumbersWithinEpsilon() {
+        assertTrue(judge(JudgeModeEnum.FLOAT, "3.1415926", "3.14159260001"));
+        assertTrue(judge(JudgeModeEnum.FLOAT, "1 2.5", "1.0000001 2.5"));
+        assertFalse(judge(JudgeModeEnum.FLOAT, "3.1415926", "3.1416"));
+        // 大数按相对误差比较
+        assertTrue(judge(JudgeModeEnum.FLOAT, "1000000000", "1000000000.5"));
+        // 非数值单词仍需完全一致
+        assertTrue(judge(JudgeModeEnum.FLOAT, "YES 0.5", "YES 0.5000000001"));
+        assertFalse(judge(JudgeModeEnum.FLOAT, "YES 0.5", "NO 0.5"));
+    }
+
+    @Test
+    void floatUsesConfiguredEpsilon() {
+        assertTrue(judge(JudgeModeEnum.FLOAT, "0.5", "0.51", 0.02));
+        assertFalse(judge(JudgeModeEnum.FLOAT, "0.5", "0.51", 0.001));
+    }
+
+    @Test
+    void chunkedWritesMatchWholeOutput() {
+        String output = "1 2   \n3\r\n\n";
+        for (JudgeModeEnum mode : JudgeModeEnum.values()) {
+            OutputJudge whole = OutputJudge.create(mode, "1 2\n3", StandardCharsets.UTF_8, OutputJudge.DEFAULT_EPSILON);
+            whole.write(output);
+            OutputJudge chunked = OutputJudge.create(mode, "1 2\n3", StandardCharsets.UTF_8, OutputJudge.DEFAULT_EPSILON);
+            for (byte b : output.getBytes(StandardCharsets.UTF_8)) {
+                chunked.write(b);
+            }
+            assertEquals(whole.isAccepted(), chunked.isAccepted(), mode.getValue());
+        }
+    }
+
+    @Test
+    void outputAfterResultIsIgnored() {
+        OutputJudge judge = OutputJudge.create(JudgeModeEnum.EXACT, "1", StandardCharsets.UTF_8,
+                OutputJudge.DEFAULT_EPSILON);
+        judge.write("1");
+        assertTrue(judge.isAccepted());
+        judge.write("2");
+        assertTrue(judge.isAccepted());
+    }
+
+    @Test
+    void comparesInOutputCharset() {
+        Charset gbk = Charset.forName("GBK");
+        OutputJudge judge = OutputJudge.create(JudgeModeEnum.IGNORE_TRAILING_SPACE, "你好", gbk,
+                OutputJudge.DEFAULT_EPSILON);
+        byte[] bytes = "你好 \n".getBytes(gbk);
+        judge.write(bytes, 0, bytes.length);
+        assertTrue(judge.isAccepted());
+    }
+
+    private static boolean judge(JudgeModeEnum mode, String expected, String output) {
+        return judge(mode, expected, output, OutputJudge.DEFAULT_EPSILON);
+    }
+
+    private static boolean judge(JudgeModeEnum mode, String expected, String output, double epsilon) {
+        OutputJudge judge = OutputJudge.create(mode, expected, StandardCharsets.UTF_8, epsilon);
+        judge.write(output);
+        return judge.isAccepted();
+    }
+}
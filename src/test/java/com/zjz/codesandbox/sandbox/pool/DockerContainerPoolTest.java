@@ -0,0 +1,94 @@
+package com.zjz.codesandbox.sandbox.pool;
+
+import cn.hutool.core.io.FileUtil;
+import com.github.dockerjava.api.DockerClient;
+import com.github.dockerjava.api.model.AccessMode;
+import com.github.dockerjava.api.model.Bind;
+import com.github.dockerjava.api.model.HostConfig;
+import com.github.dockerjava.api.model.Volume;
+import com.zjz.codesandbox.config.ContainerPoolProperties;
+import com.zjz.codesandbox.config.DockerClientProperties;
+import com.zjz.codesandbox.constant.DockerConstant;
+import com.zjz.codesandbox.utils.DockerCommonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 需要本机 Docker 与 Java 镜像，不可用时跳过
+ */
+class DockerContainerPoolTest {
+
+    private static final long EXEC_TIMEOUT = 10000L;
+
+    @TempDir
+    Path tempDir;
+
+    private DockerClient dockerClient;
+
+    private DockerContainerPool pool;
+
+    @BeforeEach
+    void connect() {
+        dockerClient = DockerCommonUtils.createDockerClient(new DockerClientProperties());
+        assumeTrue(dockerAvailable(), "Docker or " + DockerConstant.DOCKER_JAVA_IMAGE + " is not available");
+    }
+
+    @AfterEach
+    void close() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        dockerClient.close();
+    }
+
+    @Test
+    void releasedContainerLeavesNothingForNextLease() {
+        ContainerPoolProperties properties = new ContainerPoolProperties();
+        properties.setMinIdle(1);
+        properties.setMaxTotal(1);
+        pool = new DockerContainerPool(dockerClient, DockerConstant.DOCKER_JAVA_IMAGE, tempDir.toFile(), hostDir -> {
+            HostConfig hostConfig = new HostConfig();
+            hostConfig.setBinds(new Bind(hostDir.getAbsolutePath(),
+                    new Volume(DockerConstant.DOCKER_CODE_PATH), AccessMode.ro));
+            return hostConfig;
+        }, properties);
+        pool.start();
+
+        String containerId = pool.lease();
+        FileUtil.writeUtf8String("input", new File(pool.getHostDir(containerId), "input.txt"));
+        assertEquals(0, exec(containerId, "echo secret > /dev/shm/leak && echo secret > /dev/shm/.hidden"
+                + " && (sleep 600 &)"));
+        pool.release(containerId);
+
+        // 容器数上限为 1，再次租用拿到的是同一个容器
+        String next = pool.lease();
+        assertEquals(containerId, next);
+        assertTrue(FileUtil.isDirEmpty(pool.getHostDir(next)));
+        assertEquals(0, exec(next, "[ -z \"$(ls -A /dev/shm)\" ]"));
+        assertEquals(1, exec(next, "pgrep sleep"));
+        pool.release(next);
+    }
+
+    private Integer exec(String containerId, String script) {
+        return DockerCommonUtils.execForExitCode(containerId, dockerClient, new String[]{"sh", "-c", script},
+                EXEC_TIMEOUT);
+    }
+
+    private boolean dockerAvailable() {
+        try {
+            dockerClient.pingCmd().exec();
+            dockerClient.inspectImageCmd(DockerConstant.DOCKER_JAVA_IMAGE).exec();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.zjz.codesandbox.sandbox.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import com.zjz.codesandbox.config.WorkspaceProperties;
+import com.zjz.codesandbox.constant.FileConstant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private WorkspaceManager manager;
+
+    @AfterEach
+    void close() {
+        if (manager != null) {
+            manager.close();
+        }
+    }
+
+    @Test
+    void releasedSlotIsCleanedAndReused() throws Exception {
+        manager = new WorkspaceManager(properties(tempDir.resolve("root").toFile(), 1));
+        Workspace workspace = manager.allocate("java");
+        assertTrue(workspace.isSlot());
+        FileUtil.writeUtf8String("class Main {}", new File(workspace.getDir(), "Main.java"));
+        FileUtil.mkdir(new File(workspace.getDir(), "nested"));
+
+        manager.release(workspace);
+        awaitFreeSlots(1);
+        assertTrue(FileUtil.isDirEmpty(workspace.getDir()));
+
+        Workspace reused = manager.allocate("java");
+        assertEquals(workspace.getDir(), reused.getDir());
+        // 目录槽在启动时预先创建，两次分配都命中
+        assertEquals(2, manager.getMetrics().getSlotHits());
+    }
+
+    @Test
+    void fallsBackToTemporaryDirWhenSlotsRunOut() throws Exception {
+        manager = new WorkspaceManager(properties(tempDir.resolve("root").toFile(), 1));
+        Workspace slot = manager.allocate("java");
+        Workspace temporary = manager.allocate("java");
+        assertTrue(slot.isSlot());
+        assertFalse(temporary.isSlot());
+        assertNotEquals(slot.getDir(), temporary.getDir());
+
+        // 临时目录用完后删除，不放回空闲队列
+        manager.release(temporary);
+        manager.release(slot);
+        awaitFreeSlots(1);
+        assertFalse(temporary.getDir().exists());
+        assertEquals(1, manager.getMetrics().getSlots());
+    }
+
+    @Test
+    void secondInstanceKeepsLiveWorkspaces() {
+        File root = tempDir.resolve("root").toFile();
+        manager = new WorkspaceManager(properties(root, 1));
+        Workspace workspace = manager.allocate("java");
+        File code = new File(workspace.getDir(), "Main.java");
+        FileUtil.writeUtf8String("class Main {}", code);
+
+        WorkspaceManager other = new WorkspaceManager(properties(root, 1));
+        try {
+            assertTrue(code.isFile());
+            assertNotEquals(manager.getLanguageRoot("java"), other.getLanguageRoot("java"));
+        } finally {
+            other.close();
+        }
+        assertTrue(code.isFile());
+        assertTrue(new File(root, FileConstant.OWNER_MARKER_NAME).isFile());
+    }
+
+    @Test
+    void removesStaleInstanceOnStartup() {
+        File root = tempDir.resolve("root").toFile();
+        // 异常退出的进程留下的实例目录与未加锁的锁文件
+        File stale = new File(root, "instance-1-stale");
+        File leftover = new File(stale, "java/slot-0/Main.java");
+        FileUtil.writeUtf8String("class Main {}", leftover);
+        FileUtil.touch(new File(root, "instance-1-stale.lock"));
+        FileUtil.touch(new File(root, FileConstant.OWNER_MARKER_NAME));
+
+        manager = new WorkspaceManager(properties(root, 1));
+        assertFalse(stale.exists());
+        assertFalse(new File(root, "instance-1-stale.lock").exists());
+    }
+
+    @Test
+    void closeRemovesOwnInstance() {
+        File root = tempDir.resolve("root").toFile();
+        manager = new WorkspaceManager(properties(root, 1));
+        File languageRoot = new File(manager.getLanguageRoot("java"));
+        manager.close();
+
+        assertFalse(languageRoot.getParentFile().exists());
+        assertArrayEquals(new String[]{FileConstant.OWNER_MARKER_NAME}, root.list());
+    }
+
+    @Test
+    void refusesToCleanForeignDirectory() {
+        File root = tempDir.resolve("foreign").toFile();
+        File foreign = new File(root, "important.txt");
+        FileUtil.writeUtf8String("keep", foreign);
+
+        assertThrows(IllegalStateException.class, () -> new WorkspaceManager(properties(root, 1)));
+        assertTrue(foreign.isFile());
+    }
+
+    @Test
+    void quotaRejectsOversizedSubmissions() {
+        WorkspaceProperties properties = properties(tempDir.resolve("root").toFile(), 1);
+        properties.setMaxBytes(16);
+        manager = new WorkspaceManager(properties);
+
+        assertFalse(manager.exceedsQuota(16));
+        assertTrue(manager.exceedsQuota(17));
+        assertEquals(1, manager.getMetrics().getQuotaRejections());
+    }
+
+    private void awaitFreeSlots(int free) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.getMetrics().getFreeSlots() != free || manager.getMetrics().getPendingCleanups() != 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Workspace was not cleaned up");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static WorkspaceProperties properties(File root, int slots) {
+        WorkspaceProperties properties = new WorkspaceProperties();
+        properties.setRootDir(root.getAbsolutePath());
+        properties.setSlotsPerLanguage(slots);
+        properties.setLanguages(Collections.singletonList("java"));
+        return properties;
+    }
+}
@@ -0,0 +1,160 @@
+package com.zjz.codesandbox.utils;
+
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.enums.JudgeModeEnum;
+import com.zjz.codesandbox.model.enums.JudgeVerdictEnum;
+import com.zjz.codesandbox.model.execute.ExecuteInfo;
+import com.zjz.codesandbox.model.process.BatchCaseResult;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerUtilsTest {
+
+    private static final String NONCE = "0123456789abcdef0123456789abcdef";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void batchHeapFollowsCaseMemory() {
+        long caseMemory = 512 * 1024 * 1024L;
+        String[] dockerCommand = BatchRunnerUtils.buildDockerCommand("/app", 3, 1024, 0, caseMemory);
+        assertEquals("-Xmx384m", dockerCommand[1]);
+        assertTrue(BatchRunnerUtils.buildNativeCommand("/tmp/code", 3, 1024, 0, caseMemory)
+                .startsWith("java -Xmx384m "));
+    }
+
+    @Test
+    void prepareWritesNothingWhenQuotaWouldBeExceeded() {
+        File dir = tempDir.toFile();
+        List<String> inputs = Collections.singletonList("1 2");
+
+        assertFalse(BatchRunnerUtils.prepare(dir.getAbsolutePath(), inputs, 1));
+        assertArrayEquals(new String[0], dir.list());
+
+        assertTrue(BatchRunnerUtils.prepare(dir.getAbsolutePath(), inputs, 0));
+        assertTrue(new File(dir, "case-0.in").isFile());
+    }
+
+    @Test
+    void parseResultsDecodesFields() {
+        String output = line(NONCE, 0, "OK", 0, "3\n", "") + "\n"
+                + line(NONCE, 1, "TIMEOUT", 1, "", "") + "\n";
+        List<BatchCaseResult> results = BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE);
+
+        assertEquals(2, results.size());
+        BatchCaseResult first = results.get(0);
+        assertEquals(0, first.getIndex());
+        assertEquals(0, first.getExitCode());
+        assertFalse(first.getTimeout());
+        assertEquals(12L, first.getExecuteTime());
+        assertEquals(10L, first.getCpuTime());
+        assertEquals(2048L, first.getAllocatedMemory());
+        assertEquals(4096L, first.getMemoryUsage());
+        assertEquals("3\n", first.getSuccessMsg());
+        assertTrue(results.get(1).getTimeout());
+    }
+
+    @Test
+    void parseResultsIgnoresForgedLines() {
+        // 用户代码打印的结果行不带本次运行标记
+        String output = line("forged", 0, "OK", 0, "forged answer", "") + "\n"
+                + "0\tOK\t0\t1\t1\t1\t1\t\t\n"
+                + line(NONCE, 0, "OK", 0, "real answer", "") + "\n";
+        List<BatchCaseResult> results = BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE);
+
+        assertEquals(1, results.size());
+        assertEquals("real answer", results.get(0).getSuccessMsg());
+    }
+
+    @Test
+    void parseResultsSkipsMalformedLines() {
+        String output = NONCE + "\tnot-a-number\tOK\t0\t1\t1\t1\t1\t\t\n"
+                + NONCE + "\t0\tOK\t0\t1\t1\t1\t1\t!!!\t\n"
+                + line(NONCE, 0, "OK", 0, "ok", "");
+        List<BatchCaseResult> results = BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE);
+
+        assertEquals(1, results.size());
+        assertEquals("ok", results.get(0).getSuccessMsg());
+        assertTrue(BatchRunnerUtils.parseResults(null, StandardCharsets.UTF_8, NONCE).isEmpty());
+    }
+
+    @Test
+    void collectResultsStopsAtDuplicatedOrMissingIndex() {
+        String output = line(NONCE, 0, "OK", 0, "a", "") + "\n"
+                + line(NONCE, 0, "OK", 0, "a", "") + "\n"
+                + line(NONCE, 1, "OK", 0, "b", "") + "\n";
+        List<String> outputs = new ArrayList<>();
+        List<ExecuteInfo> executeInfos = new ArrayList<>();
+        int collected = BatchRunnerUtils.collectResults(
+                BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE), outputs, executeInfos, i -> null);
+
+        // 重复的结果行之后的用例交由逐个运行
+        assertEquals(1, collected);
+        assertEquals(1, outputs.size());
+
+        List<BatchCaseResult> gap = BatchRunnerUtils.parseResults(
+                line(NONCE, 1, "OK", 0, "b", ""), StandardCharsets.UTF_8, NONCE);
+        assertEquals(0, BatchRunnerUtils.collectResults(gap, new ArrayList<>(), new ArrayList<>(), i -> null));
+    }
+
+    @Test
+    void collectResultsMapsFailuresToMessages() {
+        String output = line(NONCE, 0, "OK", 0, "1\n2\n", "") + "\n"
+                + line(NONCE, 1, "TIMEOUT", 1, "", "") + "\n"
+                + line(NONCE, 2, "OUTPUT_LIMIT", 1, "", "") + "\n"
+                + line(NONCE, 3, "ERROR", 1, "", "boom\n") + "\n";
+        List<String> outputs = new ArrayList<>();
+        List<ExecuteInfo> executeInfos = new ArrayList<>();
+        int collected = BatchRunnerUtils.collectResults(
+                BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE), outputs, executeInfos, i -> null);
+
+        assertEquals(4, collected);
+        assertEquals("12", outputs.get(0));
+        assertEquals("success", executeInfos.get(0).getMessage());
+        assertEquals(CommonConstant.TIME_OUT_MESSAGE, outputs.get(1));
+        assertEquals(CommonConstant.OUTPUT_LIMIT_MESSAGE, outputs.get(2));
+        assertEquals("boom", outputs.get(3));
+        assertEquals("failed", executeInfos.get(3).getMessage());
+        assertEquals(4096L, executeInfos.get(0).getMemory());
+        assertEquals(2048L, executeInfos.get(0).getAllocatedMemory());
+    }
+
+    @Test
+    void collectResultsJudgesStandardOutput() {
+        String output = line(NONCE, 0, "OK", 0, "3\n", "") + "\n"
+                + line(NONCE, 1, "OK", 0, "4\n", "") + "\n"
+                + line(NONCE, 2, "TIMEOUT", 1, "3\n", "") + "\n";
+        List<String> outputs = new ArrayList<>();
+        List<ExecuteInfo> executeInfos = new ArrayList<>();
+        BatchRunnerUtils.collectResults(BatchRunnerUtils.parseResults(output, StandardCharsets.UTF_8, NONCE),
+                outputs, executeInfos,
+                i -> OutputJudge.create(JudgeModeEnum.IGNORE_TRAILING_SPACE, "3", StandardCharsets.UTF_8,
+                        OutputJudge.DEFAULT_EPSILON));
+
+        assertEquals(JudgeVerdictEnum.ACCEPTED.getValue(), executeInfos.get(0).getVerdict());
+        assertEquals(JudgeVerdictEnum.WRONG_ANSWER.getValue(), executeInfos.get(1).getVerdict());
+        assertEquals(JudgeVerdictEnum.TIME_LIMIT_EXCEEDED.getValue(), executeInfos.get(2).getVerdict());
+        // 判题时不返回标准输出
+        assertEquals("", outputs.get(0));
+    }
+
+    private static String line(String nonce, int index, String status, int exitCode, String stdout, String stderr) {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return String.join("\t", nonce, String.valueOf(index), status, String.valueOf(exitCode), "12", "10",
+                "2048", "4096",
+                encoder.encodeToString(stdout.getBytes(StandardCharsets.UTF_8)),
+                encoder.encodeToString(stderr.getBytes(StandardCharsets.UTF_8)));
+    }
+}
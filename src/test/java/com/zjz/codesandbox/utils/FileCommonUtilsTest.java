@@ -0,0 +1,18 @@
+package com.zjz.codesandbox.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCommonUtilsTest {
+
+    @Test
+    void utf8LengthCountsEncodedBytes() {
+        String text = "aé中😀";
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, FileCommonUtils.utf8Length(text));
+        assertEquals(10, FileCommonUtils.utf8Length(text));
+        assertEquals(0, FileCommonUtils.utf8Length(null));
+    }
+}
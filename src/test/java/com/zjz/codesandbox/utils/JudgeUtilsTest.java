@@ -0,0 +1,66 @@
+package com.zjz.codesandbox.utils;
+
+import com.zjz.codesandbox.constant.CommonConstant;
+import com.zjz.codesandbox.model.enums.JudgeModeEnum;
+import com.zjz.codesandbox.model.enums.JudgeVerdictEnum;
+import com.zjz.codesandbox.model.process.ProcessMessage;
+import com.zjz.codesandbox.sandbox.judge.OutputJudge;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JudgeUtilsTest {
+
+    @Test
+    void acceptedAndWrongAnswer() {
+        assertEquals(JudgeVerdictEnum.ACCEPTED.getValue(), JudgeUtils.verdict(false, false, 0, "", judge("3", "3\n")));
+        assertEquals(JudgeVerdictEnum.WRONG_ANSWER.getValue(), JudgeUtils.verdict(false, false, 0, "", judge("3", "4")));
+    }
+
+    @Test
+    void limitsTakePrecedenceOverOutput() {
+        assertEquals(JudgeVerdictEnum.TIME_LIMIT_EXCEEDED.getValue(),
+                JudgeUtils.verdict(true, true, 0, "", judge("3", "3")));
+        assertEquals(JudgeVerdictEnum.OUTPUT_LIMIT_EXCEEDED.getValue(),
+                JudgeUtils.verdict(false, true, 137, "", judge("3", "3")));
+    }
+
+    @Test
+    void memoryErrorsAreDetectedFromExitCodeAndStderr() {
+        assertEquals(JudgeVerdictEnum.MEMORY_LIMIT_EXCEEDED.getValue(),
+                JudgeUtils.verdict(false, false, 137, "", judge("3", "")));
+        assertEquals(JudgeVerdictEnum.MEMORY_LIMIT_EXCEEDED.getValue(), JudgeUtils.verdict(false, false, 1,
+                "Exception in thread \"main\" java.lang.OutOfMemoryError: Java heap space", judge("3", "")));
+        assertEquals(JudgeVerdictEnum.MEMORY_LIMIT_EXCEEDED.getValue(), JudgeUtils.verdict(false, false, 134,
+                "terminate called after throwing an instance of 'std::bad_alloc'", judge("3", "")));
+    }
+
+    @Test
+    void nonZeroOrUnknownExitIsRuntimeError() {
+        assertEquals(JudgeVerdictEnum.RUNTIME_ERROR.getValue(),
+                JudgeUtils.verdict(false, false, 1, "java.lang.ArithmeticException", judge("3", "3")));
+        assertEquals(JudgeVerdictEnum.RUNTIME_ERROR.getValue(),
+                JudgeUtils.verdict(false, false, null, null, judge("3", "3")));
+    }
+
+    @Test
+    void nativeProcessTimeoutIsDetectedFromMessage() {
+        ProcessMessage timedOut = new ProcessMessage();
+        timedOut.setExitCode(1);
+        timedOut.setErrorMsg(CommonConstant.TIME_OUT_MESSAGE);
+        assertEquals(JudgeVerdictEnum.TIME_LIMIT_EXCEEDED.getValue(), JudgeUtils.verdict(timedOut, judge("3", "")));
+
+        ProcessMessage finished = new ProcessMessage();
+        finished.setExitCode(0);
+        assertEquals(JudgeVerdictEnum.ACCEPTED.getValue(), JudgeUtils.verdict(finished, judge("3", "3 ")));
+    }
+
+    private static OutputJudge judge(String expected, String output) {
+        OutputJudge judge = OutputJudge.create(JudgeModeEnum.IGNORE_TRAILING_SPACE, expected, StandardCharsets.UTF_8,
+                OutputJudge.DEFAULT_EPSILON);
+        judge.write(output);
+        return judge;
+    }
+}
@@ -0,0 +1,50 @@
+package com.zjz.codesandbox.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessOutputPumpTest {
+
+    private static final String BOX_NAME = "pump-test";
+
+    @AfterEach
+    void release() {
+        ProcessOutputPump.reserve(BOX_NAME, 0);
+    }
+
+    @Test
+    void rejectsPumpsBeyondReservedThreads() throws Exception {
+        ProcessOutputPump.reserve(BOX_NAME, 1);
+        int maxThreads = ProcessOutputPump.getMaxThreads();
+        List<PipedOutputStream> writers = new ArrayList<>();
+        List<Future<?>> pumps = new ArrayList<>();
+        try {
+            // 占满所有读取线程，读取任务阻塞在没有数据的管道上
+            for (int i = 0; i < maxThreads; i++) {
+                PipedOutputStream writer = new PipedOutputStream();
+                writers.add(writer);
+                pumps.add(ProcessOutputPump.pump(new PipedInputStream(writer), new OutputBuffer(1024)));
+            }
+            PipedOutputStream extra = new PipedOutputStream();
+            assertThrows(RejectedExecutionException.class,
+                    () -> ProcessOutputPump.pump(new PipedInputStream(extra), new OutputBuffer(1024)));
+        } finally {
+            for (PipedOutputStream writer : writers) {
+                writer.close();
+            }
+        }
+        for (Future<?> pump : pumps) {
+            pump.get(5, TimeUnit.SECONDS);
+        }
+    }
+}
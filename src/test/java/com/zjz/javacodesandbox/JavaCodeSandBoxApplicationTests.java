@@ -1,9 +1,14 @@
 package com.zjz.CodeSandBox;
 
+import com.zjz.codesandbox.CodeSandBoxApplication;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// 编译缓存与工作目录放在临时目录，不在工作目录下留下文件，也不影响本机正在运行的服务
+@SpringBootTest(classes = CodeSandBoxApplication.class, properties = {
+        "codebox.compile-cache.root-dir=${java.io.tmpdir}/codebox-test/compilecache",
+        "codebox.workspace.root-dir=${java.io.tmpdir}/codebox-test/workspace"
+})
 class CodeSandBoxApplicationTests {
 
     @Test